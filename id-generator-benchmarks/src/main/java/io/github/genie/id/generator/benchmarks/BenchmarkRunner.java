@@ -0,0 +1,34 @@
+package io.github.genie.id.generator.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks (all by default) once per thread count with the GC profiler attached,
+ * so every result carries the allocation rate next to throughput and latency percentiles.
+ * <p>
+ * {@code java -cp benchmarks.jar io.github.genie.id.generator.benchmarks.BenchmarkRunner [jmh options]}
+ */
+public class BenchmarkRunner {
+
+    public static final int[] THREADS = {1, 4, 16, 64};
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        for (int threads : THREADS) {
+            OptionsBuilder options = new OptionsBuilder();
+            options.parent(commandLine)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-result-" + threads + "-threads.json");
+            new Runner(options.build()).run();
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package io.github.genie.id.generator.benchmarks;
+
+import io.github.genie.id.generator.core.support.Clock;
+import io.github.genie.id.generator.core.support.HybridClock;
+import io.github.genie.id.generator.core.support.TickingClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ClockBenchmark {
+
+    private Clock offsetClock;
+    private TickingClock tickingClock;
+    private TickingClock tickingOffsetClock;
+    private HybridClock hybridClock;
+
+    @Setup
+    public void setup() {
+        long offset = 42;
+        offsetClock = () -> System.currentTimeMillis() + offset;
+        tickingClock = new TickingClock(Clock.DEFAULT);
+        tickingOffsetClock = new TickingClock(offsetClock);
+        hybridClock = new HybridClock();
+        long sent = System.nanoTime();
+        hybridClock.sample(offsetClock.now(), sent, System.nanoTime());
+    }
+
+    @TearDown
+    public void tearDown() {
+        tickingClock.close();
+        tickingOffsetClock.close();
+    }
+
+    @Benchmark
+    public long system() {
+        return Clock.DEFAULT.now();
+    }
+
+    @Benchmark
+    public long systemWithOffset() {
+        return offsetClock.now();
+    }
+
+    @Benchmark
+    public long ticking() {
+        return tickingClock.now();
+    }
+
+    @Benchmark
+    public long tickingWithOffset() {
+        return tickingOffsetClock.now();
+    }
+
+    @Benchmark
+    public long hybrid() {
+        return hybridClock.now();
+    }
+
+}
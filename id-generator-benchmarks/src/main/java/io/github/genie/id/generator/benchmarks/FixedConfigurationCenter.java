@@ -0,0 +1,57 @@
+package io.github.genie.id.generator.benchmarks;
+
+import io.github.genie.id.generator.core.auto.ConfigurationCenter;
+import io.github.genie.id.generator.core.auto.ExpirableNodeId;
+import io.github.genie.id.generator.core.support.Clock;
+
+public class FixedConfigurationCenter implements ConfigurationCenter, ExpirableNodeId {
+
+    private final int nodeId;
+    private final int machineBits;
+    private final int sequenceBits;
+    private final long startStamp;
+    private final Clock clock;
+
+    public FixedConfigurationCenter(int nodeId, int machineBits, int sequenceBits, long startStamp, Clock clock) {
+        this.nodeId = nodeId;
+        this.machineBits = machineBits;
+        this.sequenceBits = sequenceBits;
+        this.startStamp = startStamp;
+        this.clock = clock;
+    }
+
+    @Override
+    public Clock clock() {
+        return clock;
+    }
+
+    @Override
+    public ExpirableNodeId acquireNodeId() {
+        return this;
+    }
+
+    @Override
+    public int machineBits() {
+        return machineBits;
+    }
+
+    @Override
+    public int sequenceBits() {
+        return sequenceBits;
+    }
+
+    @Override
+    public long startStamp() {
+        return startStamp;
+    }
+
+    @Override
+    public int id() {
+        return nodeId;
+    }
+
+    @Override
+    public long expiry() {
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.genie.id.generator.benchmarks;
+
+import io.github.genie.id.generator.core.IdGenerator;
+import io.github.genie.id.generator.core.auto.AutoConfigurableIdGenerator;
+import io.github.genie.id.generator.core.auto.CachedIdGenerator;
+import io.github.genie.id.generator.core.metrics.JmxMetricsRegistry;
+import io.github.genie.id.generator.core.support.Clock;
+import io.github.genie.id.generator.core.support.DistributedIdGenerator;
+import io.github.genie.id.generator.core.support.LocalIdGenerator;
+import io.github.genie.id.generator.core.support.OverflowPolicy;
+import io.github.genie.id.generator.core.support.StripedLocalIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.management.MBeanServerFactory;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    public static final int BATCH_SIZE = 256;
+
+    /**
+     * {@code metered} is {@code local} recording into {@link JmxMetricsRegistry}
+     */
+    @Param({"local", "metered", "striped", "distributed", "auto", "cached"})
+    public String generator;
+
+    /**
+     * sequenceBits:nodeIdBits
+     */
+    @Param({"12:10", "16:6", "8:14"})
+    public String layout;
+
+    private IdGenerator idGenerator;
+
+    @Setup
+    public void setup() {
+        String[] bits = layout.split(":");
+        int sequenceBits = Integer.parseInt(bits[0]);
+        int nodeIdBits = Integer.parseInt(bits[1]);
+        long startStamp = System.currentTimeMillis();
+        switch (generator) {
+            case "local":
+                idGenerator = new LocalIdGenerator(sequenceBits, startStamp, Clock.DEFAULT);
+                break;
+            case "metered":
+                idGenerator = new LocalIdGenerator(sequenceBits, startStamp, Clock.DEFAULT, OverflowPolicy.UNBOUNDED,
+                        new JmxMetricsRegistry(MBeanServerFactory.newMBeanServer()).generator("benchmark"));
+                break;
+            case "striped":
+                idGenerator = new StripedLocalIdGenerator(sequenceBits, startStamp, Clock.DEFAULT);
+                break;
+            case "distributed":
+                idGenerator = new DistributedIdGenerator(1, startStamp, sequenceBits, nodeIdBits, Clock.DEFAULT);
+                break;
+            case "auto":
+                idGenerator = new AutoConfigurableIdGenerator(
+                        new FixedConfigurationCenter(1, nodeIdBits, sequenceBits, startStamp, Clock.DEFAULT));
+                break;
+            case "cached":
+                idGenerator = new CachedIdGenerator(
+                        new FixedConfigurationCenter(1, nodeIdBits, sequenceBits, startStamp, Clock.DEFAULT));
+                break;
+            default:
+                throw new IllegalArgumentException(generator);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (idGenerator instanceof AutoCloseable) {
+            ((AutoCloseable) idGenerator).close();
+        }
+    }
+
+    @Benchmark
+    public long nextId() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long[] fill(Batch batch) {
+        idGenerator.fill(batch.ids, 0, BATCH_SIZE);
+        return batch.ids;
+    }
+
+    @State(Scope.Thread)
+    public static class Batch {
+        final long[] ids = new long[BATCH_SIZE];
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.github.genie.id.generator.benchmarks;
+
+import io.github.genie.id.generator.core.support.Clock;
+import io.github.genie.id.generator.core.support.DistributedIdGenerator;
+import io.github.genie.id.generator.core.support.IdLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding the times of a batch of ids through a generator one by one against the columnar loops of
+ * {@link IdLayout}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdLayoutBenchmark {
+
+    private static final int BATCH = 4096;
+
+    private DistributedIdGenerator generator;
+    private IdLayout layout;
+    private final long[] ids = new long[BATCH];
+    private final long[] times = new long[BATCH];
+    private final int[] nodeIds = new int[BATCH];
+
+    @Setup
+    public void setup() {
+        generator = new DistributedIdGenerator(7, 1_600_000_000_000L, 12, 10, Clock.DEFAULT);
+        layout = generator.getLayout();
+        generator.fill(ids, 0, BATCH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long[] generatorTimes() {
+        for (int i = 0; i < BATCH; i++) {
+            times[i] = generator.getTime(ids[i]);
+        }
+        return times;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long[] layoutTimes() {
+        layout.times(ids, 0, times, 0, BATCH);
+        return times;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] layoutNodeIds() {
+        layout.nodeIds(ids, 0, nodeIds, 0, BATCH);
+        return nodeIds;
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.genie.id.generator.benchmarks;
+
+import io.github.genie.id.generator.core.auto.InitialConfiguration;
+import io.github.genie.id.generator.repository.jdbc.ConnectionProvider;
+import io.github.genie.id.generator.repository.jdbc.H2ConfigurationCenter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lease acquisition and renewal of {@link H2ConfigurationCenter} against an in-memory H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeaseBenchmark {
+
+    private Connection keepAlive;
+    private ScheduledExecutorService service;
+    private BenchmarkConfigurationCenter renewing;
+    private BenchmarkConfigurationCenter acquiring;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        String url = "jdbc:h2:mem:lease-" + System.nanoTime() + ";LOCK_TIMEOUT=10000";
+        keepAlive = DriverManager.getConnection(url);
+        H2ConfigurationCenter.createTables(keepAlive);
+        service = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewing = new BenchmarkConfigurationCenter(() -> DriverManager.getConnection(url),
+                H2ConfigurationCenter.DEFAULT_EXPIRY_SECONDS, service);
+        acquiring = new BenchmarkConfigurationCenter(() -> DriverManager.getConnection(url), 0, service);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        service.shutdownNow();
+        keepAlive.close();
+    }
+
+    @Benchmark
+    public boolean renew() {
+        renewing.renew();
+        return renewing.acquireNodeId() != null;
+    }
+
+    @Benchmark
+    public int acquire() {
+        // leases expire immediately, so every acquisition takes over an expired slot or claims a free one
+        acquiring.reacquire();
+        return acquiring.acquireNodeId().id();
+    }
+
+    static class BenchmarkConfigurationCenter extends H2ConfigurationCenter {
+
+        BenchmarkConfigurationCenter(ConnectionProvider connectionProvider,
+                                     int expirySeconds,
+                                     ScheduledExecutorService service) {
+            super(~(-1 << InitialConfiguration.DEFAULT_ID_BITS),
+                    randomKey(),
+                    connectionProvider,
+                    expirySeconds,
+                    Duration.ofDays(1),
+                    service,
+                    new InitialConfiguration());
+        }
+
+        void renew() {
+            keepLock();
+        }
+
+        void reacquire() {
+            lease.invalidate();
+            acquireId();
+        }
+    }
+
+}
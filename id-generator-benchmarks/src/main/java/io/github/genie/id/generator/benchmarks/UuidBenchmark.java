@@ -0,0 +1,81 @@
+package io.github.genie.id.generator.benchmarks;
+
+import io.github.genie.id.generator.core.support.Clock;
+import io.github.genie.id.generator.core.support.DistributedIdGenerator;
+import io.github.genie.id.generator.core.support.UuidV7Generator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UUID#randomUUID()} against the version 7 UUIDs of {@link UuidV7Generator}, one at a time and in batches.
+ * Run through {@link BenchmarkRunner} to see the allocation rate of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidBenchmark {
+
+    public static final int BATCH_SIZE = 256;
+
+    private UuidV7Generator generator;
+
+    @Setup
+    public void setup() {
+        generator = new UuidV7Generator(
+                new DistributedIdGenerator(1, System.currentTimeMillis(), 12, 10, Clock.DEFAULT));
+    }
+
+    @Benchmark
+    public UUID randomUuid() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    public UUID nextUuid() {
+        return generator.nextUuid();
+    }
+
+    @Benchmark
+    public long[] next(Batch batch) {
+        generator.next(batch.pairs, 0);
+        return batch.pairs;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long[] fill(Batch batch) {
+        generator.fill(batch.pairs, 0, BATCH_SIZE);
+        return batch.pairs;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public ByteBuffer fillBuffer(Batch batch) {
+        batch.bytes.clear();
+        generator.fill(batch.bytes, BATCH_SIZE);
+        return batch.bytes;
+    }
+
+    @State(Scope.Thread)
+    public static class Batch {
+        final long[] pairs = new long[2 * BATCH_SIZE];
+        final ByteBuffer bytes = ByteBuffer.allocateDirect(16 * BATCH_SIZE);
+    }
+
+}
@@ -1,7 +1,57 @@
 package io.github.genie.id.generator.core;
 
+import java.nio.LongBuffer;
+import java.util.concurrent.TimeUnit;
+
 public interface IdGenerator {
 
+    /**
+     * Returned by {@link #tryNextId(long, TimeUnit)} when no id could be issued in time, ids are never negative.
+     */
+    long NO_ID = -1;
+
     long nextId();
 
+    /**
+     * Like {@link #nextId()}, but waits up to {@code timeout} for sequence space instead of failing
+     * when the sequence is exhausted.
+     *
+     * @return the next id, or {@link #NO_ID} if the timeout elapsed
+     */
+    default long tryNextId(long timeout, TimeUnit unit) {
+        return nextId();
+    }
+
+    default long[] nextIds(int n) {
+        long[] ids = new long[n];
+        fill(ids, 0, n);
+        return ids;
+    }
+
+    default void fill(long[] dst, int off, int len) {
+        checkRange(dst.length, off, len);
+        for (int i = off, end = off + len; i < end; i++) {
+            dst[i] = nextId();
+        }
+    }
+
+    default void fill(LongBuffer dst) {
+        if (dst.hasArray()) {
+            int position = dst.position();
+            int len = dst.remaining();
+            fill(dst.array(), dst.arrayOffset() + position, len);
+            dst.position(position + len);
+        } else {
+            while (dst.hasRemaining()) {
+                dst.put(nextId());
+            }
+        }
+    }
+
+    static void checkRange(int length, int off, int len) {
+        if (off < 0 || len < 0 || off > length - len) {
+            throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length=" + length);
+        }
+    }
+
 }
@@ -0,0 +1,295 @@
+package io.github.genie.id.generator.core.async;
+
+import io.github.genie.id.generator.core.IdGenerator;
+import io.github.genie.id.generator.core.auto.LeaseExpiredException;
+import io.github.genie.id.generator.core.log.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Issues ids without blocking while the node id lease is missing. Calls complete at once while the lease is
+ * held. During a lease gap they are queued in order and completed together by a single bulk generation once
+ * {@link #leaseAcquired()} is signalled, or the periodic retry finds the lease back. The generator is only called
+ * while {@code leaseHeld} reports a node id, so no call waits for one to be acquired.
+ * <p>
+ * Queued calls complete on {@code executor}, dependent stages run there unless they are async. The scheduler
+ * only times the retries and never runs the generator.
+ */
+public class AsyncIdGenerator {
+
+    public static final long DEFAULT_RETRY_DELAY_MILLIS = 100;
+    /**
+     * The most ids a publisher fetches at once, however large the demand.
+     */
+    public static final int MAX_PREFETCH_IDS = 1 << 16;
+
+    private static final Log log = Log.get(AsyncIdGenerator.class);
+
+    private final IdGenerator generator;
+    private final BooleanSupplier leaseHeld;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final long retryDelayMillis;
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean retryScheduled = new AtomicBoolean();
+    private final Lock drainLock = new ReentrantLock();
+
+    public AsyncIdGenerator(IdGenerator generator,
+                            BooleanSupplier leaseHeld,
+                            ScheduledExecutorService scheduler,
+                            Executor executor) {
+        this(generator, leaseHeld, scheduler, executor, DEFAULT_RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * @param leaseHeld whether the generator holds a node id, checked without blocking before each generation
+     * @param scheduler times the retries while the lease is missing
+     * @param executor  runs the queued generations and completes their calls
+     */
+    public AsyncIdGenerator(IdGenerator generator,
+                            BooleanSupplier leaseHeld,
+                            ScheduledExecutorService scheduler,
+                            Executor executor,
+                            long retryDelayMillis) {
+        this.generator = generator;
+        this.leaseHeld = leaseHeld;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /**
+     * @return a stage completed with {@code count} ids, already completed unless the lease is missing
+     */
+    public CompletionStage<long[]> nextIds(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        // queued calls go first, so ids are not handed out of order
+        if (pending.isEmpty() && leaseHeld.getAsBoolean()) {
+            try {
+                return CompletableFuture.completedFuture(generator.nextIds(count));
+            } catch (LeaseExpiredException e) {
+                log.trace(() -> "queued while the lease is missing: " + e.getMessage());
+            } catch (RuntimeException e) {
+                CompletableFuture<long[]> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+        Pending call = new Pending(count);
+        pending.add(call);
+        scheduleRetry();
+        return call.future;
+    }
+
+    /**
+     * Streams blocks of {@code blockSize} ids. Demand is fetched in bulk, up to {@link #MAX_PREFETCH_IDS} ids
+     * per generation, and blocks are only fetched once requested.
+     */
+    public Publisher<long[]> blocks(int blockSize) {
+        if (blockSize <= 0 || blockSize > MAX_PREFETCH_IDS) {
+            throw new IllegalArgumentException("blockSize must be in [1, " + MAX_PREFETCH_IDS + "]");
+        }
+        return subscriber -> {
+            BlockSubscription subscription = new BlockSubscription(subscriber, blockSize);
+            subscriber.onSubscribe(subscription);
+        };
+    }
+
+    /**
+     * Completes queued calls, the configuration center calls it once a node id has been acquired.
+     */
+    public void leaseAcquired() {
+        if (!pending.isEmpty()) {
+            dispatch();
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private void scheduleRetry() {
+        if (retryScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(() -> {
+                    retryScheduled.set(false);
+                    dispatch();
+                }, retryDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                retryScheduled.set(false);
+                failPending(e);
+            }
+        }
+    }
+
+    private void dispatch() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            failPending(e);
+        }
+    }
+
+    /**
+     * Fails the queued calls once the executors are shut down, nothing would complete them anymore.
+     */
+    private void failPending(RejectedExecutionException e) {
+        drainLock.lock();
+        try {
+            Pending call;
+            while ((call = pending.poll()) != null) {
+                call.future.completeExceptionally(e);
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void drain() {
+        if (!drainLock.tryLock()) {
+            return;
+        }
+        try {
+            while (true) {
+                List<Pending> batch = new ArrayList<>();
+                int total = 0;
+                for (Pending call : pending) {
+                    if (!batch.isEmpty() && total + call.count > MAX_PREFETCH_IDS) {
+                        break;
+                    }
+                    batch.add(call);
+                    total += call.count;
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                if (!leaseHeld.getAsBoolean()) {
+                    scheduleRetry();
+                    return;
+                }
+                long[] ids;
+                try {
+                    ids = generator.nextIds(total);
+                } catch (LeaseExpiredException e) {
+                    scheduleRetry();
+                    return;
+                } catch (RuntimeException e) {
+                    for (Pending call : batch) {
+                        pending.poll();
+                        call.future.completeExceptionally(e);
+                    }
+                    continue;
+                }
+                int offset = 0;
+                for (Pending call : batch) {
+                    pending.poll();
+                    call.future.complete(Arrays.copyOfRange(ids, offset, offset + call.count));
+                    offset += call.count;
+                }
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private static final class Pending {
+        final int count;
+        final CompletableFuture<long[]> future = new CompletableFuture<>();
+
+        Pending(int count) {
+            this.count = count;
+        }
+    }
+
+    /**
+     * Emits blocks serially: whoever increments {@code wip} from zero runs the loop, others leave it a pass.
+     */
+    private final class BlockSubscription implements Subscription {
+        private final Subscriber<? super long[]> subscriber;
+        private final int blockSize;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile long[] fetched;
+        private volatile Throwable failure;
+        private boolean fetching;
+
+        BlockSubscription(Subscriber<? super long[]> subscriber, int blockSize) {
+            this.subscriber = subscriber;
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failure = new IllegalArgumentException("requested " + n + " blocks");
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                if (cancelled) {
+                    continue;
+                }
+                Throwable failure = this.failure;
+                if (failure != null) {
+                    cancelled = true;
+                    subscriber.onError(failure);
+                    continue;
+                }
+                long[] ids = fetched;
+                if (ids != null) {
+                    fetched = null;
+                    fetching = false;
+                    for (int offset = 0; offset < ids.length && !cancelled; offset += blockSize) {
+                        demand.decrementAndGet();
+                        subscriber.onNext(Arrays.copyOfRange(ids, offset, offset + blockSize));
+                    }
+                }
+                long requested = demand.get();
+                if (!fetching && requested > 0 && !cancelled) {
+                    fetching = true;
+                    int blocks = (int) Math.min(requested, MAX_PREFETCH_IDS / blockSize);
+                    nextIds(blocks * blockSize).whenComplete((result, error) -> {
+                        if (error != null) {
+                            this.failure = error;
+                        } else {
+                            fetched = result;
+                        }
+                        drain();
+                    });
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+    }
+
+}
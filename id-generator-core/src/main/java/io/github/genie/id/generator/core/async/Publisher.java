@@ -0,0 +1,12 @@
+package io.github.genie.id.generator.core.async;
+
+/**
+ * A source of items delivered on demand, shaped like {@code java.util.concurrent.Flow.Publisher} of Java 9 and
+ * the Reactive Streams interface of the same name, so adapting it takes a method reference.
+ */
+@FunctionalInterface
+public interface Publisher<T> {
+
+    void subscribe(Subscriber<? super T> subscriber);
+
+}
@@ -0,0 +1,16 @@
+package io.github.genie.id.generator.core.async;
+
+/**
+ * Receives the items of a {@link Publisher}, never concurrently and never more than it requested.
+ */
+public interface Subscriber<T> {
+
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+
+}
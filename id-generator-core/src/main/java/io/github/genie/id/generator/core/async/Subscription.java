@@ -0,0 +1,15 @@
+package io.github.genie.id.generator.core.async;
+
+/**
+ * The link between a {@link Publisher} and one {@link Subscriber}.
+ */
+public interface Subscription {
+
+    /**
+     * Adds {@code n} items to the demand, a non-positive {@code n} fails the subscription.
+     */
+    void request(long n);
+
+    void cancel();
+
+}
@@ -1,51 +1,250 @@
 package io.github.genie.id.generator.core.auto;
 
 import io.github.genie.id.generator.core.IdGenerator;
+import io.github.genie.id.generator.core.metrics.GeneratorMetrics;
 import io.github.genie.id.generator.core.support.DistributedIdGenerator;
+import io.github.genie.id.generator.core.support.IdLayout;
+import io.github.genie.id.generator.core.support.LocalIdGenerator;
+import io.github.genie.id.generator.core.support.StripedLocalIdGenerator;
 
+import java.nio.LongBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class AutoConfigurableIdGenerator implements IdGenerator {
+    private static final AtomicReferenceFieldUpdater<AutoConfigurableIdGenerator, State> STATE =
+            AtomicReferenceFieldUpdater.newUpdater(AutoConfigurableIdGenerator.class, State.class, "state");
     private final Lock lock = new ReentrantLock();
-    private volatile DistributedIdGenerator generator;
+    private volatile State state;
     private final ConfigurationCenter configurationCenter;
+    private final GeneratorMetrics metrics;
+    private boolean sealed;
+    private boolean attached;
+    /**
+     * The local generator of the previous block size, which may still issue ids of its block until that lease ends.
+     */
+    private volatile LocalIdGenerator retired;
 
     public AutoConfigurableIdGenerator(ConfigurationCenter config) {
+        this(config, GeneratorMetrics.NOOP);
+    }
+
+    public AutoConfigurableIdGenerator(ConfigurationCenter config, GeneratorMetrics metrics) {
         this.configurationCenter = config;
+        this.metrics = metrics;
     }
 
     @Override
     public long nextId() {
-        ExpirableNodeId clock = configurationCenter.acquireNodeId();
-        long id = getIdGenerator(clock).nextId();
-        if (generator.getTime(id) > clock.expiry()) {
-            throw new IllegalStateException("expired");
+        State state = this.state;
+        if (state != null) {
+            long id = state.generator.nextId();
+            if (id <= state.maxId) {
+                return id;
+            }
+            return checkLease(state, id);
+        }
+        state = refreshState();
+        return checkLease(state, state.generator.nextId());
+    }
+
+    @Override
+    public long tryNextId(long timeout, TimeUnit unit) {
+        State state = getState();
+        long id = state.generator.tryNextId(timeout, unit);
+        return id == NO_ID ? NO_ID : checkLease(state, id);
+    }
+
+    @Override
+    public void fill(long[] dst, int off, int len) {
+        if (len == 0) {
+            return;
+        }
+        State state = getState();
+        state.generator.fill(dst, off, len);
+        checkLease(state, max(dst, off, off + len));
+    }
+
+    @Override
+    public void fill(LongBuffer dst) {
+        if (!dst.hasRemaining()) {
+            return;
+        }
+        State state = getState();
+        int start = dst.position();
+        state.generator.fill(dst);
+        long max = Long.MIN_VALUE;
+        for (int i = start; i < dst.position(); i++) {
+            max = Math.max(max, dst.get(i));
+        }
+        checkLease(state, max);
+    }
+
+    public DistributedIdGenerator getIdGenerator() {
+        return getState().generator;
+    }
+
+    /**
+     * @return how many ids or ranges the current local generator has issued ahead of the clock
+     */
+    public long getBorrowedCount() {
+        State state = this.state;
+        return state == null ? 0 : state.generator.getLocalIdGenerator().getBorrowedCount();
+    }
+
+    /**
+     * @return the time of the latest id issued by the current local generator, {@link Long#MIN_VALUE} before
+     * the first one
+     */
+    public long getLastTime() {
+        State state = this.state;
+        long lastTime = state == null ? Long.MIN_VALUE : state.generator.getLocalIdGenerator().getLastTime();
+        LocalIdGenerator retired = this.retired;
+        return retired == null ? lastTime : Math.max(lastTime, retired.getLastTime());
+    }
+
+    /**
+     * @return the layout of the ids, acquiring the node id first if needed; node id blocks and namespaces are
+     * decoded as node ids
+     */
+    public IdLayout getLayout() {
+        return getState().generator.getLayout();
+    }
+
+    /**
+     * Stops issuing ids for good, calls racing with this one either complete before it returns or fail.
+     *
+     * @return the time of the latest id issued, {@link Long#MIN_VALUE} before the first one
+     */
+    public long seal() {
+        lock.lock();
+        try {
+            sealed = true;
+            State state = this.state;
+            long lastTime = state == null ? Long.MIN_VALUE : state.generator.getLocalIdGenerator().seal();
+            LocalIdGenerator retired = this.retired;
+            return retired == null ? lastTime : Math.max(lastTime, retired.seal());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private State getState() {
+        State state = this.state;
+        return state != null ? state : refreshState();
+    }
+
+    private long checkLease(State state, long id) {
+        if (id <= state.maxId) {
+            return id;
+        }
+        // the cached bound may be stale because the lease has been renewed since it was computed
+        State current = refreshState();
+        if (current.generator != state.generator || id > current.maxId) {
+            throw new LeaseExpiredException("id " + id + " is beyond the lease of node "
+                                            + state.generator.getNodeId() + " expiring at " + current.expiry);
         }
         return id;
     }
 
-    protected DistributedIdGenerator getIdGenerator(ExpirableNodeId machineId) {
-        if (isGeneratorExpired(machineId)) {
-            lock.lock();
-            try {
-                if (isGeneratorExpired(machineId)) {
-                    generator = new DistributedIdGenerator(
-                            machineId.id(),
-                            configurationCenter.startStamp(),
-                            configurationCenter.sequenceBits(),
-                            configurationCenter.machineBits(),
-                            configurationCenter.clock()
-                    );
+    private State refreshState() {
+        ExpirableNodeId node = configurationCenter.acquireNodeId();
+        if (node == null) {
+            throw new LeaseExpiredException("node id not acquired");
+        }
+        while (true) {
+            State state = this.state;
+            if (state == null || !state.isNode(node)) {
+                return changeNode(node);
+            }
+            if (state.expiry == node.expiry()) {
+                return state;
+            }
+            State renewed = new State(state.generator, node.expiry());
+            if (STATE.compareAndSet(this, state, renewed)) {
+                return renewed;
+            }
+        }
+    }
+
+    private State changeNode(ExpirableNodeId node) {
+        lock.lock();
+        try {
+            if (sealed) {
+                throw new IllegalStateException("generator has been sealed");
+            }
+            if (!attached) {
+                try {
+                    configurationCenter.attach(this);
+                } catch (IllegalStateException e) {
+                    // the center has been closed, the generator can never issue ids
+                    seal();
+                    throw e;
+                }
+                attached = true;
+            }
+            State state = this.state;
+            if (state == null || !state.isNode(node)) {
+                // the local generator is kept across node changes, so its sequence never restarts; a block of
+                // another size needs a new one, it never overlaps the previous block
+                LocalIdGenerator localIdGenerator;
+                if (state == null || state.generator.getBlockBits() != node.blockBits()) {
+                    localIdGenerator = newLocalIdGenerator(node.blockBits());
+                    if (state != null) {
+                        retired = state.generator.getLocalIdGenerator();
+                    }
+                } else {
+                    localIdGenerator = state.generator.getLocalIdGenerator();
                 }
-            } finally {
-                lock.unlock();
+                DistributedIdGenerator generator = new DistributedIdGenerator(
+                        localIdGenerator, configurationCenter.machineBits(), node.id(), node.blockBits());
+                state = new State(generator, node.expiry());
+                this.state = state;
             }
+            return state;
+        } finally {
+            lock.unlock();
         }
-        return generator;
     }
 
-    private boolean isGeneratorExpired(ExpirableNodeId node) {
-        return generator == null || node.id() != generator.getNodeId();
+    private LocalIdGenerator newLocalIdGenerator(int blockBits) {
+        ConfigurationCenter center = configurationCenter;
+        int sequenceBits = center.sequenceBits() + blockBits;
+        if (center.maxStripes() > 1) {
+            return new StripedLocalIdGenerator(sequenceBits, center.startStamp(), center.clock(),
+                    center.overflowPolicy(), center.maxStripes(), StripedLocalIdGenerator.DEFAULT_CONTENTION_THRESHOLD,
+                    metrics, center.tickMillis());
+        }
+        return new LocalIdGenerator(sequenceBits, center.startStamp(), center.clock(), center.overflowPolicy(),
+                metrics, center.tickMillis());
+    }
+
+    private static long max(long[] ids, int from, int to) {
+        long max = Long.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, ids[i]);
+        }
+        return max;
+    }
+
+    /**
+     * The generator of the current node id together with the largest id it may issue within the lease.
+     */
+    static final class State {
+        final DistributedIdGenerator generator;
+        final long expiry;
+        final long maxId;
+
+        State(DistributedIdGenerator generator, long expiry) {
+            this.generator = generator;
+            this.expiry = expiry;
+            this.maxId = generator.getMaxId(expiry);
+        }
+
+        boolean isNode(ExpirableNodeId node) {
+            return generator.getNodeId() == node.id() && generator.getBlockBits() == node.blockBits();
+        }
     }
 }
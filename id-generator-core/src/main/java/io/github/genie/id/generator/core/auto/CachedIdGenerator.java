@@ -0,0 +1,170 @@
+package io.github.genie.id.generator.core.auto;
+
+import io.github.genie.id.generator.core.IdGenerator;
+import io.github.genie.id.generator.core.log.Log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands out ids pre-generated by a background thread into a ring buffer of primitive longs, so that
+ * {@link #nextId()} normally costs one CAS on the consumer cursor and never touches the generator state.
+ * <p>
+ * The refill thread sleeps until a consumer takes the buffer down to the threshold, then tops it up to its
+ * capacity, reserving whole ranges of the sequence at once, and only while the lease of the node id has not
+ * expired. When the buffer runs dry callers fall back to the underlying generator.
+ * <p>
+ * Ranges are reserved at the clock rather than from the idle sequence of past ticks: the sequence counter is
+ * kept across node id changes, and the ticks behind the clock may have been used by the previous holder of
+ * the current node id. Spare sequence is taken by borrowing ahead instead, as far as the overflow policy and
+ * the lease allow.
+ * <p>
+ * The cache closes itself when its generator is sealed, which the configuration center does when it closes;
+ * the ids left in the ring are dropped and calls fail like the sealed generator.
+ */
+public class CachedIdGenerator implements IdGenerator, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final long ERROR_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Log log = Log.get(CachedIdGenerator.class);
+
+    private final ConfigurationCenter configurationCenter;
+    private final AutoConfigurableIdGenerator generator;
+    private final long[] buffer;
+    private final int mask;
+    private final int threshold;
+    private final Cursor head = new Cursor();
+    private final Cursor tail = new Cursor();
+    final Thread refiller;
+    private volatile boolean running = true;
+    private long lastErrorLog;
+    private int suppressedErrors;
+
+    public CachedIdGenerator(ConfigurationCenter configurationCenter) {
+        this(configurationCenter, DEFAULT_CAPACITY, DEFAULT_CAPACITY / 2);
+    }
+
+    public CachedIdGenerator(ConfigurationCenter configurationCenter, int capacity, int threshold) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        if (threshold < 0 || threshold >= capacity) {
+            throw new IllegalArgumentException("threshold must be in [0, capacity)");
+        }
+        this.configurationCenter = configurationCenter;
+        this.generator = new AutoConfigurableIdGenerator(configurationCenter) {
+            @Override
+            public long seal() {
+                try {
+                    return super.seal();
+                } finally {
+                    close();
+                }
+            }
+        };
+        this.buffer = new long[capacity];
+        this.mask = capacity - 1;
+        this.threshold = threshold;
+        this.refiller = new Thread(this::refillLoop, "id-generator-cache-refill");
+        refiller.setDaemon(true);
+        refiller.start();
+    }
+
+    @Override
+    public long nextId() {
+        Cursor head = this.head;
+        while (true) {
+            long h = head.get();
+            long available = tail.get() - h;
+            if (available <= 0 || !running) {
+                LockSupport.unpark(refiller);
+                return generator.nextId();
+            }
+            // read before claiming, the slot may be refilled as soon as the head moves past it
+            long id = buffer[(int) h & mask];
+            if (head.compareAndSet(h, h + 1)) {
+                if (available - 1 == threshold) {
+                    LockSupport.unpark(refiller);
+                }
+                return id;
+            }
+        }
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Consumers unpark the thread when they take the buffer down to the threshold or find it empty, so it
+     * sleeps while the buffer is full or the lease is gone and retries at most once per call that missed.
+     */
+    private void refillLoop() {
+        lastErrorLog = System.nanoTime() - ERROR_LOG_INTERVAL_NANOS;
+        while (running) {
+            try {
+                refill();
+            } catch (Exception e) {
+                if (running) {
+                    logError(e);
+                }
+            }
+            LockSupport.park(this);
+        }
+    }
+
+    /**
+     * Logs the first failure of every interval only, a fail-fast generator may fail on each signal.
+     */
+    private void logError(Exception e) {
+        long now = System.nanoTime();
+        if (now - lastErrorLog < ERROR_LOG_INTERVAL_NANOS) {
+            suppressedErrors++;
+            return;
+        }
+        int suppressed = suppressedErrors;
+        lastErrorLog = now;
+        suppressedErrors = 0;
+        log.error("refill id cache failed" + (suppressed > 0 ? ", " + suppressed + " failures suppressed" : ""), e);
+    }
+
+    private void refill() {
+        long t = tail.get();
+        int free = buffer.length - (int) (t - head.get());
+        if (buffer.length - free > threshold || !isLeaseValid()) {
+            return;
+        }
+        int off = (int) t & mask;
+        int first = Math.min(free, buffer.length - off);
+        try {
+            generator.fill(buffer, off, first);
+            if (free > first) {
+                generator.fill(buffer, 0, free - first);
+            }
+        } catch (LeaseExpiredException e) {
+            // nothing is published, the ids reserved past the lease are simply dropped
+            return;
+        }
+        tail.set(t + free);
+    }
+
+    private boolean isLeaseValid() {
+        ExpirableNodeId node = configurationCenter.acquireNodeId();
+        return node != null && configurationCenter.clock().now() < node.expiry();
+    }
+
+    /**
+     * Stops the refill thread, later calls go to the generator directly.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(refiller);
+    }
+
+    @SuppressWarnings("unused")
+    static final class Cursor extends AtomicLong {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
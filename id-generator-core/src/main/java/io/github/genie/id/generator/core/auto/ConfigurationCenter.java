@@ -1,8 +1,9 @@
 package io.github.genie.id.generator.core.auto;
 
 import io.github.genie.id.generator.core.support.Clock;
+import io.github.genie.id.generator.core.support.OverflowPolicy;
 
-public interface ConfigurationCenter {
+public interface ConfigurationCenter extends AutoCloseable {
 
     Clock clock();
 
@@ -14,5 +15,38 @@ public interface ConfigurationCenter {
 
     long startStamp();
 
+    /**
+     * @return the milliseconds counted by one unit of the time field of the ids
+     */
+    default long tickMillis() {
+        return 1;
+    }
+
+    default OverflowPolicy overflowPolicy() {
+        return OverflowPolicy.UNBOUNDED;
+    }
+
+    /**
+     * @return how many stripes the generators may split the sequence into under contention, 1 never stripes
+     */
+    default int maxStripes() {
+        return 1;
+    }
+
+    /**
+     * Binds a generator to this center before it issues its first id, so that {@link #close()} can seal every
+     * generator issuing ids with the node id, including ones built outside the center.
+     *
+     * @throws IllegalStateException if the center has been closed
+     */
+    default void attach(AutoConfigurableIdGenerator generator) {
+    }
+
+    /**
+     * Gives up the node id, no ids are issued with it once this returns.
+     */
+    @Override
+    default void close() {
+    }
 
 }
@@ -4,4 +4,11 @@ public interface ExpirableNodeId {
     int id();
 
     long expiry();
+
+    /**
+     * The lease covers the aligned block of {@code 2^blockBits} node ids starting at {@link #id()}.
+     */
+    default int blockBits() {
+        return 0;
+    }
 }
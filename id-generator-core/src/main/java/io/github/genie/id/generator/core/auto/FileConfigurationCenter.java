@@ -0,0 +1,410 @@
+package io.github.genie.id.generator.core.auto;
+
+import io.github.genie.id.generator.core.IdGenerator;
+import io.github.genie.id.generator.core.IdGeneratorFactory;
+import io.github.genie.id.generator.core.log.Log;
+import io.github.genie.id.generator.core.metrics.LeaseMetrics;
+import io.github.genie.id.generator.core.metrics.MetricsRegistry;
+import io.github.genie.id.generator.core.support.Clock;
+import io.github.genie.id.generator.core.support.OverflowPolicy;
+import io.github.genie.id.generator.core.support.TickingClock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leases node ids from a memory-mapped slot file shared by the processes of one host, without a database.
+ * Node id {@code n} is held by locking the byte range of slot {@code n} with {@link FileChannel#tryLock}, so
+ * acquiring one costs a few system calls. The operating system drops the lock of a crashed process, and its
+ * successor on that slot keeps its ids after the expiry the crashed process last wrote as a heartbeat, which
+ * bounds every id it could have issued.
+ * <p>
+ * The file starts with a header holding the start stamp, the bit layout and the tick, the processes sharing a file
+ * must use the same {@link InitialConfiguration#getSequenceBits()}, {@link InitialConfiguration#getNodeIdBits()}
+ * and {@link InitialConfiguration#getTickMillis()}.
+ * Every key shares the node id of the process, as with {@link KeyLayout#SHARED}.
+ */
+public class FileConfigurationCenter implements ConfigurationCenter, Clock, IdGeneratorFactory {
+
+    public static final Duration DEFAULT_LEASE_DURATION = Duration.ofSeconds(20);
+    public static final Duration DEFAULT_HEARTBEAT_PERIOD = Duration.ofSeconds(3);
+
+    private static final Log log = Log.get(FileConfigurationCenter.class);
+
+    private static final int MAGIC = 0x49444653;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 32;
+    private static final int HEARTBEAT_OFFSET = 0;
+    static final int EXPIRY_OFFSET = Long.BYTES;
+    /**
+     * Header locks of one JVM would overlap, which {@link FileChannel} reports instead of waiting.
+     */
+    private static final Object HEADER_MONITOR = new Object();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int sequenceBits;
+    private final int nodeIdBits;
+    private final long startStamp;
+    private final long tickMillis;
+    private final long leaseMillis;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxStripes;
+    private final MetricsRegistry metricsRegistry;
+    private final LeaseMetrics leaseMetrics;
+    private final Clock source;
+    private final ScheduledFuture<?> heartbeat;
+    private final Map<String, AutoConfigurableIdGenerator> generators = new ConcurrentHashMap<>();
+    private final List<AutoConfigurableIdGenerator> attached = new ArrayList<>();
+    private FileLock slotLock;
+    private volatile Lease lease;
+    private volatile long timeFloor = Long.MIN_VALUE;
+    private volatile boolean closed;
+
+    public FileConfigurationCenter(Path path) {
+        this(path, new InitialConfiguration());
+    }
+
+    public FileConfigurationCenter(Path path, InitialConfiguration config) {
+        this(path, DEFAULT_LEASE_DURATION, DEFAULT_HEARTBEAT_PERIOD, newService(), config);
+    }
+
+    /**
+     * @param leaseDuration   how far ahead of the clock each heartbeat extends the lease
+     * @param heartbeatPeriod how often the lease is extended, well below {@code leaseDuration}
+     */
+    public FileConfigurationCenter(Path path,
+                                   Duration leaseDuration,
+                                   Duration heartbeatPeriod,
+                                   ScheduledExecutorService scheduledExecutorService,
+                                   InitialConfiguration config) {
+        if (heartbeatPeriod.compareTo(leaseDuration) >= 0 || heartbeatPeriod.isNegative() || heartbeatPeriod.isZero()) {
+            throw new IllegalArgumentException("heartbeatPeriod must be positive and below leaseDuration");
+        }
+        this.path = path;
+        this.sequenceBits = config.getSequenceBits();
+        this.nodeIdBits = config.getNodeIdBits();
+        this.tickMillis = config.getTickMillis();
+        this.leaseMillis = leaseDuration.toMillis();
+        if (tickMillis * 2 > leaseMillis) {
+            throw new IllegalArgumentException("tick of " + tickMillis + " ms exceeds half the lease");
+        }
+        this.overflowPolicy = config.getOverflowPolicy();
+        this.maxStripes = config.getMaxStripes();
+        this.metricsRegistry = config.getMetricsRegistry();
+        this.leaseMetrics = metricsRegistry.lease(path.toString(), this::getLeaseRemainingMillis);
+        this.source = config.isTickingClock() ? new TickingClock(Clock.DEFAULT) : Clock.DEFAULT;
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.channel = channel;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + ((long) SLOT_SIZE << nodeIdBits));
+            this.startStamp = readHeader();
+            acquire();
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new UncheckedIOException("open node id file " + path + " failed", e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+        long period = heartbeatPeriod.toMillis();
+        this.heartbeat = scheduledExecutorService.scheduleAtFixedRate(this::renew, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public IdGenerator getIdGenerator(String key) {
+        return generators.computeIfAbsent(key,
+                k -> new AutoConfigurableIdGenerator(this, metricsRegistry.generator(k)));
+    }
+
+    @Override
+    public Clock clock() {
+        return this;
+    }
+
+    /**
+     * @return the time of {@link #clock()}, never before the expiry left by the previous holder of the node id
+     */
+    @Override
+    public long now() {
+        return Math.max(source.now(), timeFloor);
+    }
+
+    /**
+     * Extends the lease in place when it has lapsed, which only happens when heartbeats were held up, as the
+     * slot lock is still held.
+     */
+    @Override
+    public ExpirableNodeId acquireNodeId() {
+        Lease lease = this.lease;
+        if (lease != null && lease.expiry > now()) {
+            return lease;
+        }
+        renew();
+        return this.lease;
+    }
+
+    @Override
+    public int machineBits() {
+        return nodeIdBits;
+    }
+
+    @Override
+    public int sequenceBits() {
+        return sequenceBits;
+    }
+
+    @Override
+    public long startStamp() {
+        return startStamp;
+    }
+
+    @Override
+    public long tickMillis() {
+        return tickMillis;
+    }
+
+    @Override
+    public OverflowPolicy overflowPolicy() {
+        return overflowPolicy;
+    }
+
+    @Override
+    public int maxStripes() {
+        return maxStripes;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the time left on the lease, negative when no node id is held
+     */
+    public long getLeaseRemainingMillis() {
+        Lease lease = this.lease;
+        return lease == null ? -1 : lease.expiry - now();
+    }
+
+    /**
+     * Stops the heartbeat, seals the generators and leaves their latest id time as the expiry of the slot
+     * before unlocking it, so a successor takes the node id at once.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        heartbeat.cancel(false);
+        List<AutoConfigurableIdGenerator> generators;
+        // sealing takes the lock of the generator, which attaches holding it, so it must run outside the monitor
+        synchronized (attached) {
+            generators = new ArrayList<>(attached);
+        }
+        long lastTime = Long.MIN_VALUE;
+        for (AutoConfigurableIdGenerator generator : generators) {
+            lastTime = Math.max(lastTime, generator.seal());
+        }
+        Lease lease = this.lease;
+        if (lease != null) {
+            long expiry = Math.min(lease.expiry, Math.max(lastTime, now()));
+            buffer.putLong(slotOffset(lease.id) + EXPIRY_OFFSET, expiry);
+            this.lease = null;
+        }
+        try {
+            slotLock.release();
+        } catch (IOException e) {
+            log.error("release node id file " + path + " failed", e);
+        } finally {
+            closeQuietly(channel);
+            if (source instanceof TickingClock) {
+                ((TickingClock) source).close();
+            }
+            metricsRegistry.close();
+        }
+    }
+
+    /**
+     * Registers a generator issuing ids with the node id, including ones built outside this center, so that
+     * {@link #close()} seals it before the slot is unlocked.
+     */
+    @Override
+    public void attach(AutoConfigurableIdGenerator generator) {
+        synchronized (attached) {
+            if (closed) {
+                throw new IllegalStateException("configuration center has been closed");
+            }
+            attached.add(generator);
+        }
+    }
+
+    /**
+     * Reads the header, writing it first if this process created the file.
+     *
+     * @return the start stamp of the ids
+     */
+    private long readHeader() throws IOException {
+        synchronized (HEADER_MONITOR) {
+            FileLock lock = channel.lock(0, HEADER_SIZE, false);
+            try {
+                if (buffer.getInt(0) != MAGIC) {
+                    buffer.putInt(4, VERSION)
+                            .putInt(8, sequenceBits)
+                            .putInt(12, nodeIdBits)
+                            .putLong(16, System.currentTimeMillis() / 1000 * 1000)
+                            .putLong(24, tickMillis)
+                            .putInt(0, MAGIC);
+                    buffer.force();
+                }
+                if (buffer.getInt(4) != VERSION || buffer.getInt(8) != sequenceBits || buffer.getInt(12) != nodeIdBits) {
+                    throw new IllegalStateException("node id file " + path + " was written by version "
+                                                    + buffer.getInt(4) + " with " + buffer.getInt(8)
+                                                    + " sequence bits and " + buffer.getInt(12) + " node id bits");
+                }
+                // files written before ticks were stored count milliseconds
+                long storedTick = Math.max(1, buffer.getLong(24));
+                if (storedTick != tickMillis) {
+                    throw new IllegalStateException("node id file " + path + " counts ticks of " + storedTick
+                                                    + " ms, configured " + tickMillis + " ms");
+                }
+                return buffer.getLong(16);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Locks the first free slot, preferring slots whose expiry has passed over ones a crashed process may have
+     * issued ids with until now.
+     */
+    private synchronized void acquire() throws IOException {
+        FileLock candidate = null;
+        int candidateId = -1;
+        long now = source.now();
+        for (int nodeId = 0; nodeId < 1 << nodeIdBits; nodeId++) {
+            FileLock lock = tryLock(nodeId);
+            if (lock == null) {
+                continue;
+            }
+            if (buffer.getLong(slotOffset(nodeId) + EXPIRY_OFFSET) < now) {
+                if (candidate != null) {
+                    candidate.release();
+                }
+                candidate = lock;
+                candidateId = nodeId;
+                break;
+            }
+            if (candidate == null) {
+                candidate = lock;
+                candidateId = nodeId;
+            } else {
+                lock.release();
+            }
+        }
+        if (candidate == null) {
+            throw new IllegalStateException("all " + (1 << nodeIdBits) + " node ids of " + path + " are in use");
+        }
+        int nodeId = candidateId;
+        long previousExpiry = buffer.getLong(slotOffset(nodeId) + EXPIRY_OFFSET);
+        timeFloor = previousExpiry + 1;
+        slotLock = candidate;
+        renew(nodeId);
+        log.info(() -> "node id " + nodeId + " leased from " + path);
+    }
+
+    private FileLock tryLock(int nodeId) throws IOException {
+        try {
+            return channel.tryLock(slotOffset(nodeId), SLOT_SIZE, false);
+        } catch (OverlappingFileLockException e) {
+            // held by another configuration center of this JVM
+            return null;
+        }
+    }
+
+    private synchronized void renew() {
+        Lease lease = this.lease;
+        if (closed || lease == null) {
+            return;
+        }
+        renew(lease.id);
+    }
+
+    private void renew(int nodeId) {
+        long start = System.nanoTime();
+        long now = now();
+        int offset = slotOffset(nodeId);
+        buffer.putLong(offset + EXPIRY_OFFSET, now + leaseMillis)
+                .putLong(offset + HEARTBEAT_OFFSET, now);
+        lease = new Lease(nodeId, now + leaseMillis);
+        leaseMetrics.renewed(System.nanoTime() - start, true);
+    }
+
+    static int slotOffset(int nodeId) {
+        return HEADER_SIZE + nodeId * SLOT_SIZE;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+
+    private static ScheduledExecutorService newService() {
+        ScheduledThreadPoolExecutor service = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "id-generator-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the thread ends once the heartbeats of every closed configuration center are gone
+        service.setRemoveOnCancelPolicy(true);
+        service.setKeepAliveTime(DEFAULT_HEARTBEAT_PERIOD.toMillis(), TimeUnit.MILLISECONDS);
+        service.allowCoreThreadTimeOut(true);
+        return service;
+    }
+
+    private static final class Lease implements ExpirableNodeId {
+        private final int id;
+        private final long expiry;
+
+        Lease(int id, long expiry) {
+            this.id = id;
+            this.expiry = expiry;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+
+        @Override
+        public long expiry() {
+            return expiry;
+        }
+    }
+
+}
@@ -1,19 +1,160 @@
 package io.github.genie.id.generator.core.auto;
 
+import io.github.genie.id.generator.core.metrics.MetricsRegistry;
+import io.github.genie.id.generator.core.support.OverflowPolicy;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
 public class InitialConfiguration {
 
     public static final int DEFAULT_SEQUENCE_BITS = 12;
     public static final int DEFAULT_ID_BITS = 10;
     private final int sequenceBits;
     private final int nodeIdBits;
+    private final boolean tickingClock;
+    private final OverflowPolicy overflowPolicy;
+    private final Duration leaseWaitTimeout;
+    private final KeyLayout keyLayout;
+    private final int namespaceBits;
+    private final int maxBlockBits;
+    private final MetricsRegistry metricsRegistry;
+    private final Path checkpointPath;
+    private final boolean shutdownHook;
+    private final long tickMillis;
+    private final int maxStripes;
 
     public InitialConfiguration() {
         this(DEFAULT_SEQUENCE_BITS, DEFAULT_ID_BITS);
     }
 
     public InitialConfiguration(int sequenceBits, int nodeIdBits) {
-        this.sequenceBits = sequenceBits;
-        this.nodeIdBits = nodeIdBits;
+        this(sequenceBits, nodeIdBits, false);
+    }
+
+    public InitialConfiguration(int sequenceBits, int nodeIdBits, boolean tickingClock) {
+        this(sequenceBits, nodeIdBits, tickingClock, OverflowPolicy.UNBOUNDED);
+    }
+
+    public InitialConfiguration(int sequenceBits, int nodeIdBits, boolean tickingClock, OverflowPolicy overflowPolicy) {
+        this(sequenceBits, nodeIdBits, tickingClock, overflowPolicy, Duration.ZERO);
+    }
+
+    /**
+     * @param leaseWaitTimeout how long id generation waits for a node id that has not been acquired yet,
+     *                         {@link Duration#ZERO} fails fast
+     */
+    public InitialConfiguration(int sequenceBits,
+                                int nodeIdBits,
+                                boolean tickingClock,
+                                OverflowPolicy overflowPolicy,
+                                Duration leaseWaitTimeout) {
+        this(builder()
+                .sequenceBits(sequenceBits)
+                .nodeIdBits(nodeIdBits)
+                .tickingClock(tickingClock)
+                .overflowPolicy(overflowPolicy)
+                .leaseWaitTimeout(leaseWaitTimeout));
+    }
+
+    private InitialConfiguration(Builder builder) {
+        if (builder.maxBlockBits > builder.nodeIdBits) {
+            throw new IllegalArgumentException("maxBlockBits must be in [0, nodeIdBits]");
+        }
+        this.sequenceBits = builder.sequenceBits;
+        this.nodeIdBits = builder.nodeIdBits;
+        this.tickingClock = builder.tickingClock;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.leaseWaitTimeout = builder.leaseWaitTimeout;
+        this.keyLayout = builder.keyLayout;
+        this.namespaceBits = builder.namespaceBits;
+        this.maxBlockBits = builder.maxBlockBits;
+        this.metricsRegistry = builder.metricsRegistry;
+        this.checkpointPath = builder.checkpointPath;
+        this.shutdownHook = builder.shutdownHook;
+        this.tickMillis = builder.tickMillis;
+        this.maxStripes = builder.maxStripes;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return a builder starting from the settings of this configuration
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.sequenceBits = sequenceBits;
+        builder.nodeIdBits = nodeIdBits;
+        builder.tickingClock = tickingClock;
+        builder.overflowPolicy = overflowPolicy;
+        builder.leaseWaitTimeout = leaseWaitTimeout;
+        builder.keyLayout = keyLayout;
+        builder.namespaceBits = namespaceBits;
+        builder.maxBlockBits = maxBlockBits;
+        builder.metricsRegistry = metricsRegistry;
+        builder.checkpointPath = checkpointPath;
+        builder.shutdownHook = shutdownHook;
+        builder.tickMillis = tickMillis;
+        builder.maxStripes = maxStripes;
+        return builder;
+    }
+
+    /**
+     * @see Builder#leasePerKey()
+     */
+    public InitialConfiguration withLeasePerKey() {
+        return toBuilder().leasePerKey().build();
+    }
+
+    /**
+     * @see Builder#namespaceBits(int)
+     */
+    public InitialConfiguration withNamespaceBits(int namespaceBits) {
+        return toBuilder().namespaceBits(namespaceBits).build();
+    }
+
+    /**
+     * @see Builder#nodeBlocks(int)
+     */
+    public InitialConfiguration withNodeBlocks(int maxBlockBits) {
+        return toBuilder().nodeBlocks(maxBlockBits).build();
+    }
+
+    /**
+     * @see Builder#metrics(MetricsRegistry)
+     */
+    public InitialConfiguration withMetrics(MetricsRegistry metricsRegistry) {
+        return toBuilder().metrics(metricsRegistry).build();
+    }
+
+    /**
+     * @see Builder#checkpoint(Path)
+     */
+    public InitialConfiguration withCheckpoint(Path checkpointPath) {
+        return toBuilder().checkpoint(checkpointPath).build();
+    }
+
+    /**
+     * @see Builder#shutdownHook()
+     */
+    public InitialConfiguration withShutdownHook() {
+        return toBuilder().shutdownHook().build();
+    }
+
+    /**
+     * @see Builder#tick(Duration)
+     */
+    public InitialConfiguration withTick(Duration tick) {
+        return toBuilder().tick(tick).build();
+    }
+
+    /**
+     * @see Builder#striping(int)
+     */
+    public InitialConfiguration withStriping(int maxStripes) {
+        return toBuilder().striping(maxStripes).build();
     }
 
     public int getSequenceBits() {
@@ -23,4 +164,192 @@ public class InitialConfiguration {
     public int getNodeIdBits() {
         return nodeIdBits;
     }
+
+    public boolean isTickingClock() {
+        return tickingClock;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public Duration getLeaseWaitTimeout() {
+        return leaseWaitTimeout;
+    }
+
+    public KeyLayout getKeyLayout() {
+        return keyLayout;
+    }
+
+    public int getNamespaceBits() {
+        return namespaceBits;
+    }
+
+    public int getMaxBlockBits() {
+        return maxBlockBits;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    public Path getCheckpointPath() {
+        return checkpointPath;
+    }
+
+    public boolean isShutdownHook() {
+        return shutdownHook;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    public int getMaxStripes() {
+        return maxStripes;
+    }
+
+    public static class Builder {
+        private int sequenceBits = DEFAULT_SEQUENCE_BITS;
+        private int nodeIdBits = DEFAULT_ID_BITS;
+        private boolean tickingClock;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.UNBOUNDED;
+        private Duration leaseWaitTimeout = Duration.ZERO;
+        private KeyLayout keyLayout = KeyLayout.SHARED;
+        private int namespaceBits;
+        private int maxBlockBits;
+        private MetricsRegistry metricsRegistry = MetricsRegistry.NOOP;
+        private Path checkpointPath;
+        private boolean shutdownHook;
+        private long tickMillis = 1;
+        private int maxStripes = 1;
+
+        private Builder() {
+        }
+
+        public Builder sequenceBits(int sequenceBits) {
+            this.sequenceBits = sequenceBits;
+            return this;
+        }
+
+        public Builder nodeIdBits(int nodeIdBits) {
+            this.nodeIdBits = nodeIdBits;
+            return this;
+        }
+
+        public Builder tickingClock(boolean tickingClock) {
+            this.tickingClock = tickingClock;
+            return this;
+        }
+
+        public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * @param leaseWaitTimeout how long id generation waits for a node id that has not been acquired yet,
+         *                         {@link Duration#ZERO} fails fast
+         */
+        public Builder leaseWaitTimeout(Duration leaseWaitTimeout) {
+            this.leaseWaitTimeout = leaseWaitTimeout;
+            return this;
+        }
+
+        /**
+         * Every key leases a node id of its own.
+         */
+        public Builder leasePerKey() {
+            this.keyLayout = KeyLayout.LEASE_PER_KEY;
+            this.namespaceBits = 0;
+            return this;
+        }
+
+        /**
+         * Up to {@code 2^namespaceBits} keys share the node id of the process, told apart by a namespace
+         * encoded above the node id bits.
+         */
+        public Builder namespaceBits(int namespaceBits) {
+            if (namespaceBits <= 0) {
+                throw new IllegalArgumentException("namespaceBits must be positive");
+            }
+            this.keyLayout = KeyLayout.NAMESPACE_BITS;
+            this.namespaceBits = namespaceBits;
+            return this;
+        }
+
+        /**
+         * Lets the process lease an aligned block of up to {@code 2^maxBlockBits} node ids, sized by observed
+         * throughput, whose low bits serve as extra sequence bits. Applies to the process lease, not to
+         * {@link KeyLayout#LEASE_PER_KEY} leases. At most the node id bits.
+         */
+        public Builder nodeBlocks(int maxBlockBits) {
+            if (maxBlockBits < 0) {
+                throw new IllegalArgumentException("maxBlockBits must be in [0, nodeIdBits]");
+            }
+            this.maxBlockBits = maxBlockBits;
+            return this;
+        }
+
+        /**
+         * Records generator and lease metrics in {@code metricsRegistry}, such as
+         * {@link io.github.genie.id.generator.core.metrics.JmxMetricsRegistry}.
+         */
+        public Builder metrics(MetricsRegistry metricsRegistry) {
+            this.metricsRegistry = metricsRegistry;
+            return this;
+        }
+
+        /**
+         * Keeps the lock key, node id and high-water mark of issued ids in a {@link NodeCheckpoint} at
+         * {@code checkpointPath}, so a restarted process resumes its lease at once and issues ids above the
+         * previous ones. Each process needs a file of its own.
+         */
+        public Builder checkpoint(Path checkpointPath) {
+            this.checkpointPath = checkpointPath;
+            return this;
+        }
+
+        /**
+         * Closes the configuration center when the JVM shuts down, so the node id is released for successors.
+         */
+        public Builder shutdownHook() {
+            this.shutdownHook = true;
+            return this;
+        }
+
+        /**
+         * Counts the time field of the ids in units of {@code tick} instead of milliseconds, such as 10 ms, 100 ms
+         * or 1 s. The time field then lasts that many times longer, so bits can move from it to the sequence for a
+         * larger burst per tick, at the cost of time resolution. Processes sharing node ids must use the same tick.
+         */
+        public Builder tick(Duration tick) {
+            long tickMillis = tick.toMillis();
+            if (tickMillis <= 0 || !Duration.ofMillis(tickMillis).equals(tick)) {
+                throw new IllegalArgumentException("tick must be a positive whole number of milliseconds");
+            }
+            this.tickMillis = tickMillis;
+            return this;
+        }
+
+        /**
+         * Lets the generators split the sequence of a tick into up to {@code maxStripes} stripes once threads
+         * contend on it, see {@link io.github.genie.id.generator.core.support.StripedLocalIdGenerator}. Ids of
+         * different threads are then only roughly time ordered.
+         */
+        public Builder striping(int maxStripes) {
+            if (maxStripes <= 0) {
+                throw new IllegalArgumentException("maxStripes must be positive");
+            }
+            this.maxStripes = maxStripes;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the node id blocks are larger than the node id bits allow
+         */
+        public InitialConfiguration build() {
+            return new InitialConfiguration(this);
+        }
+    }
 }
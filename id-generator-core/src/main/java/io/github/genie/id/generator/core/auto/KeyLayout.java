@@ -0,0 +1,23 @@
+package io.github.genie.id.generator.core.auto;
+
+/**
+ * How the generators of different keys of one process keep their ids apart.
+ */
+public enum KeyLayout {
+
+    /**
+     * All keys use the node id of the process, ids are only unique within a key.
+     */
+    SHARED,
+
+    /**
+     * Every key leases a node id of its own.
+     */
+    LEASE_PER_KEY,
+
+    /**
+     * Every key gets a namespace, encoded in extra bits above the node id.
+     */
+    NAMESPACE_BITS
+
+}
@@ -0,0 +1,7 @@
+package io.github.genie.id.generator.core.auto;
+
+public class LeaseExpiredException extends IllegalStateException {
+    public LeaseExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,208 @@
+package io.github.genie.id.generator.core.auto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A memory-mapped file that remembers the lease of a process across restarts: its lock key, node id and the
+ * high-water mark of the time of the ids it issued. Two slots are written in turn, each with a sequence number
+ * and a checksum, so a write torn by a crash leaves the previous one readable. Writes land in the page cache,
+ * which outlives a crash of the process, {@link #force()} makes them outlive a crash of the host as well.
+ * The file is locked while open, so two processes never resume the same lease.
+ */
+public class NodeCheckpoint implements Closeable {
+
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private static final int MAGIC = 0x49444350;
+    private static final int SLOT_SIZE = 128;
+    private static final int CRC_OFFSET = SLOT_SIZE - Integer.BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final FileLock fileLock;
+    private final MappedByteBuffer buffer;
+    private long sequence;
+
+    private NodeCheckpoint(Path path, FileChannel channel, FileLock fileLock, MappedByteBuffer buffer) {
+        this.path = path;
+        this.channel = channel;
+        this.fileLock = fileLock;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Opens or creates the checkpoint at {@code path}.
+     *
+     * @throws IllegalStateException if another process or another checkpoint in this one holds the file
+     */
+    public static NodeCheckpoint open(Path path) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock fileLock;
+            try {
+                fileLock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                fileLock = null;
+            }
+            if (fileLock == null) {
+                throw new IllegalStateException("checkpoint " + path + " is in use");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, 2 * SLOT_SIZE);
+            NodeCheckpoint checkpoint = new NodeCheckpoint(path, channel, fileLock, buffer);
+            checkpoint.sequence = Math.max(checkpoint.sequenceAt(0), checkpoint.sequenceAt(1));
+            return checkpoint;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new UncheckedIOException("open checkpoint " + path + " failed", e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the latest intact entry, or {@code null} if none has been written
+     */
+    public synchronized Entry read() {
+        int slot = sequenceAt(0) >= sequenceAt(1) ? 0 : 1;
+        if (sequenceAt(slot) == 0) {
+            return null;
+        }
+        ByteBuffer view = slot(slot);
+        view.position(Integer.BYTES + Long.BYTES);
+        int nodeId = view.getInt();
+        int blockBits = view.getInt();
+        long highWaterMillis = view.getLong();
+        byte[] key = new byte[view.getInt()];
+        view.get(key);
+        return new Entry(new String(key, StandardCharsets.UTF_8), nodeId, blockBits, highWaterMillis);
+    }
+
+    /**
+     * Overwrites the older slot, the entry is readable once this returns unless the host crashes before
+     * {@link #force()}.
+     */
+    public synchronized void write(Entry entry) {
+        byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("checkpoint keys are limited to " + MAX_KEY_LENGTH + " bytes");
+        }
+        long sequence = this.sequence + 1;
+        ByteBuffer view = slot((int) (sequence & 1));
+        // invalidates the slot first, so a torn write is never taken for a complete one
+        view.putInt(CRC_OFFSET, 0);
+        view.putInt(MAGIC)
+                .putLong(sequence)
+                .putInt(entry.getNodeId())
+                .putInt(entry.getBlockBits())
+                .putLong(entry.getHighWaterMillis())
+                .putInt(key.length)
+                .put(key);
+        view.putInt(CRC_OFFSET, checksum(view));
+        this.sequence = sequence;
+    }
+
+    /**
+     * Flushes written entries to the storage device.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            fileLock.release();
+        } catch (IOException e) {
+            throw new UncheckedIOException("release checkpoint " + path + " failed", e);
+        } finally {
+            closeQuietly(channel);
+        }
+    }
+
+    /**
+     * @return the sequence number of an intact slot, 0 otherwise
+     */
+    private long sequenceAt(int slot) {
+        ByteBuffer view = slot(slot);
+        if (view.getInt(0) != MAGIC || view.getInt(CRC_OFFSET) != checksum(view)) {
+            return 0;
+        }
+        return view.getLong(Integer.BYTES);
+    }
+
+    private ByteBuffer slot(int slot) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(slot * SLOT_SIZE).limit(slot * SLOT_SIZE + SLOT_SIZE);
+        return view.slice();
+    }
+
+    private static int checksum(ByteBuffer slot) {
+        CRC32 crc = new CRC32();
+        ByteBuffer content = slot.duplicate();
+        content.position(0).limit(CRC_OFFSET);
+        crc.update(content);
+        // never 0, which marks a slot being written
+        return (int) crc.getValue() | 1;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+
+    public static final class Entry {
+        private final String key;
+        private final int nodeId;
+        private final int blockBits;
+        private final long highWaterMillis;
+
+        public Entry(String key, int nodeId, int blockBits, long highWaterMillis) {
+            this.key = key;
+            this.nodeId = nodeId;
+            this.blockBits = blockBits;
+            this.highWaterMillis = highWaterMillis;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public int getNodeId() {
+            return nodeId;
+        }
+
+        public int getBlockBits() {
+            return blockBits;
+        }
+
+        /**
+         * @return no id written before this entry has a later time
+         */
+        public long getHighWaterMillis() {
+            return highWaterMillis;
+        }
+    }
+}
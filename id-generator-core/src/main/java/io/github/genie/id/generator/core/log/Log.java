@@ -24,6 +24,9 @@ public class Log {
             inputStream = ClassLoader
                     .getSystemResourceAsStream("logging.properties");
         }
+        if (inputStream == null) {
+            return;
+        }
         try {
             LogManager.getLogManager().readConfiguration(inputStream);
         } catch (SecurityException | IOException e) {
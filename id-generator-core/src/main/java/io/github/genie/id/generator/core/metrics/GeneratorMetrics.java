@@ -0,0 +1,34 @@
+package io.github.genie.id.generator.core.metrics;
+
+/**
+ * Recorded on the id generation path of one generator.
+ */
+public interface GeneratorMetrics {
+
+    GeneratorMetrics NOOP = new GeneratorMetrics() {
+    };
+
+    /**
+     * Called with the ids issued since the previous call, which may be as rarely as once per millisecond.
+     */
+    default void issued(long count) {
+    }
+
+    default void casRetry() {
+    }
+
+    /**
+     * Called once for every millisecond whose ids are issued ahead of the clock.
+     *
+     * @param aheadMillis how far ahead of the clock the millisecond is
+     */
+    default void borrowed(long aheadMillis) {
+    }
+
+    /**
+     * @param nanos time spent waiting for the clock after the sequence space was exhausted
+     */
+    default void waited(long nanos) {
+    }
+
+}
@@ -0,0 +1,20 @@
+package io.github.genie.id.generator.core.metrics;
+
+public interface GeneratorMetricsMXBean {
+
+    /**
+     * @return ids issued up to the last millisecond the generator moved on from
+     */
+    long getIdsIssued();
+
+    long getCasRetries();
+
+    long getBorrowedMillis();
+
+    long getMaxBorrowedMillis();
+
+    long getWaitCount();
+
+    long getWaitNanos();
+
+}
@@ -0,0 +1,225 @@
+package io.github.genie.id.generator.core.metrics;
+
+import io.github.genie.id.generator.core.log.Log;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectInstance;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps metrics in striped counters and publishes them as MXBeans named
+ * {@code io.github.genie.id.generator:type=Generator|Lease,key=<key>}. {@link #close()} unregisters them, so
+ * that a center re-created with the same key publishes under the same names.
+ */
+public class JmxMetricsRegistry implements MetricsRegistry {
+
+    public static final String DOMAIN = "io.github.genie.id.generator";
+
+    private static final Log log = Log.get(JmxMetricsRegistry.class);
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    private final MBeanServer server;
+    private final Queue<ObjectName> registered = new ConcurrentLinkedQueue<>();
+
+    public JmxMetricsRegistry() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxMetricsRegistry(MBeanServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public GeneratorMetrics generator(String key) {
+        JmxGeneratorMetrics metrics = new JmxGeneratorMetrics();
+        register("Generator", key, metrics);
+        return metrics;
+    }
+
+    @Override
+    public LeaseMetrics lease(String key, LongSupplier remainingMillis) {
+        JmxLeaseMetrics metrics = new JmxLeaseMetrics(remainingMillis);
+        register("Lease", key, metrics);
+        return metrics;
+    }
+
+    private void register(String type, String key, Object bean) {
+        try {
+            String name = DOMAIN + ":type=" + type + ",key=" + ObjectName.quote(key);
+            ObjectInstance instance;
+            try {
+                instance = server.registerMBean(bean, new ObjectName(name));
+            } catch (InstanceAlreadyExistsException e) {
+                instance = server.registerMBean(bean, new ObjectName(name + ",instance=" + instances.incrementAndGet()));
+            }
+            registered.add(instance.getObjectName());
+        } catch (JMException e) {
+            log.error("register " + type + " metrics of " + key + " failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        ObjectName name;
+        while ((name = registered.poll()) != null) {
+            try {
+                server.unregisterMBean(name);
+            } catch (InstanceNotFoundException e) {
+                // unregistered by someone else
+            } catch (JMException e) {
+                log.error("unregister " + name + " failed", e);
+            }
+        }
+    }
+
+    static class JmxGeneratorMetrics implements GeneratorMetrics, GeneratorMetricsMXBean {
+        private final LongAdder issued = new LongAdder();
+        private final LongAdder casRetries = new LongAdder();
+        private final LongAdder borrowedMillis = new LongAdder();
+        private final LongAccumulator maxBorrowedMillis = new LongAccumulator(Math::max, 0);
+        private final LongAdder waits = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+
+        @Override
+        public void issued(long count) {
+            issued.add(count);
+        }
+
+        @Override
+        public void casRetry() {
+            casRetries.increment();
+        }
+
+        @Override
+        public void borrowed(long aheadMillis) {
+            borrowedMillis.increment();
+            maxBorrowedMillis.accumulate(aheadMillis);
+        }
+
+        @Override
+        public void waited(long nanos) {
+            waits.increment();
+            waitNanos.add(nanos);
+        }
+
+        @Override
+        public long getIdsIssued() {
+            return issued.sum();
+        }
+
+        @Override
+        public long getCasRetries() {
+            return casRetries.sum();
+        }
+
+        @Override
+        public long getBorrowedMillis() {
+            return borrowedMillis.sum();
+        }
+
+        @Override
+        public long getMaxBorrowedMillis() {
+            return maxBorrowedMillis.get();
+        }
+
+        @Override
+        public long getWaitCount() {
+            return waits.sum();
+        }
+
+        @Override
+        public long getWaitNanos() {
+            return waitNanos.sum();
+        }
+    }
+
+    static class JmxLeaseMetrics implements LeaseMetrics, LeaseMetricsMXBean {
+        private final LongSupplier remainingMillis;
+        private final LatencyHistogram renewalLatency = new LatencyHistogram();
+        private final LongAdder renewals = new LongAdder();
+        private final LongAdder renewalFailures = new LongAdder();
+        private final LongAdder waits = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder roundTrips = new LongAdder();
+
+        JmxLeaseMetrics(LongSupplier remainingMillis) {
+            this.remainingMillis = remainingMillis;
+        }
+
+        @Override
+        public void renewed(long latencyNanos, boolean success) {
+            renewals.increment();
+            if (!success) {
+                renewalFailures.increment();
+            }
+            renewalLatency.record(latencyNanos);
+        }
+
+        @Override
+        public void waited(long nanos) {
+            waits.increment();
+            waitNanos.add(nanos);
+        }
+
+        @Override
+        public void roundTrip() {
+            roundTrips.increment();
+        }
+
+        @Override
+        public long getRenewals() {
+            return renewals.sum();
+        }
+
+        @Override
+        public long getRenewalFailures() {
+            return renewalFailures.sum();
+        }
+
+        @Override
+        public long[] getRenewalLatencyHistogram() {
+            return renewalLatency.snapshot();
+        }
+
+        @Override
+        public long getRenewalLatencyP50Micros() {
+            return renewalLatency.quantileMicros(0.5);
+        }
+
+        @Override
+        public long getRenewalLatencyP99Micros() {
+            return renewalLatency.quantileMicros(0.99);
+        }
+
+        @Override
+        public long getAcquisitionWaits() {
+            return waits.sum();
+        }
+
+        @Override
+        public long getAcquisitionWaitNanos() {
+            return waitNanos.sum();
+        }
+
+        @Override
+        public long getDatabaseRoundTrips() {
+            return roundTrips.sum();
+        }
+
+        @Override
+        public long getLeaseRemainingMillis() {
+            return remainingMillis.getAsLong();
+        }
+    }
+
+}
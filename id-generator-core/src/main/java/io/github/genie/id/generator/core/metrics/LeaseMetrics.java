@@ -0,0 +1,23 @@
+package io.github.genie.id.generator.core.metrics;
+
+/**
+ * Recorded while a node id lease is acquired and kept.
+ */
+public interface LeaseMetrics {
+
+    LeaseMetrics NOOP = new LeaseMetrics() {
+    };
+
+    default void renewed(long latencyNanos, boolean success) {
+    }
+
+    /**
+     * @param nanos time spent waiting for a node id to become free
+     */
+    default void waited(long nanos) {
+    }
+
+    default void roundTrip() {
+    }
+
+}
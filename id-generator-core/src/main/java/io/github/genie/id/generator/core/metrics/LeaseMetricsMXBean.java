@@ -0,0 +1,26 @@
+package io.github.genie.id.generator.core.metrics;
+
+public interface LeaseMetricsMXBean {
+
+    long getRenewals();
+
+    long getRenewalFailures();
+
+    /**
+     * @see LatencyHistogram
+     */
+    long[] getRenewalLatencyHistogram();
+
+    long getRenewalLatencyP50Micros();
+
+    long getRenewalLatencyP99Micros();
+
+    long getAcquisitionWaits();
+
+    long getAcquisitionWaitNanos();
+
+    long getDatabaseRoundTrips();
+
+    long getLeaseRemainingMillis();
+
+}
@@ -0,0 +1,38 @@
+package io.github.genie.id.generator.core.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Creates the metrics of generators and leases. Implementations must hand out metrics whose recording methods
+ * are allocation free and safe to call from any thread. A registry belongs to the configuration center it is
+ * configured into, which closes it when the center closes.
+ */
+public interface MetricsRegistry extends AutoCloseable {
+
+    MetricsRegistry NOOP = new MetricsRegistry() {
+        @Override
+        public GeneratorMetrics generator(String key) {
+            return GeneratorMetrics.NOOP;
+        }
+
+        @Override
+        public LeaseMetrics lease(String key, LongSupplier remainingMillis) {
+            return LeaseMetrics.NOOP;
+        }
+    };
+
+    GeneratorMetrics generator(String key);
+
+    /**
+     * @param remainingMillis reads the time left on the lease, negative when no node id is held
+     */
+    LeaseMetrics lease(String key, LongSupplier remainingMillis);
+
+    /**
+     * Releases what the registry published, metrics handed out keep recording but are no longer visible.
+     */
+    @Override
+    default void close() {
+    }
+
+}
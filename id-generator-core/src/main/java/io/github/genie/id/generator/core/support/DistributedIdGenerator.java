@@ -2,6 +2,9 @@ package io.github.genie.id.generator.core.support;
 
 import io.github.genie.id.generator.core.IdGenerator;
 
+import java.nio.LongBuffer;
+import java.util.concurrent.TimeUnit;
+
 public class DistributedIdGenerator implements IdGenerator {
     public static final int DEFAULT_MACHINE_BITS = 10;
     public static final int DEFAULT_SEQUENCE_BITS = 12;
@@ -9,6 +12,8 @@ public class DistributedIdGenerator implements IdGenerator {
     private final LocalIdGenerator localIdGenerator;
     private final int nodeIdBits;
     private final int nodeId;
+    private final int blockBits;
+    private final long blockMask;
 
     public DistributedIdGenerator(int nodeId, long startStamp) {
         this(nodeId, startStamp, DEFAULT_SEQUENCE_BITS, DEFAULT_MACHINE_BITS, Clock.DEFAULT);
@@ -19,14 +24,69 @@ public class DistributedIdGenerator implements IdGenerator {
     }
 
     public DistributedIdGenerator(LocalIdGenerator localIdGenerator, int nodeIdBits, int nodeId) {
+        this(localIdGenerator, nodeIdBits, nodeId, 0);
+    }
+
+    /**
+     * A generator owning the aligned block of {@code 2^blockBits} node ids starting at {@code nodeId}. The low
+     * {@code blockBits} of the node id serve as extra sequence bits, so {@code localIdGenerator} must have
+     * {@code blockBits} more sequence bits than the id layout.
+     */
+    public DistributedIdGenerator(LocalIdGenerator localIdGenerator, int nodeIdBits, int nodeId, int blockBits) {
+        if ((nodeId & ~(-1 << blockBits)) != 0) {
+            throw new IllegalArgumentException("node id " + nodeId + " is not aligned to a block of " + (1 << blockBits));
+        }
         this.localIdGenerator = localIdGenerator;
         this.nodeIdBits = nodeIdBits;
         this.nodeId = nodeId;
+        this.blockBits = blockBits;
+        this.blockMask = ~(-1L << blockBits);
     }
 
     @Override
     public long nextId() {
-        return localIdGenerator.nextId() << nodeIdBits | nodeId;
+        return toId(localIdGenerator.nextId());
+    }
+
+    @Override
+    public long tryNextId(long timeout, TimeUnit unit) {
+        long id = localIdGenerator.tryNextId(timeout, unit);
+        return id == NO_ID ? NO_ID : toId(id);
+    }
+
+    private long toId(long localId) {
+        return (localId >>> blockBits) << nodeIdBits | nodeId | (localId & blockMask);
+    }
+
+    @Override
+    public void fill(long[] dst, int off, int len) {
+        IdGenerator.checkRange(dst.length, off, len);
+        while (len > 0) {
+            long first = localIdGenerator.nextRange(len);
+            int count = localIdGenerator.rangeSize(first, len);
+            for (int i = 0; i < count; i++) {
+                dst[off + i] = toId(first + i);
+            }
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void fill(LongBuffer dst) {
+        int len = dst.remaining();
+        while (len > 0) {
+            long first = localIdGenerator.nextRange(len);
+            int count = localIdGenerator.rangeSize(first, len);
+            for (int i = 0; i < count; i++) {
+                dst.put(toId(first + i));
+            }
+            len -= count;
+        }
+    }
+
+    public LocalIdGenerator getLocalIdGenerator() {
+        return localIdGenerator;
     }
 
     public int getNodeIdBits() {
@@ -37,8 +97,31 @@ public class DistributedIdGenerator implements IdGenerator {
         return nodeId;
     }
 
+    public int getBlockBits() {
+        return blockBits;
+    }
+
+    /**
+     * @return the layout of the ids, blocks of node ids are decoded as node ids
+     */
+    public IdLayout getLayout() {
+        return new IdLayout(localIdGenerator.getSequenceBits() - blockBits, nodeIdBits,
+                localIdGenerator.getStartStamp(), localIdGenerator.getTickMillis());
+    }
+
     public long getTime(long id) {
-        return localIdGenerator.getTime(id >> nodeIdBits);
+        return localIdGenerator.getTime((id >> nodeIdBits) << blockBits);
+    }
+
+    /**
+     * @return the largest id whose whole tick is not after {@code time}
+     */
+    public long getMaxId(long time) {
+        long localId = localIdGenerator.getMaxId(time) >> blockBits;
+        if (localId >= Long.MAX_VALUE >> nodeIdBits) {
+            return Long.MAX_VALUE;
+        }
+        return (localId + 1 << nodeIdBits) - 1;
     }
 
 
@@ -0,0 +1,168 @@
+package io.github.genie.id.generator.core.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link Clock} that runs on {@link System#nanoTime()} and is anchored to a reference clock, such as the
+ * database, by round-trip samples. Samples are weighted by how close their round trip is to the fastest one
+ * seen, the way NTP filters them. Corrections are slewed by at most {@link #DEFAULT_MAX_SLEW_RATE} so the clock
+ * never goes backwards, only forward corrections above the step threshold are applied at once. Wall clock
+ * steps on the host do not affect it.
+ */
+public class HybridClock implements Clock {
+
+    public static final double DEFAULT_MAX_SLEW_RATE = 500e-6;
+    public static final long DEFAULT_STEP_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(128);
+    /**
+     * The share of the difference to a sample taken over, for a sample as fast as the fastest round trip.
+     */
+    public static final double SAMPLE_GAIN = 0.5;
+    /**
+     * The relative growth of the fastest round trip per sample, so it follows a slower network eventually.
+     */
+    public static final double MIN_RTT_DECAY = 0.05;
+
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LongSupplier nanoTime;
+    private final long baseNanos;
+    private final double maxSlewRate;
+    private final long stepThresholdNanos;
+    private final AtomicLong last = new AtomicLong(Long.MIN_VALUE);
+    private volatile Anchor anchor;
+    private double targetOffsetNanos;
+    private long minRttNanos;
+    private boolean calibrated;
+
+    public HybridClock() {
+        this(System.currentTimeMillis());
+    }
+
+    public HybridClock(long referenceMillis) {
+        this(referenceMillis, DEFAULT_MAX_SLEW_RATE, DEFAULT_STEP_THRESHOLD_NANOS);
+    }
+
+    public HybridClock(long referenceMillis, double maxSlewRate, long stepThresholdNanos) {
+        this(referenceMillis, maxSlewRate, stepThresholdNanos, System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime the source of {@link System#nanoTime()}, replaced by tests
+     */
+    HybridClock(long referenceMillis, double maxSlewRate, long stepThresholdNanos, LongSupplier nanoTime) {
+        if (maxSlewRate <= 0 || maxSlewRate >= 1) {
+            throw new IllegalArgumentException("slew rate must be between 0 and 1");
+        }
+        this.nanoTime = nanoTime;
+        this.baseNanos = nanoTime.getAsLong();
+        this.maxSlewRate = maxSlewRate;
+        this.stepThresholdNanos = stepThresholdNanos;
+        long offset = referenceMillis * NANOS_PER_MILLI - elapsed(nanoTime.getAsLong());
+        this.targetOffsetNanos = offset;
+        this.anchor = new Anchor(elapsed(nanoTime.getAsLong()), offset, offset, maxSlewRate);
+    }
+
+    @Override
+    public long now() {
+        long time = timeAt(nanoTime.getAsLong());
+        while (true) {
+            long last = this.last.get();
+            if (time <= last) {
+                // concurrent readers may straddle a new anchor
+                return last;
+            }
+            if (this.last.compareAndSet(last, time)) {
+                return time;
+            }
+        }
+    }
+
+    /**
+     * @return the reference time in milliseconds at the given {@link System#nanoTime()}
+     */
+    public long timeAt(long nanoTime) {
+        long elapsed = elapsed(nanoTime);
+        return Math.floorDiv(elapsed + anchor.offsetAt(elapsed), NANOS_PER_MILLI);
+    }
+
+    /**
+     * Adds a sample of the reference clock read between {@code sentNanos} and {@code receivedNanos}. The first
+     * sample steps the clock in either direction, it is meant to be taken before the clock is read.
+     */
+    public synchronized void sample(long referenceMillis, long sentNanos, long receivedNanos) {
+        long rtt = Math.max(1, receivedNanos - sentNanos);
+        long midpoint = elapsed(sentNanos) + rtt / 2;
+        double sample = referenceMillis * NANOS_PER_MILLI + NANOS_PER_MILLI / 2.0 - midpoint;
+        if (minRttNanos == 0 || rtt < minRttNanos) {
+            minRttNanos = rtt;
+        } else {
+            minRttNanos += Math.max(1, (long) (minRttNanos * MIN_RTT_DECAY));
+        }
+        long now = elapsed(nanoTime.getAsLong());
+        if (!calibrated) {
+            calibrated = true;
+            targetOffsetNanos = sample;
+            anchor = new Anchor(now, (long) sample, (long) sample, maxSlewRate);
+            last.set(Long.MIN_VALUE);
+            return;
+        }
+        double weight = Math.min(1, (double) minRttNanos / rtt);
+        targetOffsetNanos += (sample - targetOffsetNanos) * SAMPLE_GAIN * weight * weight;
+
+        long current = anchor.offsetAt(now);
+        long target = (long) targetOffsetNanos;
+        if (target - current > stepThresholdNanos) {
+            current = target;
+        }
+        anchor = new Anchor(now, current, target, maxSlewRate);
+    }
+
+    /**
+     * @return the offset of the reference clock to the wall clock in milliseconds
+     */
+    public long getOffsetMillis() {
+        return now() - System.currentTimeMillis();
+    }
+
+    /**
+     * @return the part of the last correction that has not been slewed yet
+     */
+    public long getPendingCorrectionNanos() {
+        Anchor anchor = this.anchor;
+        return anchor.targetOffset - anchor.offsetAt(elapsed(nanoTime.getAsLong()));
+    }
+
+    public synchronized long getMinRttNanos() {
+        return minRttNanos;
+    }
+
+    private long elapsed(long nanoTime) {
+        return nanoTime - baseNanos;
+    }
+
+    private static final class Anchor {
+        private final long elapsed;
+        private final long offset;
+        private final long targetOffset;
+        private final double slewRate;
+
+        Anchor(long elapsed, long offset, long targetOffset, double slewRate) {
+            this.elapsed = elapsed;
+            this.offset = offset;
+            this.targetOffset = targetOffset;
+            this.slewRate = slewRate;
+        }
+
+        long offsetAt(long elapsed) {
+            if (offset == targetOffset) {
+                return offset;
+            }
+            long slewed = (long) (Math.max(0, elapsed - this.elapsed) * slewRate);
+            return offset < targetOffset
+                    ? Math.min(targetOffset, offset + slewed)
+                    : Math.max(targetOffset, offset - slewed);
+        }
+    }
+}
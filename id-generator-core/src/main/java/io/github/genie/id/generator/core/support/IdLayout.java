@@ -0,0 +1,239 @@
+package io.github.genie.id.generator.core.support;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * The layout {@code time | sequence | node id} of the ids of a {@link DistributedIdGenerator}, decoding ids
+ * without a generator. The bulk methods decode one column per loop of plain shifts and masks over arrays, which
+ * the JIT compiles to SIMD instructions where the platform has them.
+ */
+public final class IdLayout {
+
+    private final int sequenceBits;
+    private final int nodeIdBits;
+    private final long startStamp;
+    private final long tickMillis;
+    private final int timeShift;
+    private final long sequenceMask;
+    private final long nodeIdMask;
+
+    public IdLayout(int sequenceBits, int nodeIdBits, long startStamp) {
+        this(sequenceBits, nodeIdBits, startStamp, 1);
+    }
+
+    /**
+     * @param tickMillis the milliseconds counted by one unit of the time field, times are the first millisecond
+     *                   of their tick
+     */
+    public IdLayout(int sequenceBits, int nodeIdBits, long startStamp, long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        if (sequenceBits < 0 || sequenceBits > 31 || nodeIdBits < 0 || nodeIdBits > 31
+            || sequenceBits + nodeIdBits > 62) {
+            throw new IllegalArgumentException("sequence and node id bits must be in [0, 31] and leave time bits");
+        }
+        this.sequenceBits = sequenceBits;
+        this.nodeIdBits = nodeIdBits;
+        this.startStamp = startStamp;
+        this.tickMillis = tickMillis;
+        this.timeShift = sequenceBits + nodeIdBits;
+        this.sequenceMask = ~(-1L << sequenceBits);
+        this.nodeIdMask = ~(-1L << nodeIdBits);
+    }
+
+    public long time(long id) {
+        return (id >>> timeShift) * tickMillis + startStamp;
+    }
+
+    public int sequence(long id) {
+        return (int) (id >>> nodeIdBits & sequenceMask);
+    }
+
+    public int nodeId(long id) {
+        return (int) (id & nodeIdMask);
+    }
+
+    public long compose(long time, int sequence, int nodeId) {
+        return Math.floorDiv(time - startStamp, tickMillis) << timeShift | (sequence & sequenceMask) << nodeIdBits | nodeId & nodeIdMask;
+    }
+
+    /**
+     * @return the smallest id whose time is not before {@code time}, the lower bound of a key range scan
+     */
+    public long minId(long time) {
+        long elapsed = time - startStamp;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        long ticks = (elapsed - 1) / tickMillis + 1;
+        if (ticks > Long.MAX_VALUE >>> timeShift) {
+            return Long.MAX_VALUE;
+        }
+        return ticks << timeShift;
+    }
+
+    /**
+     * @return the largest id whose time is not after {@code time}, the upper bound of a key range scan, or -1 if
+     * {@code time} is before the start stamp
+     */
+    public long maxId(long time) {
+        long elapsed = time - startStamp;
+        if (elapsed < 0) {
+            return -1;
+        }
+        long ticks = elapsed / tickMillis;
+        if (ticks >= Long.MAX_VALUE >>> timeShift) {
+            return Long.MAX_VALUE;
+        }
+        return (ticks + 1 << timeShift) - 1;
+    }
+
+    public void times(long[] ids, int off, long[] dst, int dstOff, int len) {
+        checkRanges(ids.length, off, dst.length, dstOff, len);
+        int shift = timeShift;
+        long tick = tickMillis;
+        long start = startStamp;
+        for (int i = 0; i < len; i++) {
+            dst[dstOff + i] = (ids[off + i] >>> shift) * tick + start;
+        }
+    }
+
+    public void sequences(long[] ids, int off, int[] dst, int dstOff, int len) {
+        checkRanges(ids.length, off, dst.length, dstOff, len);
+        int shift = nodeIdBits;
+        long mask = sequenceMask;
+        for (int i = 0; i < len; i++) {
+            dst[dstOff + i] = (int) (ids[off + i] >>> shift & mask);
+        }
+    }
+
+    public void nodeIds(long[] ids, int off, int[] dst, int dstOff, int len) {
+        checkRanges(ids.length, off, dst.length, dstOff, len);
+        long mask = nodeIdMask;
+        for (int i = 0; i < len; i++) {
+            dst[dstOff + i] = (int) (ids[off + i] & mask);
+        }
+    }
+
+    /**
+     * Decodes {@code len} ids into columns, a {@code null} column is skipped.
+     */
+    public void decode(long[] ids, int off, int len, long[] times, int[] sequences, int[] nodeIds) {
+        if (times != null) {
+            times(ids, off, times, 0, len);
+        }
+        if (sequences != null) {
+            sequences(ids, off, sequences, 0, len);
+        }
+        if (nodeIds != null) {
+            nodeIds(ids, off, nodeIds, 0, len);
+        }
+    }
+
+    /**
+     * Decodes the remaining ids into {@code times}, advancing both buffers.
+     */
+    public void times(LongBuffer ids, LongBuffer times) {
+        int len = checkRemaining(ids, times.remaining());
+        if (ids.hasArray() && times.hasArray() && !times.isReadOnly()) {
+            times(ids.array(), ids.arrayOffset() + ids.position(),
+                    times.array(), times.arrayOffset() + times.position(), len);
+            ids.position(ids.position() + len);
+            times.position(times.position() + len);
+        } else {
+            for (int i = 0; i < len; i++) {
+                times.put(time(ids.get()));
+            }
+        }
+    }
+
+    /**
+     * Decodes the remaining ids into {@code sequences}, advancing both buffers.
+     */
+    public void sequences(LongBuffer ids, IntBuffer sequences) {
+        int len = checkRemaining(ids, sequences.remaining());
+        if (ids.hasArray() && sequences.hasArray() && !sequences.isReadOnly()) {
+            sequences(ids.array(), ids.arrayOffset() + ids.position(),
+                    sequences.array(), sequences.arrayOffset() + sequences.position(), len);
+            ids.position(ids.position() + len);
+            sequences.position(sequences.position() + len);
+        } else {
+            for (int i = 0; i < len; i++) {
+                sequences.put(sequence(ids.get()));
+            }
+        }
+    }
+
+    /**
+     * Decodes the remaining ids into {@code nodeIds}, advancing both buffers.
+     */
+    public void nodeIds(LongBuffer ids, IntBuffer nodeIds) {
+        int len = checkRemaining(ids, nodeIds.remaining());
+        if (ids.hasArray() && nodeIds.hasArray() && !nodeIds.isReadOnly()) {
+            nodeIds(ids.array(), ids.arrayOffset() + ids.position(),
+                    nodeIds.array(), nodeIds.arrayOffset() + nodeIds.position(), len);
+            ids.position(ids.position() + len);
+            nodeIds.position(nodeIds.position() + len);
+        } else {
+            for (int i = 0; i < len; i++) {
+                nodeIds.put(nodeId(ids.get()));
+            }
+        }
+    }
+
+    public int getSequenceBits() {
+        return sequenceBits;
+    }
+
+    public int getNodeIdBits() {
+        return nodeIdBits;
+    }
+
+    public long getStartStamp() {
+        return startStamp;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    private static void checkRanges(int length, int off, int dstLength, int dstOff, int len) {
+        if (off < 0 || dstOff < 0 || len < 0 || off > length - len || dstOff > dstLength - len) {
+            throw new IndexOutOfBoundsException("off=" + off + ", dstOff=" + dstOff + ", len=" + len);
+        }
+    }
+
+    private static int checkRemaining(LongBuffer ids, int dstRemaining) {
+        int len = ids.remaining();
+        if (dstRemaining < len) {
+            throw new IndexOutOfBoundsException("remaining " + dstRemaining + " < " + len);
+        }
+        return len;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IdLayout)) {
+            return false;
+        }
+        IdLayout that = (IdLayout) o;
+        return sequenceBits == that.sequenceBits && nodeIdBits == that.nodeIdBits && startStamp == that.startStamp
+               && tickMillis == that.tickMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((31 * sequenceBits + nodeIdBits) * 31 + Long.hashCode(startStamp)) * 31 + Long.hashCode(tickMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "IdLayout{sequenceBits=" + sequenceBits + ", nodeIdBits=" + nodeIdBits
+               + ", startStamp=" + startStamp + ", tickMillis=" + tickMillis + '}';
+    }
+}
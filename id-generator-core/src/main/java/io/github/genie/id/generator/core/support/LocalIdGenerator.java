@@ -1,29 +1,234 @@
 package io.github.genie.id.generator.core.support;
 
 import io.github.genie.id.generator.core.IdGenerator;
+import io.github.genie.id.generator.core.metrics.GeneratorMetrics;
 
+import java.nio.LongBuffer;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 public class LocalIdGenerator implements IdGenerator {
-    private final AtomicLong generator = new AtomicLong();
-    private final int sequenceBits;
-    private final long startStamp;
-    private final Clock clock;
+    static final long OVERFLOW = -1;
+    static final long SEALED = Long.MAX_VALUE;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    final AtomicLong generator = new AtomicLong();
+    final int sequenceBits;
+    final long sequenceMask;
+    final long startStamp;
+    final long tickMillis;
+    final Clock clock;
+    final OverflowPolicy overflowPolicy;
+    final long maxBorrow;
+    final LongAdder borrowed = new LongAdder();
+    final GeneratorMetrics metrics;
+    /**
+     * The first id since the generator last jumped to a new tick, ids are counted for the metrics per jump.
+     */
+    final AtomicLong segmentFirst = new AtomicLong(1);
+    volatile long lastBeforeSeal;
+    /**
+     * The latest clock reading that started a tick. A thread whose own reading is older takes this one, so the
+     * progress of other threads is not mistaken for borrowing.
+     */
+    volatile long observedNow = Long.MIN_VALUE;
 
     public LocalIdGenerator(int sequenceBits, long startStamp, Clock clock) {
+        this(sequenceBits, startStamp, clock, OverflowPolicy.UNBOUNDED);
+    }
+
+    public LocalIdGenerator(int sequenceBits, long startStamp, Clock clock, OverflowPolicy overflowPolicy) {
+        this(sequenceBits, startStamp, clock, overflowPolicy, GeneratorMetrics.NOOP);
+    }
+
+    public LocalIdGenerator(int sequenceBits,
+                            long startStamp,
+                            Clock clock,
+                            OverflowPolicy overflowPolicy,
+                            GeneratorMetrics metrics) {
+        this(sequenceBits, startStamp, clock, overflowPolicy, metrics, 1);
+    }
+
+    /**
+     * @param tickMillis the milliseconds counted by one unit of the time field, a coarser tick makes the time
+     *                   field last {@code tickMillis} times longer
+     */
+    public LocalIdGenerator(int sequenceBits,
+                            long startStamp,
+                            Clock clock,
+                            OverflowPolicy overflowPolicy,
+                            GeneratorMetrics metrics,
+                            long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
         this.sequenceBits = sequenceBits;
+        this.sequenceMask = ~(-1L << sequenceBits);
         this.startStamp = startStamp;
+        this.tickMillis = tickMillis;
         this.clock = clock;
+        this.overflowPolicy = overflowPolicy;
+        this.maxBorrow = overflowPolicy.getMaxBorrowMillis();
+        this.metrics = metrics;
     }
 
     @Override
     public long nextId() {
-        return generator.updateAndGet(this::computeNext);
+        return next(1, false, 0);
+    }
+
+    @Override
+    public long tryNextId(long timeout, TimeUnit unit) {
+        return next(1, true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Reserves up to {@code maxCount} consecutive ids with a single CAS. The range never crosses
+     * the end of the tick of its first id, use {@link #rangeSize(long, int)} to get its length.
+     *
+     * @return the first id of the reserved range
+     */
+    public long nextRange(int maxCount) {
+        if (maxCount <= 0) {
+            throw new IllegalArgumentException("maxCount must be positive");
+        }
+        return next(maxCount, false, 0);
+    }
+
+    public int rangeSize(long first, int maxCount) {
+        long available = sequenceMask - (first & sequenceMask) + 1;
+        return (int) Math.min(available, maxCount);
+    }
+
+    @Override
+    public void fill(long[] dst, int off, int len) {
+        IdGenerator.checkRange(dst.length, off, len);
+        while (len > 0) {
+            long first = nextRange(len);
+            int count = rangeSize(first, len);
+            for (int i = 0; i < count; i++) {
+                dst[off + i] = first + i;
+            }
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void fill(LongBuffer dst) {
+        int len = dst.remaining();
+        while (len > 0) {
+            long first = nextRange(len);
+            int count = rangeSize(first, len);
+            for (int i = 0; i < count; i++) {
+                dst.put(first + i);
+            }
+            len -= count;
+        }
+    }
+
+    private long next(int maxCount, boolean timed, long timeoutNanos) {
+        long now = now();
+        long first = tryReserve(now, maxCount);
+        if (first != OVERFLOW) {
+            return first;
+        }
+        // the clock may have moved on since it was read, only an exhausted sequence of the latest reading counts
+        long later = now();
+        if (later > now) {
+            now = later;
+            first = tryReserve(now, maxCount);
+            if (first != OVERFLOW) {
+                return first;
+            }
+        }
+        if (overflowPolicy.isFailFast() && !timed) {
+            throw new SequenceOverflowException("sequence of " + now + " exhausted");
+        }
+        long start = System.nanoTime();
+        long deadline = start + timeoutNanos;
+        while (true) {
+            long remaining = timed ? deadline - System.nanoTime() : PARK_NANOS;
+            if (remaining <= 0) {
+                metrics.waited(System.nanoTime() - start);
+                return NO_ID;
+            }
+            LockSupport.parkNanos(this, Math.min(remaining, PARK_NANOS));
+            now = now();
+            first = tryReserve(now, maxCount);
+            if (first != OVERFLOW) {
+                metrics.waited(System.nanoTime() - start);
+                return first;
+            }
+        }
+    }
+
+    private long now() {
+        return Math.max(clock.now(), observedNow);
     }
 
-    private long computeNext(long origin) {
-        long now = clock.now();
-        return getTime(origin) >= now ? 1 + origin : (now - startStamp) << sequenceBits;
+    /**
+     * @return the first id of a reserved range, or {@link #OVERFLOW} if it would borrow more than the policy allows
+     */
+    long tryReserve(long now, int maxCount) {
+        while (true) {
+            long origin = generator.get();
+            if (origin == SEALED) {
+                throw new IllegalStateException("generator has been sealed");
+            }
+            long first = computeNext(origin, now);
+            if (isOverflow(first, now)) {
+                return OVERFLOW;
+            }
+            long last = first + rangeSize(first, maxCount) - 1;
+            if (generator.compareAndSet(origin, last)) {
+                if (first != origin + 1) {
+                    onJump(origin, first);
+                }
+                return first;
+            }
+            metrics.casRetry();
+        }
+    }
+
+    /**
+     * Ids between two jumps are consecutive, so counting them once per jump keeps the metrics off the per-id path.
+     * Jumps may publish out of order, the sum is exact once every jump has been published.
+     */
+    void onJump(long origin, long first) {
+        metrics.issued(origin - segmentFirst.getAndSet(first) + 1);
+    }
+
+    boolean isOverflow(long first, long now) {
+        long ahead = getTime(first) - now;
+        if (ahead > 0) {
+            if (ahead > maxBorrow) {
+                return true;
+            }
+            borrowed.increment();
+            if ((first & sequenceMask) == 0) {
+                metrics.borrowed(ahead);
+            }
+        } else if ((first & sequenceMask) == 0 && now > observedNow) {
+            // racing writers may lower it again, which only costs a later reader a stale clock
+            observedNow = now;
+        }
+        return false;
+    }
+
+    long computeNext(long origin, long now) {
+        long tick = getTick(now);
+        return origin >> sequenceBits >= tick ? 1 + origin : tick << sequenceBits;
+    }
+
+    /**
+     * @return the tick {@code now} falls into, counted from the start stamp
+     */
+    long getTick(long now) {
+        long elapsed = now - startStamp;
+        return tickMillis == 1 ? elapsed : Math.floorDiv(elapsed, tickMillis);
     }
 
     public int getSequenceBits() {
@@ -34,11 +239,77 @@ public class LocalIdGenerator implements IdGenerator {
         return startStamp;
     }
 
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
     public Clock getClock() {
         return clock;
     }
 
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public GeneratorMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return how many ids or ranges have been issued ahead of the clock so far
+     */
+    public long getBorrowedCount() {
+        return borrowed.sum();
+    }
+
+    /**
+     * @return the last millisecond of the tick of the latest id issued, including ids borrowed ahead of the clock
+     */
+    public long getLastTime() {
+        long last = generator.get();
+        return getLastTime(last == SEALED ? lastBeforeSeal : last);
+    }
+
+    /**
+     * Stops the generator. Reservations racing with this call either complete before it or fail, later ones
+     * throw {@link IllegalStateException}.
+     *
+     * @return the last millisecond of the tick of the latest id issued
+     */
+    public synchronized long seal() {
+        while (true) {
+            long last = generator.get();
+            if (last == SEALED) {
+                return getLastTime(lastBeforeSeal);
+            }
+            lastBeforeSeal = last;
+            if (generator.compareAndSet(last, SEALED)) {
+                return getLastTime(last);
+            }
+        }
+    }
+
+    /**
+     * @return the first millisecond of the tick of {@code id}
+     */
     public long getTime(long id) {
-        return (id >> sequenceBits) + startStamp;
+        return (id >> sequenceBits) * tickMillis + startStamp;
+    }
+
+    long getLastTime(long id) {
+        return getTime(id) + tickMillis - 1;
+    }
+
+    /**
+     * @return the largest id whose whole tick is not after {@code time}, so a lease expiring at {@code time}
+     * never shares a tick with the ids of a successor
+     */
+    public long getMaxId(long time) {
+        // the last tick ending at or before time, counted without overflowing for an unbounded time
+        long lastTick = Math.floorDiv(time - startStamp - (tickMillis - 1), tickMillis);
+        if (lastTick >= Long.MAX_VALUE >> sequenceBits) {
+            return Long.MAX_VALUE;
+        }
+        return (lastTick + 1 << sequenceBits) - 1;
     }
 }
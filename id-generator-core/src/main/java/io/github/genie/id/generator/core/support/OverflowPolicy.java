@@ -0,0 +1,57 @@
+package io.github.genie.id.generator.core.support;
+
+/**
+ * What a {@link LocalIdGenerator} does when the sequence of the current millisecond is exhausted.
+ */
+public final class OverflowPolicy {
+
+    /**
+     * Borrows sequence space from future milliseconds without limit.
+     */
+    public static final OverflowPolicy UNBOUNDED = new OverflowPolicy(Long.MAX_VALUE, false);
+
+    private final long maxBorrowMillis;
+    private final boolean failFast;
+
+    private OverflowPolicy(long maxBorrowMillis, boolean failFast) {
+        if (maxBorrowMillis < 0) {
+            throw new IllegalArgumentException("maxBorrowMillis must not be negative");
+        }
+        this.maxBorrowMillis = maxBorrowMillis;
+        this.failFast = failFast;
+    }
+
+    /**
+     * Borrows up to {@code maxBorrowMillis} milliseconds ahead of the clock, then waits for the clock.
+     */
+    public static OverflowPolicy borrow(long maxBorrowMillis) {
+        return new OverflowPolicy(maxBorrowMillis, false);
+    }
+
+    /**
+     * Never borrows, waits for the next millisecond instead.
+     */
+    public static OverflowPolicy await() {
+        return new OverflowPolicy(0, false);
+    }
+
+    /**
+     * Never borrows, throws {@link SequenceOverflowException} instead.
+     */
+    public static OverflowPolicy failFast() {
+        return new OverflowPolicy(0, true);
+    }
+
+    public long getMaxBorrowMillis() {
+        return maxBorrowMillis;
+    }
+
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    @Override
+    public String toString() {
+        return "OverflowPolicy{maxBorrowMillis=" + maxBorrowMillis + ", failFast=" + failFast + '}';
+    }
+}
@@ -0,0 +1,7 @@
+package io.github.genie.id.generator.core.support;
+
+public class SequenceOverflowException extends IllegalStateException {
+    public SequenceOverflowException(String message) {
+        super(message);
+    }
+}
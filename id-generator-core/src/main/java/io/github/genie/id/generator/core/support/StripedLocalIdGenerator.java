@@ -0,0 +1,273 @@
+package io.github.genie.id.generator.core.support;
+
+import io.github.genie.id.generator.core.metrics.GeneratorMetrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link LocalIdGenerator} that splits the sequence space of each tick into blocks owned by
+ * padded stripes once CAS failures on the shared state are observed, in the spirit of {@code LongAdder}
+ * cells. Until then it behaves exactly like {@link LocalIdGenerator}.
+ * <p>
+ * Every stripe owns the same block of sequence numbers in every tick, so ids of different stripes
+ * never collide, and each stripe restarts at the current tick so ids stay roughly time ordered
+ * across threads. The switch is one way: the shared state is frozen and stripes start above the last
+ * id it issued.
+ */
+public class StripedLocalIdGenerator extends LocalIdGenerator {
+
+    public static final int DEFAULT_CONTENTION_THRESHOLD = 64;
+    private static final int MIN_BLOCK_BITS = 4;
+    private static final long FROZEN = Long.MIN_VALUE;
+    private static final ThreadLocal<Probe> PROBE = ThreadLocal.withInitial(Probe::new);
+
+    private final int maxStripes;
+    private final int contentionThreshold;
+    private volatile Stripe[] stripes;
+    private long blockMask;
+    private int contention;
+
+    public StripedLocalIdGenerator(int sequenceBits, long startStamp, Clock clock) {
+        this(sequenceBits, startStamp, clock, Runtime.getRuntime().availableProcessors(), DEFAULT_CONTENTION_THRESHOLD);
+    }
+
+    public StripedLocalIdGenerator(int sequenceBits, long startStamp, Clock clock, int maxStripes, int contentionThreshold) {
+        this(sequenceBits, startStamp, clock, OverflowPolicy.UNBOUNDED, maxStripes, contentionThreshold);
+    }
+
+    public StripedLocalIdGenerator(int sequenceBits,
+                                   long startStamp,
+                                   Clock clock,
+                                   OverflowPolicy overflowPolicy,
+                                   int maxStripes,
+                                   int contentionThreshold) {
+        this(sequenceBits, startStamp, clock, overflowPolicy, maxStripes, contentionThreshold, GeneratorMetrics.NOOP);
+    }
+
+    public StripedLocalIdGenerator(int sequenceBits,
+                                   long startStamp,
+                                   Clock clock,
+                                   OverflowPolicy overflowPolicy,
+                                   int maxStripes,
+                                   int contentionThreshold,
+                                   GeneratorMetrics metrics) {
+        this(sequenceBits, startStamp, clock, overflowPolicy, maxStripes, contentionThreshold, metrics, 1);
+    }
+
+    public StripedLocalIdGenerator(int sequenceBits,
+                                   long startStamp,
+                                   Clock clock,
+                                   OverflowPolicy overflowPolicy,
+                                   int maxStripes,
+                                   int contentionThreshold,
+                                   GeneratorMetrics metrics,
+                                   long tickMillis) {
+        super(sequenceBits, startStamp, clock, overflowPolicy, metrics, tickMillis);
+        int limit = 1 << Math.max(0, sequenceBits - MIN_BLOCK_BITS);
+        this.maxStripes = maxStripes <= 1 ? 1 : Math.min(limit, Integer.highestOneBit((maxStripes - 1) << 1));
+        this.contentionThreshold = contentionThreshold;
+    }
+
+    @Override
+    long tryReserve(long now, int maxCount) {
+        while (true) {
+            Stripe[] stripes = this.stripes;
+            if (stripes != null) {
+                return tryReserve(stripes, now, maxCount);
+            }
+            long origin = generator.get();
+            if (origin == SEALED) {
+                throw new IllegalStateException("generator has been sealed");
+            }
+            if (origin != FROZEN) {
+                long first = computeNext(origin, now);
+                if (isOverflow(first, now)) {
+                    return OVERFLOW;
+                }
+                long last = first + super.rangeSize(first, maxCount) - 1;
+                if (generator.compareAndSet(origin, last)) {
+                    if (first != origin + 1) {
+                        onJump(origin, first);
+                    }
+                    return first;
+                }
+                metrics.casRetry();
+                onContention();
+            }
+        }
+    }
+
+    @Override
+    public int rangeSize(long first, int maxCount) {
+        // a range reserved before striping was engaged may be cut short here, which only wastes ids
+        if (stripes == null) {
+            return super.rangeSize(first, maxCount);
+        }
+        long available = blockMask - (first & blockMask) + 1;
+        return (int) Math.min(available, maxCount);
+    }
+
+    @Override
+    public long getLastTime() {
+        while (true) {
+            Stripe[] stripes = this.stripes;
+            if (stripes != null) {
+                long last = Long.MIN_VALUE;
+                for (Stripe stripe : stripes) {
+                    long value = stripe.get();
+                    last = Math.max(last, value == SEALED ? lastBeforeSeal : value);
+                }
+                return getLastTime(last);
+            }
+            long last = generator.get();
+            if (last != FROZEN) {
+                return getLastTime(last == SEALED ? lastBeforeSeal : last);
+            }
+            // the shared state is frozen, the stripes are about to be published
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Freezes the shared state, or every stripe once striping is engaged.
+     */
+    @Override
+    public synchronized long seal() {
+        while (true) {
+            Stripe[] stripes = this.stripes;
+            if (stripes != null) {
+                for (Stripe stripe : stripes) {
+                    seal(stripe);
+                }
+                return getLastTime(lastBeforeSeal);
+            }
+            long last = generator.get();
+            if (last == SEALED) {
+                return getLastTime(lastBeforeSeal);
+            }
+            if (last == FROZEN) {
+                Thread.yield();
+                continue;
+            }
+            lastBeforeSeal = last;
+            if (generator.compareAndSet(last, SEALED)) {
+                return getLastTime(last);
+            }
+        }
+    }
+
+    private void seal(Stripe stripe) {
+        while (true) {
+            long last = stripe.get();
+            if (last == SEALED) {
+                return;
+            }
+            // raised before the stripe is sealed, so getLastTime never misses the ids of a sealed stripe
+            lastBeforeSeal = Math.max(lastBeforeSeal, last);
+            if (stripe.compareAndSet(last, SEALED)) {
+                return;
+            }
+        }
+    }
+
+    public boolean isStriped() {
+        return stripes != null;
+    }
+
+    private long tryReserve(Stripe[] stripes, long now, int maxCount) {
+        int mask = stripes.length - 1;
+        Probe probe = PROBE.get();
+        while (true) {
+            Stripe stripe = stripes[probe.hash & mask];
+            long origin = stripe.get();
+            if (origin == SEALED) {
+                throw new IllegalStateException("generator has been sealed");
+            }
+            long first = computeNext(stripe, origin, now);
+            if (isOverflow(first, now)) {
+                return OVERFLOW;
+            }
+            long last = first + Math.min(blockMask - (first & blockMask), maxCount - 1);
+            if (stripe.compareAndSet(origin, last)) {
+                metrics.issued(last - first + 1);
+                return first;
+            }
+            metrics.casRetry();
+            // moves this thread to another stripe for good, the way LongAdder rehashes its cells
+            probe.advance();
+        }
+    }
+
+    private long computeNext(Stripe stripe, long origin, long now) {
+        long tick = getTick(now);
+        if (origin >> sequenceBits < tick) {
+            return tick << sequenceBits | stripe.block;
+        }
+        long next = origin + 1;
+        if ((next & blockMask) == 0) {
+            // left the block, continue with the same block of the following tick
+            next += sequenceMask + 1 - (blockMask + 1);
+        }
+        return next;
+    }
+
+    private void onContention() {
+        if (maxStripes > 1 && ++contention >= contentionThreshold) {
+            engage();
+        }
+    }
+
+    void engage() {
+        long floor = generator.get();
+        if (floor == FROZEN || floor == SEALED || !generator.compareAndSet(floor, FROZEN)) {
+            return;
+        }
+        // publishes the ids of the shared state, stripes count each reservation
+        onJump(floor, floor + 1);
+        int count = maxStripes;
+        int bits = sequenceBits - Integer.numberOfTrailingZeros(count);
+        long mask = ~(-1L << bits);
+        long tick = floor & ~sequenceMask;
+        Stripe[] stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            long block = (long) i << bits;
+            // the last slot of the block in the floor's tick, so every stripe starts above the floor
+            stripes[i] = new Stripe(block, tick | block | mask);
+        }
+        this.blockMask = mask;
+        this.stripes = stripes;
+    }
+
+    /**
+     * The stripe a thread starts at, seeded from its id and rehashed whenever a CAS on the stripe fails.
+     */
+    static final class Probe {
+        int hash;
+
+        Probe() {
+            long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+            int hash = (int) (h ^ (h >>> 32));
+            // xorshift never leaves zero
+            this.hash = hash == 0 ? 1 : hash;
+        }
+
+        void advance() {
+            int h = hash;
+            h ^= h << 13;
+            h ^= h >>> 17;
+            h ^= h << 5;
+            hash = h;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static final class Stripe extends AtomicLong {
+        final long block;
+        long p1, p2, p3, p4, p5, p6, p7;
+
+        Stripe(long block, long initialValue) {
+            super(initialValue);
+            this.block = block;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package io.github.genie.id.generator.core.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Clock} that serves a cached time, refreshed from a source clock by a background ticker thread
+ * once per tick. Reads are a single volatile load, never go backwards, and lag the source by at most one
+ * tick while the ticker thread is scheduled. A watchdog thread marks the cached time stale once the ticker
+ * has not ticked for the staleness bound, reads then go to the source until the ticker catches up. After
+ * {@link #close()} reads fall through to the source.
+ */
+public class TickingClock extends TickingClockFields implements Clock, AutoCloseable {
+
+    public static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    public static final long DEFAULT_MAX_STALE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long STALE = 1;
+    private static final AtomicLongFieldUpdater<TickingClockValue> STATE =
+            AtomicLongFieldUpdater.newUpdater(TickingClockValue.class, "state");
+
+    private final Clock source;
+    private final long tickNanos;
+    private final long maxStaleNanos;
+    private final Thread ticker;
+    private final Thread watchdog;
+    private volatile long tickedNanos;
+    private volatile boolean running = true;
+
+    public TickingClock(Clock source) {
+        this(source, DEFAULT_TICK_NANOS);
+    }
+
+    public TickingClock(Clock source, long tickNanos) {
+        this(source, tickNanos, Math.max(DEFAULT_MAX_STALE_NANOS, 2 * tickNanos));
+    }
+
+    /**
+     * @param maxStaleNanos how long the ticker may miss its ticks before reads go to the source
+     */
+    public TickingClock(Clock source, long tickNanos, long maxStaleNanos) {
+        this.source = source;
+        this.tickNanos = tickNanos;
+        this.maxStaleNanos = maxStaleNanos;
+        this.state = source.now() << 1;
+        this.tickedNanos = System.nanoTime();
+        this.ticker = new Thread(this::tick, "id-generator-clock-ticker");
+        ticker.setDaemon(true);
+        ticker.setPriority(Thread.MAX_PRIORITY);
+        this.watchdog = new Thread(this::watch, "id-generator-clock-watchdog");
+        watchdog.setDaemon(true);
+        ticker.start();
+        watchdog.start();
+    }
+
+    @Override
+    public long now() {
+        // the time and the stale mark share a word, so a fresh time is one load
+        long current = state;
+        if ((current & STALE) == 0) {
+            return current >> 1;
+        }
+        return advance(STALE);
+    }
+
+    private void tick() {
+        try {
+            while (running) {
+                advance(0);
+                tickedNanos = System.nanoTime();
+                LockSupport.parkNanos(this, tickNanos);
+            }
+        } finally {
+            running = false;
+            markStale();
+        }
+    }
+
+    private void watch() {
+        while (running) {
+            LockSupport.parkNanos(this, maxStaleNanos / 2);
+            if (running && System.nanoTime() - tickedNanos > maxStaleNanos) {
+                markStale();
+            }
+        }
+    }
+
+    /**
+     * Moves the time up to the source, keeping it where it is if the source is behind, and sets the stale
+     * mark to {@code mark}. Only the ticker clears the mark.
+     */
+    private long advance(long mark) {
+        long now = source.now();
+        while (true) {
+            long current = state;
+            long time = Math.max(current >> 1, now);
+            if (mark == STALE && (current & STALE) == 0) {
+                // the ticker caught up in the meantime
+                return current >> 1;
+            }
+            if (STATE.compareAndSet(this, current, time << 1 | mark)) {
+                return time;
+            }
+        }
+    }
+
+    private void markStale() {
+        while (true) {
+            long current = state;
+            if ((current & STALE) != 0 || STATE.compareAndSet(this, current, current | STALE)) {
+                return;
+            }
+        }
+    }
+
+    public Clock getSource() {
+        return source;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(ticker);
+        LockSupport.unpark(watchdog);
+        // the ticker marks the time stale on its way out, reads after close go to the source
+        boolean interrupted = false;
+        while (ticker.isAlive()) {
+            try {
+                ticker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+@SuppressWarnings("unused")
+abstract class TickingClockPadding {
+    long p1, p2, p3, p4, p5, p6, p7;
+}
+
+abstract class TickingClockValue extends TickingClockPadding {
+    /**
+     * The cached time shifted left by one, the low bit set while it is stale.
+     */
+    volatile long state;
+}
+
+@SuppressWarnings("unused")
+abstract class TickingClockFields extends TickingClockValue {
+    long p9, p10, p11, p12, p13, p14, p15;
+}
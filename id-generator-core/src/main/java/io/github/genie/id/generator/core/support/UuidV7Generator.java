@@ -0,0 +1,162 @@
+package io.github.genie.id.generator.core.support;
+
+import io.github.genie.id.generator.core.IdGenerator;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Issues RFC 9562 version 7 UUIDs built from the ids of a leased generator:
+ * <pre>
+ * unix_ts_ms (48) | ver (4) | sequence and node id, high 12 bits | var (2) | the remaining bits | random
+ * </pre>
+ * The time of an id becomes the timestamp and its sequence and node id bits follow it, so UUIDs are unique
+ * wherever the ids are, sort by time, and keep the order of the ids of one node. The random bits come from
+ * {@link ThreadLocalRandom}, they make UUIDs harder to guess but are no secret.
+ * <p>
+ * The hot path writes the two halves of each UUID into caller-supplied {@code long[]} pairs or a
+ * {@link ByteBuffer} without allocating.
+ */
+public final class UuidV7Generator {
+
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final int RAND_A_BITS = 12;
+    private static final int RAND_B_BITS = 62;
+    private static final int UUID_BYTES = 16;
+    private static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[256]);
+
+    private final IdGenerator ids;
+    private final IdLayout layout;
+    private final int randAShift;
+    private final long restMask;
+    private final int restShift;
+    private final long randomMask;
+
+    public UuidV7Generator(DistributedIdGenerator generator) {
+        this(generator, generator.getLayout());
+    }
+
+    /**
+     * @param ids    issues the ids, such as an {@link io.github.genie.id.generator.core.auto.AutoConfigurableIdGenerator}
+     * @param layout the layout of the ids, with at least 12 sequence and node id bits in total
+     */
+    public UuidV7Generator(IdGenerator ids, IdLayout layout) {
+        int payloadBits = layout.getSequenceBits() + layout.getNodeIdBits();
+        if (payloadBits < RAND_A_BITS) {
+            throw new IllegalArgumentException("layout has " + payloadBits + " sequence and node id bits, below "
+                                               + RAND_A_BITS);
+        }
+        this.ids = ids;
+        this.layout = layout;
+        this.randAShift = payloadBits - RAND_A_BITS;
+        this.restMask = ~(-1L << randAShift);
+        this.restShift = RAND_B_BITS - randAShift;
+        this.randomMask = ~(-1L << restShift);
+    }
+
+    /**
+     * Writes the most and least significant bits of the next UUID to {@code dst[off]} and {@code dst[off + 1]}.
+     */
+    public void next(long[] dst, int off) {
+        IdGenerator.checkRange(dst.length, off, 2);
+        long id = ids.nextId();
+        dst[off] = mostSignificantBits(id);
+        dst[off + 1] = leastSignificantBits(id, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Writes {@code count} UUIDs as pairs of most and least significant bits from {@code dst[off]} on, reserving
+     * their ids in batches.
+     */
+    public void fill(long[] dst, int off, int count) {
+        if (off < 0 || count < 0 || off > dst.length || count > (dst.length - off) >> 1) {
+            throw new IndexOutOfBoundsException("off=" + off + ", count=" + count + ", length=" + dst.length);
+        }
+        // the ids go to the upper half, pair i overwrites no id after the i-th
+        int from = off + count;
+        ids.fill(dst, from, count);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < count; i++) {
+            long id = dst[from + i];
+            dst[off + 2 * i] = mostSignificantBits(id);
+            dst[off + 2 * i + 1] = leastSignificantBits(id, random);
+        }
+    }
+
+    /**
+     * Puts the 16 bytes of the next UUID in network byte order, whatever the order of {@code dst}.
+     *
+     * @throws BufferOverflowException if fewer than 16 bytes remain
+     */
+    public void next(ByteBuffer dst) {
+        if (dst.remaining() < UUID_BYTES) {
+            throw new BufferOverflowException();
+        }
+        long id = ids.nextId();
+        put(dst, mostSignificantBits(id), leastSignificantBits(id, ThreadLocalRandom.current()));
+    }
+
+    /**
+     * Puts {@code count} UUIDs of 16 bytes each in network byte order, reserving their ids in batches.
+     *
+     * @throws BufferOverflowException if fewer than {@code 16 * count} bytes remain, before writing any
+     */
+    public void fill(ByteBuffer dst, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        if (dst.remaining() / UUID_BYTES < count) {
+            throw new BufferOverflowException();
+        }
+        long[] scratch = SCRATCH.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (count > 0) {
+            int n = Math.min(count, scratch.length);
+            ids.fill(scratch, 0, n);
+            for (int i = 0; i < n; i++) {
+                long id = scratch[i];
+                put(dst, mostSignificantBits(id), leastSignificantBits(id, random));
+            }
+            count -= n;
+        }
+    }
+
+    /**
+     * Allocates a {@link UUID}, for callers that need one; the other methods avoid the allocation.
+     */
+    public UUID nextUuid() {
+        long id = ids.nextId();
+        return new UUID(mostSignificantBits(id), leastSignificantBits(id, ThreadLocalRandom.current()));
+    }
+
+    public IdLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return the Unix time in milliseconds of a version 7 UUID
+     */
+    public static long getTime(long mostSignificantBits) {
+        return mostSignificantBits >>> 16;
+    }
+
+    long mostSignificantBits(long id) {
+        return layout.time(id) << 16 | VERSION | id >>> randAShift & 0xFFF;
+    }
+
+    long leastSignificantBits(long id, ThreadLocalRandom random) {
+        return VARIANT | (id & restMask) << restShift | random.nextLong() & randomMask;
+    }
+
+    private static void put(ByteBuffer dst, long mostSignificantBits, long leastSignificantBits) {
+        if (dst.order() == ByteOrder.LITTLE_ENDIAN) {
+            mostSignificantBits = Long.reverseBytes(mostSignificantBits);
+            leastSignificantBits = Long.reverseBytes(leastSignificantBits);
+        }
+        dst.putLong(mostSignificantBits).putLong(leastSignificantBits);
+    }
+}
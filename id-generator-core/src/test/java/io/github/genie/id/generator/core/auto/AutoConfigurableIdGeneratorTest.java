@@ -0,0 +1,150 @@
+package io.github.genie.id.generator.core.auto;
+
+import io.github.genie.id.generator.core.support.Clock;
+import io.github.genie.id.generator.core.support.IdLayout;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AutoConfigurableIdGeneratorTest {
+
+    private static final int SEQUENCE_BITS = 8;
+    private static final int MACHINE_BITS = 4;
+
+    private final AtomicLong time = new AtomicLong(1_000);
+    private final AtomicLong expiry = new AtomicLong(Long.MAX_VALUE / 2);
+    private final AtomicInteger nodeId = new AtomicInteger(3);
+    private final AtomicInteger acquisitions = new AtomicInteger();
+
+    @Test
+    void idsWithinTheLeaseLeaveTheCenterAlone() {
+        AutoConfigurableIdGenerator generator = new AutoConfigurableIdGenerator(new TestCenter());
+        Set<Long> ids = new HashSet<>();
+        // several ticks are borrowed ahead of the clock, all of them within the lease
+        for (int i = 0; i < 10 << SEQUENCE_BITS; i++) {
+            assertTrue(ids.add(generator.nextId()));
+        }
+        generator.fill(new long[100], 0, 100);
+        assertEquals(1, acquisitions.get());
+    }
+
+    @Test
+    void renewedLeaseIsPickedUpAtTheBound() {
+        // the lease ends within the current tick
+        expiry.set(time.get());
+        AutoConfigurableIdGenerator generator = new AutoConfigurableIdGenerator(new TestCenter());
+        long maxId = generator.getIdGenerator().getMaxId(expiry.get());
+        for (int i = 0; i < 1 << SEQUENCE_BITS; i++) {
+            assertTrue(generator.nextId() <= maxId);
+        }
+        assertEquals(1, acquisitions.get());
+
+        expiry.set(time.get() + 1_000);
+        long id = generator.nextId();
+        assertTrue(id > maxId);
+        assertEquals(2, acquisitions.get());
+        for (int i = 0; i < 1 << SEQUENCE_BITS; i++) {
+            generator.nextId();
+        }
+        assertEquals(2, acquisitions.get());
+    }
+
+    @Test
+    void nodeChangeRefreshesTheGenerator() {
+        expiry.set(time.get());
+        AutoConfigurableIdGenerator generator = new AutoConfigurableIdGenerator(new TestCenter());
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 1 << SEQUENCE_BITS; i++) {
+            assertTrue(ids.add(generator.nextId()));
+        }
+
+        nodeId.set(5);
+        expiry.set(time.get() + 60_000);
+        // the id reserved with the previous node id is beyond its lease
+        assertThrows(LeaseExpiredException.class, generator::nextId);
+        long id = generator.nextId();
+        IdLayout layout = generator.getLayout();
+        assertEquals(5, layout.nodeId(id));
+        assertEquals(5, generator.getIdGenerator().getNodeId());
+        // the sequence is kept across the change, the new node starts past the ids of the old one
+        assertTrue(layout.time(id) > time.get());
+        assertTrue(ids.add(id));
+        for (int i = 0; i < 1 << SEQUENCE_BITS; i++) {
+            id = generator.nextId();
+            assertEquals(5, layout.nodeId(id));
+            assertTrue(ids.add(id));
+        }
+    }
+
+    @Test
+    void callsCrossingTheEndOfTheLeaseFail() {
+        expiry.set(time.get());
+        AutoConfigurableIdGenerator generator = new AutoConfigurableIdGenerator(new TestCenter());
+        for (int i = 0; i < 1 << SEQUENCE_BITS; i++) {
+            generator.nextId();
+        }
+        assertThrows(LeaseExpiredException.class, generator::nextId);
+        assertThrows(LeaseExpiredException.class, () -> generator.fill(new long[10], 0, 10));
+
+        // a batch running past the end of the lease fails as a whole
+        AutoConfigurableIdGenerator batch = new AutoConfigurableIdGenerator(new TestCenter());
+        assertThrows(LeaseExpiredException.class, () -> batch.fill(new long[300], 0, 300));
+
+        nodeId.set(-1);
+        AutoConfigurableIdGenerator unleased = new AutoConfigurableIdGenerator(new TestCenter());
+        assertThrows(LeaseExpiredException.class, unleased::nextId);
+    }
+
+    private class TestCenter implements ConfigurationCenter {
+        @Override
+        public Clock clock() {
+            return time::get;
+        }
+
+        /**
+         * @return the node id set by the test, {@code null} for a negative one
+         */
+        @Override
+        public ExpirableNodeId acquireNodeId() {
+            acquisitions.incrementAndGet();
+            int id = nodeId.get();
+            long expiry = AutoConfigurableIdGeneratorTest.this.expiry.get();
+            if (id < 0) {
+                return null;
+            }
+            return new ExpirableNodeId() {
+                @Override
+                public int id() {
+                    return id;
+                }
+
+                @Override
+                public long expiry() {
+                    return expiry;
+                }
+            };
+        }
+
+        @Override
+        public int machineBits() {
+            return MACHINE_BITS;
+        }
+
+        @Override
+        public int sequenceBits() {
+            return SEQUENCE_BITS;
+        }
+
+        @Override
+        public long startStamp() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.genie.id.generator.core.auto;
+
+import io.github.genie.id.generator.core.support.Clock;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachedIdGeneratorTest {
+
+    private static final int SEQUENCE_BITS = 8;
+    private static final int MACHINE_BITS = 4;
+
+    private final AtomicLong time = new AtomicLong(1_000);
+    private final AtomicLong expiry = new AtomicLong(Long.MAX_VALUE / 2);
+
+    @Test
+    void consumersClaimEverySlotOnceAndTheRingRefills() throws Exception {
+        try (CachedIdGenerator cached = new CachedIdGenerator(new TestCenter(), 64, 32)) {
+            awaitSize(cached::size, 64);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    long[] ids = new long[10_000];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = cached.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Future<long[]> result : results) {
+                for (long id : result.get()) {
+                    assertTrue(ids.add(id), "duplicate id " + id);
+                }
+            }
+            executor.shutdown();
+            while (cached.size() > 0) {
+                assertTrue(ids.add(cached.nextId()));
+            }
+            // a call on the empty ring falls back to the generator and wakes the refill thread
+            assertTrue(ids.add(cached.nextId()));
+            awaitSize(cached::size, 64);
+            assertTrue(ids.add(cached.nextId()));
+        }
+    }
+
+    @Test
+    void refillStopsAtTheLeaseExpiry() throws Exception {
+        // the lease ends within the current tick, the ring must not hold ids of later ticks
+        expiry.set(time.get());
+        TestCenter center = new TestCenter();
+        try (CachedIdGenerator cached = new CachedIdGenerator(center, 1024, 512)) {
+            Thread.sleep(50);
+            assertEquals(0, cached.size());
+            long maxId = maxId(center, expiry.get());
+            for (int i = 0; i < 1 << SEQUENCE_BITS; i++) {
+                assertTrue(cached.nextId() <= maxId);
+            }
+            assertThrows(LeaseExpiredException.class, cached::nextId);
+
+            time.addAndGet(10);
+            assertEquals(0, cached.size());
+            assertThrows(LeaseExpiredException.class, cached::nextId);
+
+            // a renewed lease lets the refill thread fill the ring again once a consumer signals it
+            expiry.set(time.get() + 60_000);
+            long first = cached.nextId();
+            awaitSize(cached::size, 1024);
+            long id = cached.nextId();
+            assertNotEquals(first, id);
+            assertTrue(id <= maxId(center, expiry.get()));
+        }
+    }
+
+    @Test
+    void callsFailOnceTheCenterCloses() throws Exception {
+        TestCenter center = new TestCenter();
+        try (CachedIdGenerator cached = new CachedIdGenerator(center, 64, 32)) {
+            awaitSize(cached::size, 64);
+            center.close();
+            // the ring still holds ids, none of them is handed out after the center closed
+            assertThrows(IllegalStateException.class, cached::nextId);
+            cached.refiller.join(TimeUnit.SECONDS.toMillis(5));
+            assertFalse(cached.refiller.isAlive());
+            assertThrows(IllegalStateException.class, cached::nextId);
+        }
+
+        // a cache built on a closed center never starts refilling
+        try (CachedIdGenerator cached = new CachedIdGenerator(center, 64, 32)) {
+            cached.refiller.join(TimeUnit.SECONDS.toMillis(5));
+            assertFalse(cached.refiller.isAlive());
+            assertEquals(0, cached.size());
+            assertThrows(IllegalStateException.class, cached::nextId);
+        }
+    }
+
+    private long maxId(TestCenter center, long expiry) {
+        return new AutoConfigurableIdGenerator(center).getIdGenerator().getMaxId(expiry);
+    }
+
+    private static void awaitSize(IntSupplier size, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (size.getAsInt() != expected) {
+            assertTrue(System.nanoTime() < deadline, "ring holds " + size.getAsInt() + " ids");
+            Thread.sleep(1);
+        }
+    }
+
+    private class TestCenter implements ConfigurationCenter {
+        private final List<AutoConfigurableIdGenerator> attached = new ArrayList<>();
+        private boolean closed;
+
+        @Override
+        public Clock clock() {
+            return time::get;
+        }
+
+        @Override
+        public ExpirableNodeId acquireNodeId() {
+            long expiry = CachedIdGeneratorTest.this.expiry.get();
+            return new ExpirableNodeId() {
+                @Override
+                public int id() {
+                    return 3;
+                }
+
+                @Override
+                public long expiry() {
+                    return expiry;
+                }
+            };
+        }
+
+        @Override
+        public int machineBits() {
+            return MACHINE_BITS;
+        }
+
+        @Override
+        public int sequenceBits() {
+            return SEQUENCE_BITS;
+        }
+
+        @Override
+        public long startStamp() {
+            return 0;
+        }
+
+        @Override
+        public synchronized void attach(AutoConfigurableIdGenerator generator) {
+            if (closed) {
+                throw new IllegalStateException("configuration center has been closed");
+            }
+            attached.add(generator);
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            for (AutoConfigurableIdGenerator generator : attached) {
+                generator.seal();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package io.github.genie.id.generator.core.auto;
+
+import io.github.genie.id.generator.core.IdGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileConfigurationCenterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void centersSharingAFileLeaseDistinctNodeIds() {
+        Path path = dir.resolve("node-ids");
+        try (FileConfigurationCenter first = new FileConfigurationCenter(path, new InitialConfiguration(12, 2));
+             FileConfigurationCenter second = new FileConfigurationCenter(path, new InitialConfiguration(12, 2))) {
+            assertNotEquals(first.acquireNodeId().id(), second.acquireNodeId().id());
+            assertEquals(first.startStamp(), second.startStamp());
+            Set<Long> ids = new HashSet<>();
+            IdGenerator a = first.getIdGenerator("test");
+            IdGenerator b = second.getIdGenerator("test");
+            for (int i = 0; i < 10_000; i++) {
+                assertTrue(ids.add(a.nextId()));
+                assertTrue(ids.add(b.nextId()));
+            }
+        }
+    }
+
+    @Test
+    void allSlotsInUseFails() {
+        Path path = dir.resolve("node-ids");
+        try (FileConfigurationCenter first = new FileConfigurationCenter(path, new InitialConfiguration(12, 0))) {
+            assertEquals(0, first.acquireNodeId().id());
+            assertThrows(IllegalStateException.class,
+                    () -> new FileConfigurationCenter(path, new InitialConfiguration(12, 0)));
+        }
+    }
+
+    @Test
+    void takeOverOfACrashedHolderStartsAfterItsExpiry() throws Exception {
+        Path path = dir.resolve("node-ids");
+        new FileConfigurationCenter(path, new InitialConfiguration(12, 0)).close();
+        // the slot lock of a crashed process is gone, the expiry of its last heartbeat is left
+        long expiry = System.currentTimeMillis() + 2_000;
+        writeExpiry(path, 0, expiry);
+
+        try (FileConfigurationCenter successor = new FileConfigurationCenter(path, new InitialConfiguration(12, 0))) {
+            assertEquals(0, successor.acquireNodeId().id());
+            assertTrue(successor.now() > expiry);
+            AutoConfigurableIdGenerator generator = (AutoConfigurableIdGenerator) successor.getIdGenerator("test");
+            assertTrue(generator.getIdGenerator().getTime(generator.nextId()) > expiry);
+        }
+    }
+
+    @Test
+    void closeLeavesTheLatestIdAsTheFloor() {
+        Path path = dir.resolve("node-ids");
+        long last;
+        try (FileConfigurationCenter center = new FileConfigurationCenter(path, new InitialConfiguration(4, 0))) {
+            AutoConfigurableIdGenerator generator = (AutoConfigurableIdGenerator) center.getIdGenerator("test");
+            long id = 0;
+            // 16 ids a millisecond, most of them are borrowed ahead of the clock
+            for (int i = 0; i < 50_000; i++) {
+                id = generator.nextId();
+            }
+            last = generator.getIdGenerator().getTime(id);
+        }
+        try (FileConfigurationCenter successor = new FileConfigurationCenter(path, new InitialConfiguration(4, 0))) {
+            assertTrue(successor.now() > last);
+        }
+    }
+
+    @Test
+    void mismatchedHeaderFails() {
+        Path path = dir.resolve("node-ids");
+        new FileConfigurationCenter(path, new InitialConfiguration(12, 4)).close();
+        assertThrows(IllegalStateException.class,
+                () -> new FileConfigurationCenter(path, new InitialConfiguration(10, 4)));
+        assertThrows(IllegalStateException.class,
+                () -> new FileConfigurationCenter(path, new InitialConfiguration(12, 4).withTick(Duration.ofMillis(2))));
+        // the file is still usable with its own layout
+        new FileConfigurationCenter(path, new InitialConfiguration(12, 4)).close();
+    }
+
+    private static void writeExpiry(Path path, int nodeId, long expiry) throws Exception {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(Long.BYTES).putLong(0, expiry);
+            channel.write(value, FileConfigurationCenter.slotOffset(nodeId) + FileConfigurationCenter.EXPIRY_OFFSET);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.genie.id.generator.core.auto;
+
+import io.github.genie.id.generator.core.support.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InitialConfigurationTest {
+
+    @Test
+    void copiesKeepEverySetting() {
+        OverflowPolicy policy = OverflowPolicy.borrow(5);
+        InitialConfiguration config = new InitialConfiguration(14, 8, true, policy, Duration.ofSeconds(1))
+                .withNamespaceBits(2)
+                .withNodeBlocks(3)
+                .withCheckpoint(Paths.get("node.checkpoint"))
+                .withShutdownHook()
+                .withTick(Duration.ofMillis(10))
+                .withStriping(4);
+        assertEquals(14, config.getSequenceBits());
+        assertEquals(8, config.getNodeIdBits());
+        assertTrue(config.isTickingClock());
+        assertSame(policy, config.getOverflowPolicy());
+        assertEquals(Duration.ofSeconds(1), config.getLeaseWaitTimeout());
+        assertEquals(KeyLayout.NAMESPACE_BITS, config.getKeyLayout());
+        assertEquals(2, config.getNamespaceBits());
+        assertEquals(3, config.getMaxBlockBits());
+        assertEquals(Paths.get("node.checkpoint"), config.getCheckpointPath());
+        assertTrue(config.isShutdownHook());
+        assertEquals(10, config.getTickMillis());
+        assertEquals(4, config.getMaxStripes());
+
+        InitialConfiguration perKey = config.withLeasePerKey();
+        assertEquals(KeyLayout.LEASE_PER_KEY, perKey.getKeyLayout());
+        assertEquals(0, perKey.getNamespaceBits());
+        assertEquals(3, perKey.getMaxBlockBits());
+        assertEquals(10, perKey.getTickMillis());
+    }
+
+    @Test
+    void builderStartsFromTheDefaults() {
+        InitialConfiguration config = InitialConfiguration.builder().build();
+        InitialConfiguration defaults = new InitialConfiguration();
+        assertEquals(defaults.getSequenceBits(), config.getSequenceBits());
+        assertEquals(defaults.getNodeIdBits(), config.getNodeIdBits());
+        assertFalse(config.isTickingClock());
+        assertSame(OverflowPolicy.UNBOUNDED, config.getOverflowPolicy());
+        assertEquals(Duration.ZERO, config.getLeaseWaitTimeout());
+        assertEquals(KeyLayout.SHARED, config.getKeyLayout());
+        assertEquals(1, config.getTickMillis());
+        assertEquals(1, config.getMaxStripes());
+    }
+
+    @Test
+    void invalidSettingsFail() {
+        InitialConfiguration.Builder builder = InitialConfiguration.builder().nodeIdBits(4);
+        assertThrows(IllegalArgumentException.class, () -> builder.namespaceBits(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.nodeBlocks(-1));
+        assertThrows(IllegalArgumentException.class, () -> builder.striping(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.tick(Duration.ofNanos(1_500_000)));
+        assertThrows(IllegalArgumentException.class, () -> builder.nodeBlocks(5).build());
+        assertThrows(IllegalArgumentException.class, () -> new InitialConfiguration(12, 4).withNodeBlocks(5));
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.genie.id.generator.core.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HybridClockTest {
+
+    private static final long START_NANOS = 5_000_000_000L;
+    private static final long START_MILLIS = 1_700_000_000_000L;
+    private static final long RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong nanos = new AtomicLong(START_NANOS);
+    private final HybridClock clock = new HybridClock(START_MILLIS, HybridClock.DEFAULT_MAX_SLEW_RATE,
+            HybridClock.DEFAULT_STEP_THRESHOLD_NANOS, nanos::get);
+
+    @Test
+    void stepsForwardCorrectionsAboveTheThreshold() {
+        sample(0);
+        assertOffset(0);
+        // half of the difference is taken over per sample, 500 ms is above the 128 ms threshold
+        sample(1000);
+        assertOffset(500);
+        assertEquals(0, clock.getPendingCorrectionNanos());
+    }
+
+    @Test
+    void slewsForwardCorrectionsAtTheMaxRate() {
+        sample(0);
+        sample(100);
+        assertOffset(0);
+        advance(TimeUnit.SECONDS.toNanos(10));
+        // 500 ppm of 10 s
+        assertOffset(5);
+        advance(TimeUnit.SECONDS.toNanos(100));
+        assertOffset(50);
+        assertEquals(0, clock.getPendingCorrectionNanos());
+    }
+
+    @Test
+    void slewsBackwardCorrectionsWithoutGoingBack() {
+        sample(0);
+        sample(-100);
+        long previous = clock.now();
+        for (int i = 0; i < 200_000; i++) {
+            advance(TimeUnit.MILLISECONDS.toNanos(1));
+            long time = clock.now();
+            assertTrue(time >= previous, time + " is before " + previous);
+            assertTrue(time - previous <= 1);
+            previous = time;
+        }
+        assertOffset(-50);
+        assertEquals(0, clock.getPendingCorrectionNanos());
+    }
+
+    @Test
+    void readersNeverSeeTheClockGoBack() {
+        sample(0);
+        advance(TimeUnit.MILLISECONDS.toNanos(10));
+        long time = clock.now();
+        // a reader that took its nano time before the latest one
+        nanos.addAndGet(-TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(time, clock.now());
+        assertEquals(time - 5, clock.timeAt(nanos.get()));
+    }
+
+    @Test
+    void convergesOnAConstantOffset() {
+        sample(0);
+        for (int i = 0; i < 20; i++) {
+            sample(100);
+            advance(TimeUnit.SECONDS.toNanos(1));
+        }
+        // a slow round trip barely moves the target
+        sampleWithRtt(300, 20 * RTT_NANOS);
+        advance(TimeUnit.SECONDS.toNanos(300));
+        assertOffset(100);
+        assertEquals(0, clock.getPendingCorrectionNanos());
+    }
+
+    private void sample(long offsetMillis) {
+        sampleWithRtt(offsetMillis, RTT_NANOS);
+    }
+
+    /**
+     * Reads a reference clock running {@code offsetMillis} ahead of the start time plus the elapsed nano time.
+     */
+    private void sampleWithRtt(long offsetMillis, long rttNanos) {
+        long sent = nanos.get();
+        long received = advance(rttNanos);
+        clock.sample(reference(sent + rttNanos / 2) + offsetMillis, sent, received);
+    }
+
+    private void assertOffset(long offsetMillis) {
+        long offset = clock.now() - reference(nanos.get());
+        assertTrue(Math.abs(offset - offsetMillis) <= 1, "offset " + offset + " ms, expected " + offsetMillis);
+    }
+
+    private static long reference(long nanoTime) {
+        return START_MILLIS + TimeUnit.NANOSECONDS.toMillis(nanoTime - START_NANOS);
+    }
+
+    private long advance(long delta) {
+        return nanos.addAndGet(delta);
+    }
+}
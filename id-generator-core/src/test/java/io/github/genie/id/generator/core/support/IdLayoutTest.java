@@ -0,0 +1,111 @@
+package io.github.genie.id.generator.core.support;
+
+import io.github.genie.id.generator.core.metrics.GeneratorMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdLayoutTest {
+
+    private static final long START_STAMP = 1_000;
+
+    @Test
+    void decodesTicksOfSeveralMilliseconds() {
+        LocalIdGenerator local = new LocalIdGenerator(8, START_STAMP, () -> 2_345,
+                OverflowPolicy.UNBOUNDED, GeneratorMetrics.NOOP, 10);
+        DistributedIdGenerator generator = new DistributedIdGenerator(local, 4, 5);
+        IdLayout layout = generator.getLayout();
+        assertEquals(10, layout.getTickMillis());
+
+        long[] ids = new long[300];
+        generator.fill(ids, 0, ids.length);
+        long[] times = new long[ids.length];
+        int[] sequences = new int[ids.length];
+        int[] nodeIds = new int[ids.length];
+        layout.decode(ids, 0, ids.length, times, sequences, nodeIds);
+        for (int i = 0; i < ids.length; i++) {
+            // times are the first millisecond of their tick, the 257th id borrows the next tick
+            assertEquals(generator.getTime(ids[i]), times[i]);
+            assertEquals(i < 256 ? 2_340 : 2_350, times[i]);
+            assertEquals(i & 0xff, sequences[i]);
+            assertEquals(5, nodeIds[i]);
+            assertEquals(ids[i], layout.compose(times[i] + 9, sequences[i], nodeIds[i]));
+        }
+        // range bounds cover whole ticks
+        assertTrue(layout.minId(2_331) <= ids[0] && ids[0] < layout.minId(2_341));
+        assertTrue(ids[255] <= layout.maxId(2_349) && layout.maxId(2_349) < ids[256]);
+    }
+
+    @Test
+    void decodesBlocksAsNodeIds() {
+        LocalIdGenerator local = new LocalIdGenerator(8 + 2, START_STAMP, () -> 2_000);
+        DistributedIdGenerator generator = new DistributedIdGenerator(local, 6, 4, 2);
+        IdLayout layout = generator.getLayout();
+        assertEquals(new IdLayout(8, 6, START_STAMP), layout);
+
+        long[] ids = new long[1 << 10];
+        generator.fill(ids, 0, ids.length);
+        Set<Long> decoded = new HashSet<>();
+        for (long id : ids) {
+            int nodeId = layout.nodeId(id);
+            // the block [4, 8) serves as the low bits of the sequence
+            assertTrue(nodeId >= 4 && nodeId < 8, "node id " + nodeId);
+            assertEquals(generator.getTime(id), layout.time(id));
+            assertEquals(id, layout.compose(layout.time(id), layout.sequence(id), nodeId));
+            assertTrue(decoded.add(layout.time(id) << 20 | (long) layout.sequence(id) << 8 | nodeId));
+        }
+        assertEquals(2_000, layout.time(ids[0]));
+        assertEquals(2_000, layout.time(ids[ids.length - 1]));
+    }
+
+    @Test
+    void bufferOverloadsMatchTheArrays() {
+        IdLayout layout = new IdLayout(8, 6, START_STAMP, 10);
+        long[] ids = new long[100];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = layout.compose(START_STAMP + i * 7, i * 3, i);
+        }
+        long[] times = new long[ids.length];
+        int[] sequences = new int[ids.length];
+        int[] nodeIds = new int[ids.length];
+        layout.decode(ids, 0, ids.length, times, sequences, nodeIds);
+
+        // heap buffers starting past their array offset
+        LongBuffer heapIds = LongBuffer.wrap(new long[ids.length + 3], 3, ids.length).slice().put(ids);
+        heapIds.flip();
+        IntBuffer heapSequences = IntBuffer.wrap(new int[ids.length + 2], 2, ids.length).slice();
+        layout.sequences(heapIds, heapSequences);
+        assertEquals(0, heapIds.remaining());
+        assertEquals(0, heapSequences.remaining());
+        assertArrayEquals(sequences, Arrays.copyOfRange(heapSequences.array(), 2, ids.length + 2));
+
+        LongBuffer directIds = ByteBuffer.allocateDirect(ids.length * Long.BYTES).asLongBuffer().put(ids);
+        directIds.flip();
+        IntBuffer directNodeIds = ByteBuffer.allocateDirect(ids.length * Integer.BYTES).asIntBuffer();
+        layout.nodeIds(directIds, directNodeIds);
+        assertEquals(0, directIds.remaining());
+        directNodeIds.flip();
+        int[] decodedNodeIds = new int[ids.length];
+        directNodeIds.get(decodedNodeIds);
+        assertArrayEquals(nodeIds, decodedNodeIds);
+
+        LongBuffer decodedTimes = LongBuffer.allocate(ids.length);
+        layout.times(LongBuffer.wrap(ids), decodedTimes);
+        assertArrayEquals(times, decodedTimes.array());
+
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> layout.sequences(LongBuffer.wrap(ids), IntBuffer.allocate(ids.length - 1)));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> layout.nodeIds(LongBuffer.wrap(ids), IntBuffer.allocate(ids.length - 1)));
+    }
+}
@@ -0,0 +1,161 @@
+package io.github.genie.id.generator.core.support;
+
+import io.github.genie.id.generator.core.IdGenerator;
+import io.github.genie.id.generator.core.metrics.GeneratorMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalIdGeneratorTest {
+
+    @Test
+    void maxIdCoversWholeTicksOnly() {
+        LocalIdGenerator generator = new LocalIdGenerator(12, 1_000, () -> 2_000,
+                OverflowPolicy.UNBOUNDED, GeneratorMetrics.NOOP, 10);
+        // the tick [1090, 1100) ends at 1099
+        assertEquals((10L << 12) - 1, generator.getMaxId(1_099));
+        assertEquals((10L << 12) - 1, generator.getMaxId(1_108));
+        assertEquals((11L << 12) - 1, generator.getMaxId(1_109));
+    }
+
+    @Test
+    void maxIdOfUnboundedLeaseDoesNotOverflow() {
+        LocalIdGenerator generator = new LocalIdGenerator(12, 1_000, Clock.DEFAULT);
+        assertEquals(Long.MAX_VALUE, generator.getMaxId(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, new DistributedIdGenerator(generator, 10, 3).getMaxId(Long.MAX_VALUE));
+    }
+
+    @Test
+    void failFastThrowsOnceTheSequenceIsExhausted() {
+        LocalIdGenerator generator = new LocalIdGenerator(2, 0, () -> 100, OverflowPolicy.failFast());
+        for (int i = 0; i < 4; i++) {
+            assertEquals((100L << 2) + i, generator.nextId());
+        }
+        SequenceOverflowException e = assertThrows(SequenceOverflowException.class, generator::nextId);
+        assertEquals("sequence of 100 exhausted", e.getMessage());
+        assertEquals(0, generator.getBorrowedCount());
+    }
+
+    @Test
+    void staleClockReadingIsNotTakenForBorrowing() {
+        // a thread that read the clock before another one moved the generator to the next tick
+        AtomicInteger reads = new AtomicInteger();
+        LocalIdGenerator generator = new LocalIdGenerator(12, 0, () -> reads.getAndIncrement() == 0 ? 101 : 100,
+                OverflowPolicy.failFast());
+        assertEquals(101L << 12, generator.nextId());
+        assertEquals((101L << 12) + 1, generator.nextId());
+        assertEquals(0, generator.getBorrowedCount());
+    }
+
+    @Test
+    void awaitWaitsForTheNextTick() {
+        AtomicInteger reads = new AtomicInteger();
+        LocalIdGenerator generator = new LocalIdGenerator(2, 0, () -> reads.incrementAndGet() < 20 ? 100 : 101,
+                OverflowPolicy.await());
+        for (int i = 0; i < 4; i++) {
+            generator.nextId();
+        }
+        assertEquals(101L << 2, generator.nextId());
+        assertTrue(reads.get() >= 20);
+        assertEquals(0, generator.getBorrowedCount());
+    }
+
+    @Test
+    void borrowStopsAtItsLimit() {
+        LocalIdGenerator generator = new LocalIdGenerator(2, 0, () -> 100, OverflowPolicy.borrow(2));
+        long last = 0;
+        for (int i = 0; i < 12; i++) {
+            last = generator.nextId();
+        }
+        assertEquals((103L << 2) - 1, last);
+        assertEquals(102, generator.getTime(last));
+        assertEquals(8, generator.getBorrowedCount());
+        // the policy waits beyond the limit rather than failing
+        long start = System.nanoTime();
+        assertEquals(IdGenerator.NO_ID, generator.tryNextId(20, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    void tryNextIdOfFailFastTimesOutInsteadOfThrowing() {
+        LocalIdGenerator generator = new LocalIdGenerator(0, 0, () -> 100, OverflowPolicy.failFast());
+        assertEquals(100, generator.nextId());
+        assertEquals(IdGenerator.NO_ID, generator.tryNextId(1, TimeUnit.MILLISECONDS));
+        assertThrows(SequenceOverflowException.class, generator::nextId);
+    }
+
+    @Test
+    void rangesStopAtTheEndOfTheirTick() {
+        LocalIdGenerator generator = new LocalIdGenerator(4, 0, () -> 100);
+        long first = generator.nextRange(10);
+        assertEquals(100L << 4, first);
+        assertEquals(10, generator.rangeSize(first, 10));
+        // six ids are left in the tick
+        first = generator.nextRange(10);
+        assertEquals((100L << 4) + 10, first);
+        assertEquals(6, generator.rangeSize(first, 10));
+        first = generator.nextRange(100);
+        assertEquals(101L << 4, first);
+        assertEquals(16, generator.rangeSize(first, 100));
+        assertThrows(IllegalArgumentException.class, () -> generator.nextRange(0));
+    }
+
+    @Test
+    void fillSpansSeveralTicks() {
+        LocalIdGenerator generator = new LocalIdGenerator(4, 0, () -> 100);
+        generator.nextRange(3);
+        // longer than the whole sequence, starting within a tick
+        long[] ids = new long[60];
+        generator.fill(ids, 5, 50);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i < 5 || i >= 55 ? 0 : (100L << 4) + 3 + i - 5, ids[i]);
+        }
+        assertEquals((100L << 4) + 53, generator.nextId());
+    }
+
+    @Test
+    void fillChecksItsBounds() {
+        LocalIdGenerator generator = new LocalIdGenerator(4, 0, () -> 100);
+        long[] ids = new long[10];
+        assertThrows(IndexOutOfBoundsException.class, () -> generator.fill(ids, -1, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> generator.fill(ids, 0, -1));
+        assertThrows(IndexOutOfBoundsException.class, () -> generator.fill(ids, 6, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> generator.fill(ids, Integer.MAX_VALUE, 2));
+        generator.fill(ids, 10, 0);
+        // no id was reserved by the rejected calls
+        assertEquals(100L << 4, generator.nextId());
+    }
+
+    @Test
+    void fillOfBuffersWritesTheirRemaining() {
+        LocalIdGenerator generator = new LocalIdGenerator(4, 0, () -> 100);
+        LongBuffer heap = LongBuffer.allocate(40);
+        heap.position(3).limit(30);
+        generator.fill(heap);
+        assertEquals(30, heap.position());
+        for (int i = 3; i < 30; i++) {
+            assertEquals((100L << 4) + i - 3, heap.get(i));
+        }
+        assertEquals(0, heap.array()[0]);
+        assertEquals(0, heap.array()[30]);
+
+        LongBuffer direct = ByteBuffer.allocateDirect(20 * Long.BYTES).asLongBuffer();
+        generator.fill(direct);
+        assertEquals(20, direct.position());
+        for (int i = 0; i < 20; i++) {
+            assertEquals((100L << 4) + 27 + i, direct.get(i));
+        }
+
+        // nothing remaining reserves nothing
+        generator.fill(direct);
+        assertEquals(20, direct.position());
+        assertEquals((100L << 4) + 47, generator.nextId());
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.genie.id.generator.core.support;
+
+import io.github.genie.id.generator.core.auto.AutoConfigurableIdGenerator;
+import io.github.genie.id.generator.core.auto.ConfigurationCenter;
+import io.github.genie.id.generator.core.auto.ExpirableNodeId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedLocalIdGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_PHASE = 20_000;
+
+    @Test
+    void idsStayUniqueAndTimeOrderedWhileStripingEngages() throws Exception {
+        AtomicLong time = new AtomicLong(1_000);
+        StripedLocalIdGenerator generator = new StripedLocalIdGenerator(20, 0, time::get,
+                OverflowPolicy.UNBOUNDED, THREADS, Integer.MAX_VALUE);
+        // the clock moves past every tick the first phase may have borrowed before the second one starts
+        CyclicBarrier barrier = new CyclicBarrier(THREADS, () -> time.addAndGet(10));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<long[][]>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean engaging = t == 0;
+            results.add(executor.submit(() -> {
+                long[][] phases = new long[2][IDS_PER_PHASE];
+                for (int i = 0; i < IDS_PER_PHASE; i++) {
+                    if (engaging && i == IDS_PER_PHASE / 2) {
+                        generator.engage();
+                    }
+                    phases[0][i] = generator.nextId();
+                }
+                barrier.await();
+                generator.fill(phases[1], 0, IDS_PER_PHASE);
+                return phases;
+            }));
+        }
+        Set<Long> ids = new HashSet<>();
+        long firstPhaseMax = Long.MIN_VALUE;
+        long secondPhaseMin = Long.MAX_VALUE;
+        for (Future<long[][]> result : results) {
+            long[][] phases = result.get();
+            for (long id : phases[0]) {
+                assertTrue(ids.add(id), "duplicate " + id);
+                assertTrue(generator.getTime(id) >= 1_000);
+                firstPhaseMax = Math.max(firstPhaseMax, id);
+            }
+            for (long id : phases[1]) {
+                assertTrue(ids.add(id), "duplicate " + id);
+                assertTrue(generator.getTime(id) >= 1_010);
+                secondPhaseMin = Math.min(secondPhaseMin, id);
+            }
+        }
+        executor.shutdown();
+        assertTrue(generator.isStriped());
+        assertEquals(2 * THREADS * IDS_PER_PHASE, ids.size());
+        assertTrue(firstPhaseMax < secondPhaseMin, firstPhaseMax + " >= " + secondPhaseMin);
+    }
+
+    @Test
+    void sealFreezesEveryStripe() {
+        AtomicLong time = new AtomicLong(1_000);
+        StripedLocalIdGenerator generator = new StripedLocalIdGenerator(12, 0, time::get,
+                OverflowPolicy.UNBOUNDED, 4, Integer.MAX_VALUE);
+        long max = 0;
+        for (int i = 0; i < 100; i++) {
+            max = Math.max(max, generator.nextId());
+        }
+        generator.engage();
+        for (int i = 0; i < 5_000; i++) {
+            max = Math.max(max, generator.nextId());
+        }
+        long lastTime = generator.seal();
+        assertTrue(lastTime >= generator.getTime(max));
+        assertEquals(lastTime, generator.getLastTime());
+        assertEquals(lastTime, generator.seal());
+        assertThrows(IllegalStateException.class, generator::nextId);
+        assertThrows(IllegalStateException.class, () -> generator.fill(new long[8], 0, 8));
+    }
+
+    @Test
+    void sealsBeforeStripingEngages() {
+        StripedLocalIdGenerator generator = new StripedLocalIdGenerator(12, 0, () -> 1_000,
+                OverflowPolicy.UNBOUNDED, 4, Integer.MAX_VALUE);
+        long id = generator.nextId();
+        assertEquals(generator.getTime(id), generator.seal());
+        generator.engage();
+        assertFalse(generator.isStriped());
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+
+    @Test
+    void autoConfigurableGeneratorStripesWhenConfigured() {
+        ConfigurationCenter center = new ConfigurationCenter() {
+            @Override
+            public Clock clock() {
+                return Clock.DEFAULT;
+            }
+
+            @Override
+            public ExpirableNodeId acquireNodeId() {
+                return new ExpirableNodeId() {
+                    @Override
+                    public int id() {
+                        return 5;
+                    }
+
+                    @Override
+                    public long expiry() {
+                        return Long.MAX_VALUE / 2;
+                    }
+                };
+            }
+
+            @Override
+            public int machineBits() {
+                return 10;
+            }
+
+            @Override
+            public int sequenceBits() {
+                return 12;
+            }
+
+            @Override
+            public long startStamp() {
+                return 0;
+            }
+
+            @Override
+            public int maxStripes() {
+                return 4;
+            }
+        };
+        AutoConfigurableIdGenerator generator = new AutoConfigurableIdGenerator(center);
+        assertTrue(generator.getIdGenerator().getLocalIdGenerator() instanceof StripedLocalIdGenerator);
+        assertEquals(5, generator.getLayout().nodeId(generator.nextId()));
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.genie.id.generator.core.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TickingClockTest {
+
+    @Test
+    void readsTheSourceOnceTheCachedTimeIsStale() throws InterruptedException {
+        AtomicLong source = new AtomicLong(1_000);
+        // a ticker that never ticks again stands in for a descheduled one
+        try (TickingClock clock = new TickingClock(source::get, TimeUnit.HOURS.toNanos(1), TimeUnit.HOURS.toNanos(1))) {
+            Thread.sleep(10);
+            source.set(2_000);
+            assertEquals(1_000, clock.now());
+        }
+        try (TickingClock clock = new TickingClock(source::get, TimeUnit.HOURS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1))) {
+            // the watchdog marks the time stale within a few of its checks
+            Thread.sleep(50);
+            source.set(3_000);
+            assertEquals(3_000, clock.now());
+            // never goes backwards
+            source.set(2_500);
+            assertEquals(3_000, clock.now());
+        }
+    }
+
+    @Test
+    void freshReadsLeaveTheSourceAlone() throws InterruptedException {
+        AtomicInteger reads = new AtomicInteger();
+        try (TickingClock clock = new TickingClock(() -> {
+            reads.incrementAndGet();
+            return 1_000;
+        }, TimeUnit.HOURS.toNanos(1), TimeUnit.HOURS.toNanos(1))) {
+            // the constructor and the first tick
+            while (reads.get() < 2) {
+                Thread.sleep(1);
+            }
+            for (int i = 0; i < 1_000; i++) {
+                assertEquals(1_000, clock.now());
+            }
+            assertEquals(2, reads.get());
+        }
+    }
+
+    @Test
+    void fallsThroughToTheSourceOnceClosed() {
+        AtomicLong source = new AtomicLong(1_000);
+        TickingClock clock = new TickingClock(source::get);
+        clock.close();
+        source.set(5_000);
+        assertEquals(5_000, clock.now());
+    }
+}
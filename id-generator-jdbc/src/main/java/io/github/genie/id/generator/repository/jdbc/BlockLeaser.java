@@ -0,0 +1,122 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import io.github.genie.id.generator.core.auto.AutoConfigurableIdGenerator;
+import io.github.genie.id.generator.core.auto.ExpirableNodeId;
+import io.github.genie.id.generator.core.log.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sizes the block of node ids of the process lease of a {@link JdbcConfigurationCenter}: grows it while
+ * generators borrow time because they run out of sequence space, and shrinks it again after
+ * {@link JdbcConfigurationCenter#BLOCK_SHRINK_QUIET_RENEWALS} renewals without borrowing. Only called by the
+ * renewal.
+ */
+class BlockLeaser {
+
+    private static final Log log = Log.get(BlockLeaser.class);
+
+    private final JdbcConfigurationCenter center;
+    private final int maxBlockBits;
+    private long lastBorrowed;
+    private int quietRenewals;
+
+    BlockLeaser(JdbcConfigurationCenter center, int maxBlockBits) {
+        this.center = center;
+        this.maxBlockBits = maxBlockBits;
+    }
+
+    boolean isEnabled() {
+        return maxBlockBits > 0;
+    }
+
+    void resize(JdbcConfigurationCenter.Lease lease) {
+        long borrowed = 0;
+        for (AutoConfigurableIdGenerator generator : center.attachedGenerators()) {
+            borrowed += generator.getBorrowedCount();
+        }
+        // counters restart when a generator is replaced after a block change
+        long delta = borrowed >= lastBorrowed ? borrowed - lastBorrowed : borrowed;
+        lastBorrowed = borrowed;
+        int blockBits = lease.machineId.blockBits();
+        if (delta > 0) {
+            quietRenewals = 0;
+            if (blockBits < maxBlockBits) {
+                acquireBlock(lease, blockBits + 1);
+            }
+        } else if (++quietRenewals >= JdbcConfigurationCenter.BLOCK_SHRINK_QUIET_RENEWALS && blockBits > 0) {
+            quietRenewals = 0;
+            acquireBlock(lease, blockBits - 1);
+        }
+    }
+
+    /**
+     * Leases an aligned block of {@code 2^blockBits} free or expired node ids in one transaction. The block never
+     * overlaps the current one, whose rows are left to expire, so generators of both blocks can run side by side:
+     * a generator moves to the new block once its ids reach the end of the old lease. Closing releases both.
+     *
+     * @return whether the lease moved to a new block
+     */
+    boolean acquireBlock(JdbcConfigurationCenter.Lease lease, int blockBits) {
+        AtomicBoolean acquired = new AtomicBoolean();
+        int maxId = center.maxId;
+        int expirySeconds = center.expirySeconds;
+        lease.lock.lock();
+        try {
+            ExpirableNodeId current = lease.machineId;
+            center.doInTransaction(connection -> {
+                long sent = System.nanoTime();
+                Map<Integer, Record> records = new HashMap<>();
+                for (Record record : center.getRecords(connection, maxId)) {
+                    records.put(record.getId(), record);
+                }
+                int size = 1 << blockBits;
+                for (int first = 0; first + size - 1 <= maxId; first += size) {
+                    if (overlaps(current, first, size) || !isFree(records, first, size)) {
+                        continue;
+                    }
+                    for (int id = first; id < first + size; id++) {
+                        Record record = records.get(id);
+                        boolean claimed = record == null
+                                ? center.insertRecord(connection, id, lease.key, expirySeconds)
+                                : center.renewTtl(connection, id, record.getKey(), lease.key, expirySeconds);
+                        if (!claimed) {
+                            connection.rollback();
+                            return;
+                        }
+                    }
+                    center.updateClock(lease, first, blockBits, sent);
+                    acquired.set(true);
+                    return;
+                }
+            });
+        } finally {
+            lease.lock.unlock();
+        }
+        if (acquired.get()) {
+            log.debug(() -> "leased node ids " + lease.machineId.id() + "+" + (1 << blockBits));
+        }
+        return acquired.get();
+    }
+
+    private static boolean overlaps(ExpirableNodeId current, int first, int size) {
+        if (current == null) {
+            return false;
+        }
+        int currentFirst = current.id();
+        int currentSize = 1 << current.blockBits();
+        return first < currentFirst + currentSize && currentFirst < first + size;
+    }
+
+    private static boolean isFree(Map<Integer, Record> records, int first, int size) {
+        for (int id = first; id < first + size; id++) {
+            Record record = records.get(id);
+            if (record != null && !record.isExpired()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
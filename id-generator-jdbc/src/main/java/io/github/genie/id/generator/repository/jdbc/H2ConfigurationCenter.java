@@ -0,0 +1,265 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import io.github.genie.id.generator.core.auto.InitialConfiguration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class H2ConfigurationCenter extends JdbcConfigurationCenter {
+
+    public H2ConfigurationCenter(ConnectionProvider connectionProvider) {
+        super(connectionProvider, new InitialConfiguration());
+    }
+
+    public H2ConfigurationCenter(ConnectionProvider connectionProvider, InitialConfiguration config) {
+        super(connectionProvider, config);
+    }
+
+    public H2ConfigurationCenter(int maxId,
+                                 String key,
+                                 ConnectionProvider connectionProvider,
+                                 int expirySeconds,
+                                 Duration lockRenewalPeriod,
+                                 ScheduledExecutorService scheduledExecutorService,
+                                 InitialConfiguration config) {
+        super(maxId,
+                key,
+                connectionProvider,
+                expirySeconds,
+                lockRenewalPeriod,
+                scheduledExecutorService,
+                config);
+    }
+
+    public H2ConfigurationCenter(int maxId,
+                                 String key,
+                                 ConnectionProvider connectionProvider,
+                                 int expirySeconds,
+                                 Duration lockRenewalPeriod,
+                                 ScheduledExecutorService scheduledExecutorService,
+                                 InitialConfiguration config,
+                                 Executor startupExecutor) {
+        super(maxId,
+                key,
+                connectionProvider,
+                expirySeconds,
+                lockRenewalPeriod,
+                scheduledExecutorService,
+                config,
+                startupExecutor);
+    }
+
+    public static CompletableFuture<JdbcConfigurationCenter> createAsync(ConnectionProvider connectionProvider,
+                                                                         InitialConfiguration config,
+                                                                         Executor startupExecutor) {
+        return new H2ConfigurationCenter(
+                ~(-1 << config.getNodeIdBits()),
+                RANDOM_KEY,
+                connectionProvider,
+                DEFAULT_EXPIRY_SECONDS,
+                DEFAULT_LOCK_RENEWAL_PERIOD,
+                newService(),
+                config,
+                startupExecutor
+        ).ready();
+    }
+
+    public static void createTables(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists id_generator_lock (" +
+                              "id int primary key," +
+                              "expiry_time timestamp(3) with time zone not null," +
+                              "lock_key varchar(64) not null)");
+            statement.execute("create index if not exists idx_id_generator_lock_expiry_time " +
+                              "on id_generator_lock (expiry_time)");
+            statement.execute("create table if not exists id_generator_config (" +
+                              "id varchar(64) primary key," +
+                              "config varchar(255) not null)");
+        }
+    }
+
+    public long getAwaitTime(Connection connection, int maxId) throws SQLException {
+        String sql = "select datediff(MILLISECOND,current_timestamp,min(expiry_time)) as wait_time " +
+                     "from id_generator_lock where id between 0 and " + maxId;
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet waitTimeResult = statement.executeQuery(sql)) {
+                if (waitTimeResult.next()) {
+                    return waitTimeResult.getLong(1);
+                } else {
+                    throw new IllegalStateException("database not initialized");
+                }
+            }
+        }
+    }
+
+    protected boolean insertRecord(Connection connection, int id, String key, int expirySeconds) throws SQLException {
+        String sql = "merge into id_generator_lock t using (values (cast(? as int))) s(id) on t.id=s.id " +
+                     "when not matched then insert (id,expiry_time,lock_key) " +
+                     "values (s.id,dateadd(SECOND,?,current_timestamp),?)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, id);
+            statement.setInt(2, expirySeconds);
+            statement.setString(3, key);
+            return statement.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * Renews the row held by {@code oldKey}, or recreates it when it is missing, in one statement.
+     */
+    protected boolean renewTtl(Connection connection, int id, String oldKey, String newKey, int expirySeconds) throws SQLException {
+        String sql = "merge into id_generator_lock t using (values (cast(? as int))) s(id) on t.id=s.id " +
+                     "when matched and t.lock_key=? then " +
+                     "update set expiry_time=dateadd(SECOND,?,current_timestamp),lock_key=? " +
+                     "when not matched then insert (id,expiry_time,lock_key) " +
+                     "values (s.id,dateadd(SECOND,?,current_timestamp),?)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, id);
+            statement.setString(2, oldKey);
+            statement.setInt(3, expirySeconds);
+            statement.setString(4, newKey);
+            statement.setInt(5, expirySeconds);
+            statement.setString(6, newKey);
+            return statement.executeUpdate() == 1;
+        }
+    }
+
+    @Override
+    protected Integer insertNextRecord(Connection connection, String key, int expirySeconds) throws SQLException {
+        String sql = "select id from final table (insert into id_generator_lock (id,expiry_time,lock_key) " +
+                     "select x,dateadd(SECOND,?,current_timestamp),? from system_range(0,?) " +
+                     "where not exists (select 1 from id_generator_lock l where l.id=x) order by x limit 1)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, expirySeconds);
+            statement.setString(2, key);
+            statement.setInt(3, maxId);
+            return singleId(statement);
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected Integer takeOverExpiredRecord(Connection connection, int maxId, String key, int expirySeconds)
+            throws SQLException {
+        String sql = "select id from final table (update id_generator_lock " +
+                     "set expiry_time=dateadd(SECOND,?,current_timestamp),lock_key=? " +
+                     "where id=(select min(id) from id_generator_lock " +
+                     "where current_timestamp>expiry_time and id between 0 and ?) " +
+                     "and current_timestamp>expiry_time)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, expirySeconds);
+            statement.setString(2, key);
+            statement.setInt(3, maxId);
+            return singleId(statement);
+        }
+    }
+
+    private static Integer singleId(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getInt(1) : null;
+        }
+    }
+
+    protected Integer getNextId(Connection connection) throws SQLException {
+        String sql = "select ifnull(min(l.id+1),0) as id from id_generator_lock l " +
+                     "left join id_generator_lock r on l.id = r.id-1 where r.id is null and l.id<" + maxId;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            if (resultSet.next()) {
+                return resultSet.getInt(1);
+            } else {
+                return null;
+            }
+        }
+    }
+
+    protected Record getExpiredRecord(Connection connection, int maxId) throws SQLException {
+        String sql = "select id,lock_key from id_generator_lock where id=(select min(id) " +
+                     "from id_generator_lock where current_timestamp>expiry_time and id between 0 and " + maxId + ") " +
+                     "for update";
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            if (resultSet.next()) {
+                return new Record(
+                        resultSet.getInt(1),
+                        resultSet.getString(2)
+                );
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected List<Record> getRecords(Connection connection, int maxId) throws SQLException {
+        String sql = "select id,lock_key,current_timestamp>expiry_time from id_generator_lock where id between 0 and " + maxId + " for update";
+        List<Record> records = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                records.add(new Record(
+                        resultSet.getInt(1),
+                        resultSet.getString(2),
+                        resultSet.getBoolean(3)
+                ));
+            }
+        }
+        return records;
+    }
+
+    @Override
+    protected boolean renewBlock(Connection connection, int firstId, int count, String key, int expirySeconds)
+            throws SQLException {
+        String sql = "update id_generator_lock set expiry_time=dateadd(SECOND,?,current_timestamp) " +
+                     "where id between ? and ? and lock_key=?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, expirySeconds);
+            statement.setInt(2, firstId);
+            statement.setInt(3, firstId + count - 1);
+            statement.setString(4, key);
+            return statement.executeUpdate() == count;
+        }
+    }
+
+    protected long getDbTime(Connection connection) throws SQLException {
+        String sql = "select cast(extract(epoch from current_timestamp(3))*1000 as bigint)";
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            if (resultSet.next()) {
+                return resultSet.getLong(1);
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    @Override
+    protected long getStartTime(Connection connection) {
+        String sql = "select config from id_generator_config where id='time_offset'";
+        try {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(sql)) {
+                if (resultSet.next()) {
+                    return resultSet.getLong(1);
+                } else {
+                    String insertSql = "insert into id_generator_config (id,config) " +
+                                       "values ('time_offset',cast(floor(extract(epoch from current_timestamp))*1000 as bigint))";
+                    statement.executeUpdate(insertSql);
+                    return getStartTime(connection);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+    }
+
+}
@@ -2,25 +2,48 @@ package io.github.genie.id.generator.repository.jdbc;
 
 import io.github.genie.id.generator.core.IdGenerator;
 import io.github.genie.id.generator.core.IdGeneratorFactory;
+import io.github.genie.id.generator.core.async.AsyncIdGenerator;
 import io.github.genie.id.generator.core.auto.AutoConfigurableIdGenerator;
-import io.github.genie.id.generator.core.auto.InitialConfiguration;
 import io.github.genie.id.generator.core.auto.ConfigurationCenter;
 import io.github.genie.id.generator.core.auto.ExpirableNodeId;
+import io.github.genie.id.generator.core.auto.InitialConfiguration;
+import io.github.genie.id.generator.core.auto.KeyLayout;
+import io.github.genie.id.generator.core.auto.NodeCheckpoint;
 import io.github.genie.id.generator.core.log.Log;
+import io.github.genie.id.generator.core.metrics.LeaseMetrics;
+import io.github.genie.id.generator.core.metrics.MetricsRegistry;
 import io.github.genie.id.generator.core.support.Clock;
+import io.github.genie.id.generator.core.support.HybridClock;
+import io.github.genie.id.generator.core.support.OverflowPolicy;
+import io.github.genie.id.generator.core.support.TickingClock;
 import org.jetbrains.annotations.NotNull;
 
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.LockSupport;
@@ -29,11 +52,30 @@ import java.util.concurrent.locks.ReentrantLock;
 public abstract class JdbcConfigurationCenter implements ConfigurationCenter, Clock, IdGeneratorFactory {
 
     public static final int DEFAULT_EXPIRY_SECONDS = 20;
+    private static final String TIME_OFFSET = "time_offset";
+    private static final String TICK_MILLIS = "tick_millis";
     public static final Duration DEFAULT_LOCK_RENEWAL_PERIOD = Duration.ofSeconds(3);
+    public static final int BLOCK_SHRINK_QUIET_RENEWALS = 10;
+    public static final long MIN_RENEWAL_DELAY_MILLIS = 50;
+    public static final long RENEWAL_RETRY_DELAY_MILLIS = 100;
+    /**
+     * How long a renewal waits for the node ids it started acquiring, the acquisitions go on past it.
+     */
+    public static final long ACQUISITION_WAIT_MILLIS = 1000;
+    /**
+     * Round trips of the slowest recent renewal kept free before the lease expires.
+     */
+    public static final int RENEWAL_LATENCY_MARGIN = 4;
+    /**
+     * The expiry a released row is set to, early enough for every dialect and time zone.
+     */
+    protected static final Timestamp RELEASED_EXPIRY = Timestamp.valueOf("1970-01-02 00:00:00");
     protected final Log log = Log.get(JdbcConfigurationCenter.class);
     private final Map<String, IdGenerator> generators = new ConcurrentHashMap<>();
+    private final Map<String, AsyncIdGenerator> asyncGenerators = new ConcurrentHashMap<>();
+    private final List<AutoConfigurableIdGenerator> attached = new CopyOnWriteArrayList<>();
+    private final List<Runnable> leaseListeners = new CopyOnWriteArrayList<>();
 
-    protected volatile ExpirableNodeId machineId;
     protected static final String RANDOM_KEY = randomKey();
 
     protected final int maxId;
@@ -41,13 +83,53 @@ public abstract class JdbcConfigurationCenter implements ConfigurationCenter, Cl
     protected final ConnectionProvider connectionProvider;
     protected final int expirySeconds;
 
-    protected final long dbTimeOffset;
+    protected volatile long dbTimeOffset;
+    protected final HybridClock dbClock = new HybridClock();
 
-    protected final long startStamp;
+    protected volatile long startStamp;
 
-    protected final Lock lock = new ReentrantLock();
+    protected final Lease lease;
+    private final Map<String, Lease> keyedLeases = new ConcurrentHashMap<>();
+    private final AtomicInteger namespaces = new AtomicInteger();
     protected final int machineBits;
     protected final int sequenceBits;
+    protected final long tickMillis;
+    protected volatile Clock clock;
+    protected final OverflowPolicy overflowPolicy;
+    protected final Duration leaseWaitTimeout;
+    protected final KeyLayout keyLayout;
+    protected final int namespaceBits;
+    protected final int maxBlockBits;
+    protected final int maxStripes;
+    protected final MetricsRegistry metricsRegistry;
+    protected final LeaseMetrics leaseMetrics;
+    private final NodeCheckpoint checkpoint;
+    private final NodeCheckpoint.Entry resumed;
+    /**
+     * The earliest time the clock reports, just above the high-water mark of a resumed checkpoint.
+     */
+    protected final long timeFloor;
+    private final RenewalChannel renewalChannel;
+    private final ScheduledExecutorService renewalService;
+    final BlockLeaser blockLeaser;
+    final LeaseRenewer renewer;
+    private final ExecutorService leaseExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "id-generator-lease");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Completes the queued calls of the async generators, their dependent stages must not hold up the renewal.
+     */
+    private final ExecutorService asyncExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "id-generator-async");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CompletableFuture<Void> initialized;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Thread shutdownHook;
+    private final CompletableFuture<JdbcConfigurationCenter> ready;
 
     public JdbcConfigurationCenter(ConnectionProvider connectionProvider, InitialConfiguration config) {
         this(
@@ -57,8 +139,7 @@ public abstract class JdbcConfigurationCenter implements ConfigurationCenter, Cl
                 DEFAULT_EXPIRY_SECONDS,
                 DEFAULT_LOCK_RENEWAL_PERIOD,
                 newService(),
-                config.getNodeIdBits(),
-                config.getSequenceBits()
+                config
         );
     }
 
@@ -70,25 +151,223 @@ public abstract class JdbcConfigurationCenter implements ConfigurationCenter, Cl
                                    ScheduledExecutorService scheduledExecutorService,
                                    int machineBits,
                                    int sequenceBits) {
+        this(maxId,
+                key,
+                connectionProvider,
+                expirySeconds,
+                lockRenewalPeriod,
+                scheduledExecutorService,
+                new InitialConfiguration(sequenceBits, machineBits));
+    }
+
+    public JdbcConfigurationCenter(int maxId,
+                                   String key,
+                                   ConnectionProvider connectionProvider,
+                                   int expirySeconds,
+                                   Duration lockRenewalPeriod,
+                                   ScheduledExecutorService scheduledExecutorService,
+                                   InitialConfiguration config) {
+        this(maxId,
+                key,
+                connectionProvider,
+                expirySeconds,
+                lockRenewalPeriod,
+                scheduledExecutorService,
+                config,
+                Runnable::run);
+        awaitReady();
+    }
+
+    /**
+     * Starts clock calibration, start time loading and lease acquisition on {@code startupExecutor} in parallel,
+     * use {@link #ready()} to find out when the node id is available.
+     */
+    protected JdbcConfigurationCenter(int maxId,
+                                      String key,
+                                      ConnectionProvider connectionProvider,
+                                      int expirySeconds,
+                                      Duration lockRenewalPeriod,
+                                      ScheduledExecutorService scheduledExecutorService,
+                                      InitialConfiguration config,
+                                      Executor startupExecutor) {
         this.maxId = maxId;
-        this.key = key;
-        this.connectionProvider = connectionProvider;
+        this.checkpoint = config.getCheckpointPath() == null ? null : NodeCheckpoint.open(config.getCheckpointPath());
+        this.resumed = checkpoint == null ? null : checkpoint.read();
+        this.key = resumed == null ? key : resumed.getKey();
+        this.timeFloor = resumed == null ? Long.MIN_VALUE : resumed.getHighWaterMillis() + 1;
+        this.lease = new Lease(this.key);
+        this.metricsRegistry = config.getMetricsRegistry();
+        this.leaseMetrics = metricsRegistry.lease(this.key, this::getLeaseRemainingMillis);
+        this.connectionProvider = metricsRegistry == MetricsRegistry.NOOP
+                ? connectionProvider
+                : RoundTripCountingConnections.wrap(connectionProvider, leaseMetrics);
+        this.renewalChannel = new RenewalChannel(this.connectionProvider);
         this.expirySeconds = expirySeconds;
-        this.machineBits = machineBits;
-        this.sequenceBits = sequenceBits;
-        this.dbTimeOffset = getDbTimeOffset();
-        this.startStamp = getStartTime();
-        acquireId();
-        initScheduled(scheduledExecutorService, lockRenewalPeriod);
+        this.machineBits = config.getNodeIdBits();
+        this.sequenceBits = config.getSequenceBits();
+        this.tickMillis = config.getTickMillis();
+        if (tickMillis * 2 > TimeUnit.SECONDS.toMillis(expirySeconds)) {
+            // a lease only covers whole ticks, a tick above half of it leaves too little of the lease usable
+            throw new IllegalArgumentException("tick of " + tickMillis + " ms exceeds half the lease of "
+                                               + expirySeconds + " s");
+        }
+        this.overflowPolicy = config.getOverflowPolicy();
+        this.leaseWaitTimeout = config.getLeaseWaitTimeout();
+        this.keyLayout = config.getKeyLayout();
+        this.namespaceBits = config.getNamespaceBits();
+        this.maxBlockBits = config.getMaxBlockBits();
+        this.maxStripes = config.getMaxStripes();
+        this.clock = this;
+        this.renewalService = scheduledExecutorService;
+        this.blockLeaser = new BlockLeaser(this, maxBlockBits);
+        this.renewer = new LeaseRenewer(this, renewalChannel, scheduledExecutorService, leaseMetrics, blockLeaser);
+        if (config.isShutdownHook()) {
+            this.shutdownHook = new Thread(this::close, "id-generator-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        } else {
+            this.shutdownHook = null;
+        }
+        CompletableFuture<Void> calibration = CompletableFuture.runAsync(() -> {
+            this.dbTimeOffset = getDbTimeOffset();
+            if (config.isTickingClock()) {
+                TickingClock tickingClock = new TickingClock(this);
+                this.clock = tickingClock;
+                if (closed.get()) {
+                    tickingClock.close();
+                }
+            }
+        }, startupExecutor);
+        CompletableFuture<Void> startTime = CompletableFuture.runAsync(() -> this.startStamp = getStartTime(),
+                startupExecutor);
+        this.initialized = CompletableFuture.allOf(calibration, startTime);
+        CompletableFuture<Void> lease = CompletableFuture.runAsync(() -> {
+            resumeLease();
+            acquireId();
+        }, startupExecutor);
+        this.ready = CompletableFuture.allOf(initialized, lease).thenApply(ignored -> {
+            writeCheckpoint(false);
+            renewer.start(lockRenewalPeriod);
+            return this;
+        });
     }
 
+    public CompletableFuture<JdbcConfigurationCenter> ready() {
+        return ready;
+    }
+
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    private void awaitReady() {
+        join(ready);
+    }
+
+    private static void join(CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * In the {@link KeyLayout#LEASE_PER_KEY} layout the first call for a key waits until the key has leased its
+     * node id, calls for other keys go on meanwhile.
+     */
     @Override
     public IdGenerator getIdGenerator(String key) {
-        return generators.computeIfAbsent(key, k -> new AutoConfigurableIdGenerator(this));
+        IdGenerator generator = generators.computeIfAbsent(key, this::newIdGenerator);
+        if (keyLayout == KeyLayout.LEASE_PER_KEY) {
+            Lease keyLease = keyedLeases.get(key);
+            if (keyLease.isExpired()) {
+                join(acquireAsync(keyLease));
+            }
+        }
+        return generator;
     }
-    private void initScheduled(ScheduledExecutorService service, Duration lockRenewalPeriod) {
-        long period = lockRenewalPeriod.toMillis();
-        service.scheduleAtFixedRate(this::keepLock, period, period, TimeUnit.MILLISECONDS);
+
+    private IdGenerator newIdGenerator(String k) {
+        switch (keyLayout) {
+            case LEASE_PER_KEY:
+                // only starts acquiring, a key waiting for a free row must not hold up the map for other keys
+                Lease keyLease = keyedLeases.computeIfAbsent(k, ignored -> new Lease(randomKey()));
+                acquireAsync(keyLease);
+                return new AutoConfigurableIdGenerator(new KeyedConfigurationCenter(keyLease, 0, 0),
+                        metricsRegistry.generator(k));
+            case NAMESPACE_BITS:
+                int namespace = namespaces.getAndIncrement();
+                if (namespace >> namespaceBits != 0) {
+                    throw new IllegalStateException("more than " + (1 << namespaceBits)
+                                                    + " keys need more namespace bits");
+                }
+                return new AutoConfigurableIdGenerator(new KeyedConfigurationCenter(lease, namespace, namespaceBits),
+                        metricsRegistry.generator(k));
+            default:
+                return new AutoConfigurableIdGenerator(this, metricsRegistry.generator(k));
+        }
+    }
+
+    /**
+     * Issues the ids of {@link #getIdGenerator(String)} without blocking, calls made before the center is ready or
+     * while the key holds no node id complete once one is acquired, whatever the lease wait timeout.
+     */
+    public AsyncIdGenerator getAsyncIdGenerator(String key) {
+        return asyncGenerators.computeIfAbsent(key, k -> {
+            // unlike getIdGenerator, does not wait for the lease of a new key
+            IdGenerator idGenerator = generators.computeIfAbsent(k, this::newIdGenerator);
+            Lease keyLease = keyLayout == KeyLayout.LEASE_PER_KEY ? keyedLeases.get(k) : lease;
+            AsyncIdGenerator generator = new AsyncIdGenerator(idGenerator,
+                    () -> isReady() && !keyLease.isExpired(),
+                    renewalService,
+                    asyncExecutor);
+            addLeaseListener(generator::leaseAcquired);
+            ready.thenRun(generator::leaseAcquired);
+            return generator;
+        });
+    }
+
+    /**
+     * Registers a listener called after a node id has been acquired, on the thread that acquired it.
+     */
+    public void addLeaseListener(Runnable listener) {
+        leaseListeners.add(listener);
+    }
+
+    private void fireLeaseAcquired() {
+        for (Runnable listener : leaseListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.error("lease listener failed", e);
+            }
+        }
+    }
+
+    Iterable<Lease> leases() {
+        List<Lease> leases = new ArrayList<>(keyedLeases.size() + 1);
+        leases.add(lease);
+        leases.addAll(keyedLeases.values());
+        return leases;
+    }
+
+    /**
+     * @return the time left on the lease of the process, negative when it holds no node id
+     */
+    public long getLeaseRemainingMillis() {
+        ExpirableNodeId machineId = lease.machineId;
+        return machineId == null ? -1 : Math.max(0, machineId.expiry() - now());
+    }
+
+    /**
+     * @return the smoothed round-trip time of lease renewals
+     */
+    public long getRenewalLatencyNanos() {
+        return renewer.getLatencyNanos();
     }
 
 
@@ -102,117 +381,415 @@ public abstract class JdbcConfigurationCenter implements ConfigurationCenter, Cl
 
     protected abstract Record getExpiredRecord(Connection connection, int maxId) throws SQLException;
 
+    /**
+     * Locks a free or expired row for the lease with {@code key}, which lets dialects spread concurrent claimers.
+     */
+    protected Record getExpiredRecord(Connection connection, int maxId, String key) throws SQLException {
+        return getExpiredRecord(connection, maxId);
+    }
+
     protected abstract long getStartTime(Connection connection);
 
     protected abstract long getDbTime(Connection connection) throws SQLException;
 
+    /**
+     * Locks the rows until the transaction ends, so an owner renewing a row between this snapshot and the claim
+     * waits for the claim and then fails instead of both holding the node id.
+     *
+     * @return all lock rows with ids up to {@code maxId}, flagged whether they have expired
+     */
+    protected abstract List<Record> getRecords(Connection connection, int maxId) throws SQLException;
+
+    protected boolean renewBlock(Connection connection, int firstId, int count, String key, int expirySeconds)
+            throws SQLException {
+        for (int id = firstId; id < firstId + count; id++) {
+            if (!renewTtl(connection, id, key, key, expirySeconds)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 
     public void acquireId() {
-        lock.lock();
+        acquireId(lease);
+    }
+
+    /**
+     * Acquires a node id for the lease, waiting for a row to expire while every id is in use. Gives up once the
+     * center is closed and releases a node id acquired while closing.
+     */
+    protected void acquireId(Lease lease) {
+        boolean acquired = false;
+        lease.lock.lock();
         try {
-            while (isIdExpired()) {
+            while (lease.isExpired() && !closed.get()) {
+                acquired = true;
                 doInTransaction(connection -> {
-                    acquireExistsId(connection);
-                    if (isIdExpired()) {
-                        acquireNewId(connection);
+                    acquireExistsId(connection, lease);
+                    if (lease.isExpired()) {
+                        acquireNewId(connection, lease);
                     }
                 });
-                if (isIdExpired()) {
+                if (lease.isExpired()) {
                     await();
                 }
             }
         } finally {
-            lock.unlock();
+            lease.lock.unlock();
+        }
+        if (closed.get()) {
+            release(lease);
+        } else if (acquired) {
+            fireLeaseAcquired();
+        }
+    }
+
+    /**
+     * Starts acquiring a node id for an expired lease on a thread of its own unless an acquisition of the lease
+     * is running already, so a lease waiting for a free row holds up neither the other leases nor the renewal.
+     *
+     * @return the running acquisition
+     */
+    CompletableFuture<Void> acquireAsync(Lease lease) {
+        synchronized (lease) {
+            CompletableFuture<Void> acquisition = lease.acquisition;
+            if (acquisition != null && !acquisition.isDone()) {
+                return acquisition;
+            }
+            if (closed.get()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            acquisition = CompletableFuture.runAsync(() -> {
+                try {
+                    acquireId(lease);
+                } catch (RuntimeException e) {
+                    log.error("acquire id failed", e);
+                    throw e;
+                }
+            }, leaseExecutor);
+            lease.acquisition = acquisition;
+            return acquisition;
+        }
+    }
+
+    /**
+     * Renews the node id of the checkpoint under its key, which fails only if another process took the row over
+     * after it expired.
+     */
+    private void resumeLease() {
+        NodeCheckpoint.Entry resumed = this.resumed;
+        if (resumed == null || resumed.getNodeId() + (1 << resumed.getBlockBits()) - 1 > maxId) {
+            return;
+        }
+        int id = resumed.getNodeId();
+        int blockBits = resumed.getBlockBits();
+        try {
+            doInTransaction(connection -> {
+                long sent = System.nanoTime();
+                boolean renewed = blockBits == 0
+                        ? renewTtl(connection, id, key, key, expirySeconds)
+                        : renewBlock(connection, id, 1 << blockBits, key, expirySeconds);
+                if (renewed) {
+                    updateClock(lease, id, blockBits, sent);
+                } else {
+                    connection.rollback();
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("resume node id from checkpoint failed", e);
+        }
+        if (!lease.isExpired()) {
+            log.debug(() -> "resumed node id " + id + " from " + checkpoint.getPath());
+            fireLeaseAcquired();
+        }
+    }
+
+    /**
+     * Records the process lease with a high-water mark no id passes before the next write: the latest id of every
+     * generator or, while they still issue ids, the furthest the overflow policy lets them borrow ahead of the
+     * clock within the lease. Under {@link OverflowPolicy#UNBOUNDED} that is the end of the lease, so a restarted
+     * process starts its clock there; a bounded policy keeps it closer to the clock.
+     *
+     * @param sealed whether the generators have been sealed, their latest ids are final then
+     */
+    void writeCheckpoint(boolean sealed) {
+        ExpirableNodeId machineId = lease.machineId;
+        if (checkpoint == null || machineId == null) {
+            return;
+        }
+        long now = now();
+        long highWater = now;
+        if (!sealed) {
+            long maxBorrow = overflowPolicy.getMaxBorrowMillis();
+            long remaining = machineId.expiry() - now;
+            highWater = maxBorrow >= remaining ? Math.max(now, machineId.expiry()) : now + maxBorrow;
+        }
+        for (AutoConfigurableIdGenerator generator : attached) {
+            highWater = Math.max(highWater, generator.getLastTime());
         }
+        checkpoint.write(new NodeCheckpoint.Entry(lease.key, machineId.id(), machineId.blockBits(), highWater));
+        checkpoint.force();
     }
 
     protected boolean isIdExpired() {
-        return machineId == null;
+        return lease.isExpired();
     }
 
-    protected void acquireNewId(Connection connection) throws SQLException {
-        Integer nextId = getNextId(connection);
+    protected void acquireNewId(Connection connection, Lease lease) throws SQLException {
+        long sent = System.nanoTime();
+        Integer nextId = insertNextRecord(connection, lease.key, expirySeconds);
         if (nextId != null) {
-            if (insertRecord(connection, nextId, key, expirySeconds)) {
-                updateClock(nextId);
-            }
+            updateClock(lease, nextId, 0, sent);
         }
     }
 
-    private void updateClock(Integer nextId) {
-        long expiry = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expirySeconds);
-        machineId = new ExpirableMachineIdImpl(nextId, dbServerTime(expiry));
+    /**
+     * Inserts a row for the lowest unused id, dialects override it with a single statement.
+     *
+     * @return the inserted id, or {@code null} when every id is in use or the insert lost a race
+     */
+    protected Integer insertNextRecord(Connection connection, String key, int expirySeconds) throws SQLException {
+        Integer nextId = getNextId(connection);
+        if (nextId != null && insertRecord(connection, nextId, key, expirySeconds)) {
+            return nextId;
+        }
+        return null;
     }
 
-    protected void acquireExistsId(Connection connection) throws SQLException {
-        Record record = getExpiredRecord(connection, maxId);
-        if (record != null) {
-            if (renewTtl(connection, record.getId(), record.getKey(), key, expirySeconds)) {
-                updateClock(record.getId());
-            }
+    /**
+     * Takes over an expired row, dialects override it with a single statement.
+     *
+     * @return the id taken over, or {@code null} when no row has expired or the update lost a race
+     */
+    protected Integer takeOverExpiredRecord(Connection connection, int maxId, String key, int expirySeconds)
+            throws SQLException {
+        Record record = getExpiredRecord(connection, maxId, key);
+        if (record != null && renewTtl(connection, record.getId(), record.getKey(), key, expirySeconds)) {
+            return record.getId();
+        }
+        return null;
+    }
+
+    /**
+     * Counts the expiry from {@code sentNanos}, taken before the statement that set it was sent, so a slow round
+     * trip shortens the local view of the lease instead of extending it past the row's expiry.
+     */
+    void updateClock(Lease lease, int nextId, int blockBits, long sentNanos) {
+        // a lease may be granted before calibration completes during asynchronous startup
+        initialized.join();
+        long expiry = dbClock.timeAt(sentNanos) + TimeUnit.SECONDS.toMillis(expirySeconds);
+        lease.machineId = new ExpirableMachineIdImpl(nextId, expiry, blockBits);
+    }
+
+    protected void acquireExistsId(Connection connection, Lease lease) throws SQLException {
+        long sent = System.nanoTime();
+        Integer id = takeOverExpiredRecord(connection, maxId, lease.key, expirySeconds);
+        if (id != null) {
+            updateClock(lease, id, 0, sent);
         }
     }
 
     protected void await() {
+        long start = System.nanoTime();
         AtomicLong waitTime = new AtomicLong();
         doInConnection(connection -> waitTime.set(getAwaitTime(connection, maxId)));
         if (waitTime.get() > 0) {
             LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(waitTime.get()));
         }
+        leaseMetrics.waited(System.nanoTime() - start);
     }
 
+    /**
+     * Calibrates {@link #dbClock} with a burst of samples of the database time.
+     *
+     * @return the offset of the database time to the wall clock
+     */
     protected long getDbTimeOffset() {
-        AtomicLong result = new AtomicLong();
         doInConnection(connection -> {
-            Long dbTimeOffset = null;
             for (int i = 0; i < 8; i++) {
-                long start = System.currentTimeMillis();
-                long remote = getDbTime(connection);
-                long end = System.currentTimeMillis();
-                long local = (end + start) / 2;
-                long dif = remote - local;
-                if (dbTimeOffset == null || dbTimeOffset < dif) {
-                    dbTimeOffset = dif;
-                }
+                sampleDbTime(connection);
             }
-            result.set(dbTimeOffset);
         });
-        return result.get();
+        return dbClock.getOffsetMillis();
+    }
+
+    protected void sampleDbTime(Connection connection) throws SQLException {
+        long sent = System.nanoTime();
+        long remote = getDbTime(connection);
+        dbClock.sample(remote, sent, System.nanoTime());
     }
 
+    /**
+     * @throws IllegalStateException if the stored tick differs from the configured one
+     */
     public long getStartTime() {
         AtomicLong time = new AtomicLong();
         doInConnection(connection -> {
+            checkTickMillis(connection);
             long startTime = getStartTime(connection);
             time.set(startTime);
         });
         return time.get();
     }
 
-    protected void keepLock() {
-        long start = System.currentTimeMillis();
-        if (!isIdExpired()) {
-            try {
-                doInConnection(connection -> {
-                    if (renewTtl(connection, machineId.id(), key, key, expirySeconds)) {
-                        updateClock(machineId.id());
-                    }
-                });
-            } catch (Exception e) {
-                log.error("renew expiration failed", e);
+    /**
+     * Stores the configured tick beside the start time unless a tick is stored already. A table holding a start
+     * time but no tick predates ticks, its ids count milliseconds.
+     */
+    protected void checkTickMillis(Connection connection) throws SQLException {
+        Long stored = getConfig(connection, TICK_MILLIS);
+        if (stored == null) {
+            long tick = getConfig(connection, TIME_OFFSET) == null ? tickMillis : 1;
+            String sql = "insert into id_generator_config (id,config) values (?,?)";
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, TICK_MILLIS);
+                statement.setString(2, String.valueOf(tick));
+                statement.executeUpdate();
+                stored = tick;
+            } catch (SQLException e) {
+                // another process stored its tick first
+                stored = getConfig(connection, TICK_MILLIS);
+                if (stored == null) {
+                    throw e;
+                }
+            }
+        }
+        if (stored != tickMillis) {
+            throw new IllegalStateException("ids of id_generator_config count ticks of " + stored
+                                            + " ms, configured " + tickMillis + " ms");
+        }
+    }
+
+    private static Long getConfig(Connection connection, String id) throws SQLException {
+        String sql = "select config from id_generator_config where id=?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : null;
             }
         }
-        if (isIdExpired()) {
+    }
+
+    /**
+     * Renews every lease now instead of waiting for the scheduled renewal.
+     *
+     * @return whether every lease could be renewed or acquired
+     */
+    protected boolean keepLock() {
+        return renewer.keepLock();
+    }
+
+    /**
+     * Stops renewal, seals the generators and, once the clock has passed the latest id they issued, expires the
+     * leased rows so that other processes can claim the node ids at once. The checkpoint keeps the lease, a
+     * restart still resumes it unless another process claimed it in between. Generators fail once this returns.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        renewer.stop(this::sealAndRelease);
+        leaseExecutor.shutdownNow();
+        asyncExecutor.shutdown();
+        renewalChannel.close();
+        if (checkpoint != null) {
+            checkpoint.close();
+        }
+        Clock clock = this.clock;
+        if (clock instanceof TickingClock) {
+            ((TickingClock) clock).close();
+        }
+        metricsRegistry.close();
+        if (shutdownHook != null && Thread.currentThread() != shutdownHook) {
             try {
-                acquireId();
-            } catch (Exception e) {
-                log.error("acquire id failed", e);
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // the JVM is shutting down already
+            }
+        }
+    }
+
+    /**
+     * Seals the generators and, once the clock has passed the latest id they issued, expires the leased rows.
+     */
+    private void sealAndRelease() {
+        long lastTime = Long.MIN_VALUE;
+        for (AutoConfigurableIdGenerator generator : attachedGenerators()) {
+            lastTime = Math.max(lastTime, generator.seal());
+        }
+        try {
+            writeCheckpoint(true);
+        } catch (RuntimeException e) {
+            log.error("write checkpoint failed", e);
+        }
+        // ids borrowed ahead of the clock must be in the past before a successor may issue ids of the node
+        long wait = lastTime == Long.MIN_VALUE ? 0 : lastTime - now() + 1;
+        if (wait > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(wait));
+        }
+        for (Lease lease : leases()) {
+            release(lease);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Registers a generator issuing ids with the node ids of this center, including ones built outside it such
+     * as a {@code CachedIdGenerator}, so that {@link #close()} seals it before the node ids are released.
+     */
+    @Override
+    public void attach(AutoConfigurableIdGenerator generator) {
+        synchronized (attached) {
+            if (closed.get()) {
+                throw new IllegalStateException("configuration center has been closed");
             }
+            attached.add(generator);
         }
-        log.trace(() -> "renew in " + (System.currentTimeMillis() - start) + "ms");
-        log.trace(() -> "renew success: " + (!isIdExpired()));
     }
 
+    /**
+     * @return every generator attached so far, none attaches any more once the center is closed
+     */
+    List<AutoConfigurableIdGenerator> attachedGenerators() {
+        // sealing takes the lock of the generator, which attaches holding it, so it must run outside the monitor
+        synchronized (attached) {
+            return new ArrayList<>(attached);
+        }
+    }
+
+    private void release(Lease lease) {
+        ExpirableNodeId machineId = lease.machineId;
+        lease.machineId = null;
+        if (machineId == null) {
+            return;
+        }
+        try {
+            // rows of earlier blocks are still locked with the key until they expire, their generators are sealed
+            renewalChannel.doInConnection(connection -> releaseRecords(connection, 0, maxId + 1, lease.key));
+            log.debug(() -> "released node id " + machineId.id());
+        } catch (SQLException | RuntimeException e) {
+            log.error("release node id " + machineId.id() + " failed", e);
+        }
+    }
+
+    /**
+     * Expires the rows of {@code count} node ids from {@code firstId} that are still locked with {@code key}.
+     */
+    protected void releaseRecords(Connection connection, int firstId, int count, String key) throws SQLException {
+        String sql = "update id_generator_lock set expiry_time=? where id>=? and id<? and lock_key=?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setTimestamp(1, RELEASED_EXPIRY);
+            statement.setInt(2, firstId);
+            statement.setInt(3, firstId + count);
+            statement.setString(4, key);
+            statement.executeUpdate();
+        }
+    }
 
     protected static String randomKey() {
         UUID uuid = UUID.randomUUID();
@@ -262,30 +839,42 @@ public abstract class JdbcConfigurationCenter implements ConfigurationCenter, Cl
     }
 
     @NotNull
-    private static ScheduledExecutorService newService() {
-        return Executors.newSingleThreadScheduledExecutor(r -> {
+    protected static ScheduledExecutorService newService() {
+        ScheduledThreadPoolExecutor service = new ScheduledThreadPoolExecutor(1, r -> {
             Thread thread = new Thread(r);
             thread.setDaemon(true);
             return thread;
         });
-    }
-
-    private long dbServerTime(long time) {
-        return time + dbTimeOffset;
+        // the thread ends once the renewals of every closed configuration center are gone
+        service.setRemoveOnCancelPolicy(true);
+        service.setKeepAliveTime(DEFAULT_LOCK_RENEWAL_PERIOD.toMillis(), TimeUnit.MILLISECONDS);
+        service.allowCoreThreadTimeOut(true);
+        return service;
     }
 
     @Override
     public long now() {
-        return dbServerTime(System.currentTimeMillis());
+        return Math.max(dbClock.now(), timeFloor);
     }
 
     @Override
     public Clock clock() {
-        return this;
+        return clock;
     }
 
     @Override
     public ExpirableNodeId acquireNodeId() {
+        ExpirableNodeId machineId = lease.machineId;
+        if (machineId == null && !leaseWaitTimeout.isZero()) {
+            try {
+                ready.get(leaseWaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                log.debug(() -> "node id not acquired: " + e);
+            }
+            machineId = lease.machineId;
+        }
         return machineId;
     }
 
@@ -304,14 +893,157 @@ public abstract class JdbcConfigurationCenter implements ConfigurationCenter, Cl
         return startStamp;
     }
 
+    @Override
+    public long tickMillis() {
+        return tickMillis;
+    }
+
+    @Override
+    public OverflowPolicy overflowPolicy() {
+        return overflowPolicy;
+    }
+
+    @Override
+    public int maxStripes() {
+        return maxStripes;
+    }
+
+    /**
+     * A node id leased under its own lock key.
+     */
+    protected class Lease {
+        final String key;
+        final Lock lock = new ReentrantLock();
+        volatile ExpirableNodeId machineId;
+        volatile CompletableFuture<Void> acquisition;
+
+        protected Lease(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public ExpirableNodeId getMachineId() {
+            return machineId;
+        }
+
+        public boolean isExpired() {
+            return machineId == null;
+        }
+
+        /**
+         * Forgets the node id locally, the row stays locked until it expires.
+         */
+        public void invalidate() {
+            machineId = null;
+        }
+    }
+
+    /**
+     * The view of one key in {@link KeyLayout#LEASE_PER_KEY} and {@link KeyLayout#NAMESPACE_BITS} layouts.
+     */
+    private class KeyedConfigurationCenter implements ConfigurationCenter {
+        private final Lease lease;
+        private final int namespace;
+        private final int namespaceBits;
+
+        KeyedConfigurationCenter(Lease lease, int namespace, int namespaceBits) {
+            this.lease = lease;
+            this.namespace = namespace;
+            this.namespaceBits = namespaceBits;
+        }
+
+        @Override
+        public Clock clock() {
+            return JdbcConfigurationCenter.this.clock();
+        }
+
+        @Override
+        public ExpirableNodeId acquireNodeId() {
+            ExpirableNodeId machineId = lease == JdbcConfigurationCenter.this.lease
+                    ? JdbcConfigurationCenter.this.acquireNodeId()
+                    : acquireKeyedNodeId();
+            if (machineId == null || namespaceBits == 0) {
+                return machineId;
+            }
+            return new ExpirableMachineIdImpl(namespace << machineBits | machineId.id(), machineId.expiry(),
+                    machineId.blockBits());
+        }
+
+        /**
+         * Starts acquiring a node id for a key whose lease has been lost and waits for it as long as the lease
+         * wait timeout allows.
+         */
+        private ExpirableNodeId acquireKeyedNodeId() {
+            ExpirableNodeId machineId = lease.machineId;
+            if (machineId == null) {
+                CompletableFuture<Void> acquisition = acquireAsync(lease);
+                if (!leaseWaitTimeout.isZero()) {
+                    try {
+                        acquisition.get(leaseWaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException | TimeoutException e) {
+                        log.debug(() -> "node id not acquired: " + e);
+                    }
+                }
+                machineId = lease.machineId;
+            }
+            return machineId;
+        }
+
+        @Override
+        public int machineBits() {
+            return machineBits + namespaceBits;
+        }
+
+        @Override
+        public int sequenceBits() {
+            return sequenceBits;
+        }
+
+        @Override
+        public long startStamp() {
+            return startStamp;
+        }
+
+        @Override
+        public long tickMillis() {
+            return tickMillis;
+        }
+
+        @Override
+        public OverflowPolicy overflowPolicy() {
+            return overflowPolicy;
+        }
+
+        @Override
+        public int maxStripes() {
+            return maxStripes;
+        }
+
+        @Override
+        public void attach(AutoConfigurableIdGenerator generator) {
+            JdbcConfigurationCenter.this.attach(generator);
+        }
+    }
+
     static class ExpirableMachineIdImpl implements ExpirableNodeId {
 
         private final int id;
         private final long expiry;
+        private final int blockBits;
 
         public ExpirableMachineIdImpl(int id, long expiry) {
+            this(id, expiry, 0);
+        }
+
+        public ExpirableMachineIdImpl(int id, long expiry, int blockBits) {
             this.id = id;
             this.expiry = expiry;
+            this.blockBits = blockBits;
         }
 
         @Override
@@ -323,6 +1055,11 @@ public abstract class JdbcConfigurationCenter implements ConfigurationCenter, Cl
         public long expiry() {
             return expiry;
         }
+
+        @Override
+        public int blockBits() {
+            return blockBits;
+        }
     }
 
 }
@@ -0,0 +1,230 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import io.github.genie.id.generator.core.auto.ExpirableNodeId;
+import io.github.genie.id.generator.core.log.Log;
+import io.github.genie.id.generator.core.metrics.LeaseMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps the leases of a {@link JdbcConfigurationCenter} over its renewal channel: resamples the database clock,
+ * renews every lease, starts acquiring the ones that were lost and resizes the node id block of the process
+ * lease. Renewals are scheduled ahead of expiry by the measured round trip and back off with jitter after
+ * failures.
+ */
+class LeaseRenewer {
+
+    private static final Log log = Log.get(LeaseRenewer.class);
+
+    private final JdbcConfigurationCenter center;
+    private final RenewalChannel channel;
+    private final ScheduledExecutorService service;
+    private final LeaseMetrics metrics;
+    private final BlockLeaser blockLeaser;
+    private final Object monitor = new Object();
+    private long periodMillis;
+    private volatile long latencyNanos;
+    private int failures;
+    private volatile ScheduledFuture<?> renewal;
+
+    LeaseRenewer(JdbcConfigurationCenter center,
+                 RenewalChannel channel,
+                 ScheduledExecutorService service,
+                 LeaseMetrics metrics,
+                 BlockLeaser blockLeaser) {
+        this.center = center;
+        this.channel = channel;
+        this.service = service;
+        this.metrics = metrics;
+        this.blockLeaser = blockLeaser;
+    }
+
+    void start(Duration period) {
+        this.periodMillis = period.toMillis();
+        renewal = service.schedule(this::renew, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the scheduled renewals and runs {@code shutdown} once no renewal is in progress. The center is
+     * closed before, so no renewal starts afterwards.
+     */
+    void stop(Runnable shutdown) {
+        ScheduledFuture<?> renewal = this.renewal;
+        if (renewal != null) {
+            renewal.cancel(false);
+        }
+        synchronized (monitor) {
+            shutdown.run();
+        }
+    }
+
+    private void renew() {
+        if (center.isClosed()) {
+            return;
+        }
+        long delay = JdbcConfigurationCenter.RENEWAL_RETRY_DELAY_MILLIS;
+        try {
+            delay = keepLock() ? nextRenewalDelay() : retryDelay();
+        } catch (RuntimeException e) {
+            log.error("renewal failed", e);
+        } finally {
+            if (!center.isClosed()) {
+                renewal = service.schedule(this::renew, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Waits the configured period unless the leases would get too close to expiry for the measured round trip,
+     * then renews after half of the remaining slack.
+     */
+    long nextRenewalDelay() {
+        failures = 0;
+        long remaining = Long.MAX_VALUE;
+        for (JdbcConfigurationCenter.Lease lease : center.leases()) {
+            ExpirableNodeId machineId = lease.machineId;
+            if (machineId != null) {
+                remaining = Math.min(remaining, machineId.expiry() - center.now());
+            }
+        }
+        if (remaining == Long.MAX_VALUE) {
+            return periodMillis;
+        }
+        long margin = TimeUnit.NANOSECONDS.toMillis(latencyNanos) * JdbcConfigurationCenter.RENEWAL_LATENCY_MARGIN;
+        long delay = (remaining - margin) / 2;
+        return Math.max(JdbcConfigurationCenter.MIN_RENEWAL_DELAY_MILLIS, Math.min(periodMillis, delay));
+    }
+
+    /**
+     * Backs off exponentially from {@link JdbcConfigurationCenter#RENEWAL_RETRY_DELAY_MILLIS} up to the renewal
+     * period, with jitter so that instances which lost the database together do not retry in lockstep.
+     */
+    long retryDelay() {
+        int failures = Math.min(this.failures++, 16);
+        long delay = Math.min(periodMillis, JdbcConfigurationCenter.RENEWAL_RETRY_DELAY_MILLIS << failures);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * @return whether every lease could be renewed or acquired
+     */
+    boolean keepLock() {
+        boolean success;
+        synchronized (monitor) {
+            if (center.isClosed()) {
+                return false;
+            }
+            success = keepLocks();
+        }
+        // outside the monitor, close() never waits for a lease waiting for a free row
+        return awaitAcquisitions() && success;
+    }
+
+    private boolean keepLocks() {
+        boolean success = true;
+        try {
+            channel.doInConnection(center::sampleDbTime);
+            center.dbTimeOffset = center.dbClock.getOffsetMillis();
+        } catch (Exception e) {
+            success = false;
+            log.error("sample database time failed", e);
+        }
+        for (JdbcConfigurationCenter.Lease lease : center.leases()) {
+            success &= keepLock(lease);
+        }
+        try {
+            center.writeCheckpoint(false);
+        } catch (RuntimeException e) {
+            log.error("write checkpoint failed", e);
+        }
+        return success;
+    }
+
+    private boolean keepLock(JdbcConfigurationCenter.Lease lease) {
+        long start = System.currentTimeMillis();
+        boolean success = true;
+        ExpirableNodeId machineId = lease.machineId;
+        if (machineId != null) {
+            long sent = System.nanoTime();
+            try {
+                channel.doInConnection(connection -> {
+                    int blockBits = machineId.blockBits();
+                    int expirySeconds = center.expirySeconds;
+                    boolean renewed = blockBits == 0
+                            ? center.renewTtl(connection, machineId.id(), lease.key, lease.key, expirySeconds)
+                            : center.renewBlock(connection, machineId.id(), 1 << blockBits, lease.key, expirySeconds);
+                    long latency = System.nanoTime() - sent;
+                    recordLatency(latency);
+                    metrics.renewed(latency, renewed);
+                    if (renewed) {
+                        center.updateClock(lease, machineId.id(), blockBits, sent);
+                    } else {
+                        // the row has been taken over after it expired, the id must not be used any more
+                        lease.machineId = null;
+                    }
+                });
+            } catch (Exception e) {
+                success = false;
+                metrics.renewed(System.nanoTime() - sent, false);
+                log.error("renew expiration failed", e);
+            }
+        }
+        if (lease.isExpired()) {
+            center.acquireAsync(lease);
+        } else if (blockLeaser.isEnabled() && lease == center.lease) {
+            try {
+                blockLeaser.resize(lease);
+            } catch (Exception e) {
+                log.error("resize node id block failed", e);
+            }
+        }
+        log.trace(() -> "renew in " + (System.currentTimeMillis() - start) + "ms");
+        log.trace(() -> "renew success: " + (!lease.isExpired()));
+        return success;
+    }
+
+    /**
+     * Waits up to {@link JdbcConfigurationCenter#ACQUISITION_WAIT_MILLIS} for the acquisitions started by the
+     * renewal.
+     *
+     * @return whether every lease holds a node id
+     */
+    private boolean awaitAcquisitions() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(JdbcConfigurationCenter.ACQUISITION_WAIT_MILLIS);
+        boolean success = true;
+        for (JdbcConfigurationCenter.Lease lease : center.leases()) {
+            CompletableFuture<Void> acquisition = lease.acquisition;
+            if (acquisition != null && lease.isExpired()) {
+                try {
+                    acquisition.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException | TimeoutException e) {
+                    // logged by the acquisition, which goes on unless it failed
+                }
+            }
+            success &= !lease.isExpired();
+        }
+        return success;
+    }
+
+    /**
+     * @return the smoothed round-trip time of lease renewals
+     */
+    long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    private void recordLatency(long nanos) {
+        long latency = latencyNanos;
+        // slow samples are taken at once, fast ones decay the estimate gradually
+        latencyNanos = latency == 0 || nanos > latency ? nanos : latency + (nanos - latency) / 8;
+    }
+}
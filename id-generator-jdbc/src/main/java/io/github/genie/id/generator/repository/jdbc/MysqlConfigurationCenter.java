@@ -8,6 +8,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 
 public class MysqlConfigurationCenter extends JdbcConfigurationCenter {
@@ -17,6 +21,10 @@ public class MysqlConfigurationCenter extends JdbcConfigurationCenter {
         super(connectionProvider, new InitialConfiguration());
     }
 
+    public MysqlConfigurationCenter(ConnectionProvider connectionProvider, InitialConfiguration config) {
+        super(connectionProvider, config);
+    }
+
     public MysqlConfigurationCenter(int maxId,
                                     String key,
                                     ConnectionProvider connectionProvider,
@@ -35,6 +43,55 @@ public class MysqlConfigurationCenter extends JdbcConfigurationCenter {
                 sequenceBits);
     }
 
+    public MysqlConfigurationCenter(int maxId,
+                                    String key,
+                                    ConnectionProvider connectionProvider,
+                                    int expirySeconds,
+                                    Duration lockRenewalPeriod,
+                                    ScheduledExecutorService scheduledExecutorService,
+                                    InitialConfiguration config) {
+        super(maxId,
+                key,
+                connectionProvider,
+                expirySeconds,
+                lockRenewalPeriod,
+                scheduledExecutorService,
+                config);
+    }
+
+    public MysqlConfigurationCenter(int maxId,
+                                    String key,
+                                    ConnectionProvider connectionProvider,
+                                    int expirySeconds,
+                                    Duration lockRenewalPeriod,
+                                    ScheduledExecutorService scheduledExecutorService,
+                                    InitialConfiguration config,
+                                    Executor startupExecutor) {
+        super(maxId,
+                key,
+                connectionProvider,
+                expirySeconds,
+                lockRenewalPeriod,
+                scheduledExecutorService,
+                config,
+                startupExecutor);
+    }
+
+    public static CompletableFuture<JdbcConfigurationCenter> createAsync(ConnectionProvider connectionProvider,
+                                                                         InitialConfiguration config,
+                                                                         Executor startupExecutor) {
+        return new MysqlConfigurationCenter(
+                ~(-1 << config.getNodeIdBits()),
+                RANDOM_KEY,
+                connectionProvider,
+                DEFAULT_EXPIRY_SECONDS,
+                DEFAULT_LOCK_RENEWAL_PERIOD,
+                newService(),
+                config,
+                startupExecutor
+        ).ready();
+    }
+
     public long getAwaitTime(Connection connection, int maxId) throws SQLException {
         String sql = "select timestampdiff(microsecond,now(),min(expiry_time))/1000 as wait_time " +
                      "from id_generator_lock where id between 0 and " + maxId;
@@ -104,9 +161,41 @@ public class MysqlConfigurationCenter extends JdbcConfigurationCenter {
         return null;
     }
 
+    @Override
+    protected List<Record> getRecords(Connection connection, int maxId) throws SQLException {
+        String sql = "select id,lock_key,now()>expiry_time from id_generator_lock where id between 0 and " + maxId + " for update";
+        List<Record> records = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                records.add(new Record(
+                        resultSet.getInt(1),
+                        resultSet.getString(2),
+                        resultSet.getBoolean(3)
+                ));
+            }
+        }
+        return records;
+    }
+
+    @Override
+    protected boolean renewBlock(Connection connection, int firstId, int count, String key, int expirySeconds)
+            throws SQLException {
+        String sql = "update id_generator_lock set expiry_time=date_add(now(),interval ? second) " +
+                     "where id between ? and ? and lock_key=?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, expirySeconds);
+            statement.setInt(2, firstId);
+            statement.setInt(3, firstId + count - 1);
+            statement.setString(4, key);
+            return statement.executeUpdate() == count;
+        }
+    }
+
     protected long getDbTime(Connection connection) throws SQLException {
         String sql = "select unix_timestamp(now(3))*1000";
-        try (ResultSet resultSet = connection.prepareStatement(sql).executeQuery()) {
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
             if (resultSet.next()) {
                 return resultSet.getLong(1);
             }
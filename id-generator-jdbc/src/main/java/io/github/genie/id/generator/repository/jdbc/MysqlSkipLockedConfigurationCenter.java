@@ -0,0 +1,209 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import io.github.genie.id.generator.core.auto.InitialConfiguration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Claims node ids with {@code select ... for update skip locked} on MySQL 8.0 or later. All slots up to
+ * {@code maxId} are seeded once, every claimer starts scanning at an offset derived from its lock key and skips
+ * rows locked by others, so concurrent starters take different slots in one round trip each.
+ */
+public class MysqlSkipLockedConfigurationCenter extends MysqlConfigurationCenter {
+
+    public static final int SEED_BATCH_SIZE = 1024;
+    public static final int MAX_CONTENDED_WAIT_MILLIS = 20;
+
+    private static final String SEED_EXPIRY_TIME = "'1970-01-02 00:00:00'";
+
+    private volatile boolean seeded;
+
+    public MysqlSkipLockedConfigurationCenter(ConnectionProvider connectionProvider) {
+        super(connectionProvider);
+    }
+
+    public MysqlSkipLockedConfigurationCenter(ConnectionProvider connectionProvider, InitialConfiguration config) {
+        super(connectionProvider, config);
+    }
+
+    public MysqlSkipLockedConfigurationCenter(int maxId,
+                                              String key,
+                                              ConnectionProvider connectionProvider,
+                                              int expirySeconds,
+                                              Duration lockRenewalPeriod,
+                                              ScheduledExecutorService scheduledExecutorService,
+                                              InitialConfiguration config) {
+        super(maxId,
+                key,
+                connectionProvider,
+                expirySeconds,
+                lockRenewalPeriod,
+                scheduledExecutorService,
+                config);
+    }
+
+    public MysqlSkipLockedConfigurationCenter(int maxId,
+                                              String key,
+                                              ConnectionProvider connectionProvider,
+                                              int expirySeconds,
+                                              Duration lockRenewalPeriod,
+                                              ScheduledExecutorService scheduledExecutorService,
+                                              InitialConfiguration config,
+                                              Executor startupExecutor) {
+        super(maxId,
+                key,
+                connectionProvider,
+                expirySeconds,
+                lockRenewalPeriod,
+                scheduledExecutorService,
+                config,
+                startupExecutor);
+    }
+
+    public static CompletableFuture<JdbcConfigurationCenter> createAsync(ConnectionProvider connectionProvider,
+                                                                         InitialConfiguration config,
+                                                                         Executor startupExecutor) {
+        return new MysqlSkipLockedConfigurationCenter(
+                ~(-1 << config.getNodeIdBits()),
+                RANDOM_KEY,
+                connectionProvider,
+                DEFAULT_EXPIRY_SECONDS,
+                DEFAULT_LOCK_RENEWAL_PERIOD,
+                newService(),
+                config,
+                startupExecutor
+        ).ready();
+    }
+
+    /**
+     * Creates the tables with the index on {@code expiry_time} the waiters rely on, or adds the index to the
+     * tables used by {@link MysqlConfigurationCenter}.
+     */
+    public static void createTables(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists `id_generator_lock` (" +
+                              "`id` int not null primary key," +
+                              "`expiry_time` datetime(3) not null," +
+                              "`lock_key` varchar(64) not null," +
+                              "key `idx_expiry_time` (`expiry_time`))");
+            statement.execute("create table if not exists `id_generator_config` (" +
+                              "`id` varchar(64) not null primary key," +
+                              "`config` varchar(255) not null)");
+            try (ResultSet resultSet = statement.executeQuery(
+                    "select count(*) from information_schema.statistics where table_schema=database() " +
+                    "and table_name='id_generator_lock' and index_name='idx_expiry_time'")) {
+                if (resultSet.next() && resultSet.getInt(1) > 0) {
+                    return;
+                }
+            }
+            statement.execute("alter table `id_generator_lock` add index `idx_expiry_time` (`expiry_time`)");
+        }
+    }
+
+    /**
+     * Inserts an expired row for every missing slot up to {@code maxId}, ids never have to be inserted afterwards.
+     */
+    protected void seedSlots(Connection connection, int maxId) throws SQLException {
+        String countSql = "select count(*) from id_generator_lock where id between 0 and " + maxId;
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery(countSql)) {
+                if (resultSet.next() && resultSet.getInt(1) > maxId) {
+                    return;
+                }
+            }
+            for (int first = 0; first <= maxId; first += SEED_BATCH_SIZE) {
+                int last = Math.min(maxId, first + SEED_BATCH_SIZE - 1);
+                StringBuilder sql = new StringBuilder("insert ignore into `id_generator_lock` " +
+                                                      "(`id`,`expiry_time`,`lock_key`) values ");
+                for (int id = first; id <= last; id++) {
+                    if (id != first) {
+                        sql.append(',');
+                    }
+                    sql.append('(').append(id).append(',').append(SEED_EXPIRY_TIME).append(",'')");
+                }
+                statement.executeUpdate(sql.toString());
+            }
+        }
+    }
+
+    /**
+     * Seeds the slots before the claim transaction starts, so the duplicate checks of the seed hold no locks
+     * while it runs and a pool of one connection does not wait for a second one.
+     */
+    @Override
+    protected void acquireId(Lease lease) {
+        if (!seeded) {
+            doInConnection(connection -> seedSlots(connection, maxId));
+            seeded = true;
+        }
+        super.acquireId(lease);
+    }
+
+    @Override
+    protected Record getExpiredRecord(Connection connection, int maxId, String key) throws SQLException {
+        int offset = Math.floorMod(key.hashCode(), maxId + 1);
+        Record record = claim(connection, offset, maxId);
+        if (record == null && offset > 0) {
+            record = claim(connection, 0, offset - 1);
+        }
+        return record;
+    }
+
+    @Override
+    protected Record getExpiredRecord(Connection connection, int maxId) throws SQLException {
+        return getExpiredRecord(connection, maxId, key);
+    }
+
+    private Record claim(Connection connection, int firstId, int lastId) throws SQLException {
+        String sql = "select id,lock_key from id_generator_lock where id between ? and ? and now(3)>expiry_time " +
+                     "order by id limit 1 for update skip locked";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, firstId);
+            statement.setInt(2, lastId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return new Record(
+                            resultSet.getInt(1),
+                            resultSet.getString(2)
+                    );
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected Integer getNextId(Connection connection) {
+        return null;
+    }
+
+    /**
+     * Waits for the earliest live row to expire. When no row is live the expired ones are only locked by
+     * concurrent claimers, which is retried after a short random backoff instead of spinning.
+     */
+    @Override
+    public long getAwaitTime(Connection connection, int maxId) throws SQLException {
+        String sql = "select timestampdiff(microsecond,now(3),min(expiry_time))/1000 as wait_time " +
+                     "from id_generator_lock where expiry_time>now(3) and id between 0 and " + maxId;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            if (resultSet.next()) {
+                long waitTime = resultSet.getLong(1);
+                if (!resultSet.wasNull()) {
+                    return waitTime;
+                }
+            }
+        }
+        return 1 + ThreadLocalRandom.current().nextInt(MAX_CONTENDED_WAIT_MILLIS);
+    }
+
+}
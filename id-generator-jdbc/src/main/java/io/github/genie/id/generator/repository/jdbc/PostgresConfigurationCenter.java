@@ -0,0 +1,270 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import io.github.genie.id.generator.core.auto.InitialConfiguration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class PostgresConfigurationCenter extends JdbcConfigurationCenter {
+
+    public PostgresConfigurationCenter(ConnectionProvider connectionProvider) {
+        super(connectionProvider, new InitialConfiguration());
+    }
+
+    public PostgresConfigurationCenter(ConnectionProvider connectionProvider, InitialConfiguration config) {
+        super(connectionProvider, config);
+    }
+
+    public PostgresConfigurationCenter(int maxId,
+                                 String key,
+                                 ConnectionProvider connectionProvider,
+                                 int expirySeconds,
+                                 Duration lockRenewalPeriod,
+                                 ScheduledExecutorService scheduledExecutorService,
+                                 InitialConfiguration config) {
+        super(maxId,
+                key,
+                connectionProvider,
+                expirySeconds,
+                lockRenewalPeriod,
+                scheduledExecutorService,
+                config);
+    }
+
+    public PostgresConfigurationCenter(int maxId,
+                                 String key,
+                                 ConnectionProvider connectionProvider,
+                                 int expirySeconds,
+                                 Duration lockRenewalPeriod,
+                                 ScheduledExecutorService scheduledExecutorService,
+                                 InitialConfiguration config,
+                                 Executor startupExecutor) {
+        super(maxId,
+                key,
+                connectionProvider,
+                expirySeconds,
+                lockRenewalPeriod,
+                scheduledExecutorService,
+                config,
+                startupExecutor);
+    }
+
+    public static CompletableFuture<JdbcConfigurationCenter> createAsync(ConnectionProvider connectionProvider,
+                                                                         InitialConfiguration config,
+                                                                         Executor startupExecutor) {
+        return new PostgresConfigurationCenter(
+                ~(-1 << config.getNodeIdBits()),
+                RANDOM_KEY,
+                connectionProvider,
+                DEFAULT_EXPIRY_SECONDS,
+                DEFAULT_LOCK_RENEWAL_PERIOD,
+                newService(),
+                config,
+                startupExecutor
+        ).ready();
+    }
+
+
+    public static void createTables(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists id_generator_lock (" +
+                              "id int primary key," +
+                              "expiry_time timestamptz(3) not null," +
+                              "lock_key varchar(64) not null)");
+            statement.execute("create index if not exists idx_id_generator_lock_expiry_time " +
+                              "on id_generator_lock (expiry_time)");
+            statement.execute("create table if not exists id_generator_config (" +
+                              "id varchar(64) primary key," +
+                              "config varchar(255) not null)");
+        }
+    }
+
+    /**
+     * Retries at once while an id is unused, otherwise waits for the earliest row to expire.
+     */
+    public long getAwaitTime(Connection connection, int maxId) throws SQLException {
+        String sql = "select case when count(*)<=? then 0 " +
+                     "else cast(extract(epoch from min(expiry_time)-now())*1000 as bigint) end as wait_time " +
+                     "from id_generator_lock where id between 0 and ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, maxId);
+            statement.setInt(2, maxId);
+            try (ResultSet waitTimeResult = statement.executeQuery()) {
+                if (waitTimeResult.next()) {
+                    return waitTimeResult.getLong(1);
+                } else {
+                    throw new IllegalStateException("database not initialized");
+                }
+            }
+        }
+    }
+
+    protected boolean insertRecord(Connection connection, int id, String key, int expirySeconds) throws SQLException {
+        String sql = "insert into id_generator_lock (id,expiry_time,lock_key) " +
+                     "values (?,now()+interval '1 second'*?,?) on conflict do nothing";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, id);
+            statement.setInt(2, expirySeconds);
+            statement.setString(3, key);
+            return statement.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * Renews the row held by {@code oldKey}, or recreates it when it is missing, in one statement.
+     */
+    protected boolean renewTtl(Connection connection, int id, String oldKey, String newKey, int expirySeconds) throws SQLException {
+        String sql = "insert into id_generator_lock as t (id,expiry_time,lock_key) " +
+                     "values (?,now()+interval '1 second'*?,?) " +
+                     "on conflict (id) do update set expiry_time=excluded.expiry_time,lock_key=excluded.lock_key " +
+                     "where t.lock_key=?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, id);
+            statement.setInt(2, expirySeconds);
+            statement.setString(3, newKey);
+            statement.setString(4, oldKey);
+            return statement.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * Inserts the first unused id at or after an offset derived from the lock key, so concurrent starters
+     * rarely compete for the same id.
+     */
+    @Override
+    protected Integer insertNextRecord(Connection connection, String key, int expirySeconds) throws SQLException {
+        String sql = "insert into id_generator_lock (id,expiry_time,lock_key) " +
+                     "select s.id,now()+interval '1 second'*?,? from generate_series(0,?) s(id) " +
+                     "where not exists (select 1 from id_generator_lock l where l.id=s.id) " +
+                     "order by (s.id+?)%? limit 1 " +
+                     "on conflict do nothing returning id";
+        int size = maxId + 1;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, expirySeconds);
+            statement.setString(2, key);
+            statement.setInt(3, maxId);
+            statement.setInt(4, size - Math.floorMod(key.hashCode(), size));
+            statement.setInt(5, size);
+            return singleId(statement);
+        }
+    }
+
+    @Override
+    protected Integer takeOverExpiredRecord(Connection connection, int maxId, String key, int expirySeconds)
+            throws SQLException {
+        String sql = "update id_generator_lock set expiry_time=now()+interval '1 second'*?,lock_key=? " +
+                     "where id=(select id from id_generator_lock where id between 0 and ? and now()>expiry_time " +
+                     "order by id limit 1 for update skip locked) returning id";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, expirySeconds);
+            statement.setString(2, key);
+            statement.setInt(3, maxId);
+            return singleId(statement);
+        }
+    }
+
+    private static Integer singleId(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getInt(1) : null;
+        }
+    }
+
+    protected Integer getNextId(Connection connection) throws SQLException {
+        String sql = "select min(s.id) from generate_series(0," + maxId + ") s(id) " +
+                     "where not exists (select 1 from id_generator_lock l where l.id=s.id)";
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            if (resultSet.next()) {
+                int id = resultSet.getInt(1);
+                return resultSet.wasNull() ? null : id;
+            }
+            return null;
+        }
+    }
+
+    protected Record getExpiredRecord(Connection connection, int maxId) throws SQLException {
+        String sql = "select id,lock_key from id_generator_lock where id between 0 and " + maxId + " " +
+                     "and now()>expiry_time order by id limit 1 for update skip locked";
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            if (resultSet.next()) {
+                return new Record(
+                        resultSet.getInt(1),
+                        resultSet.getString(2)
+                );
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected List<Record> getRecords(Connection connection, int maxId) throws SQLException {
+        String sql = "select id,lock_key,now()>expiry_time from id_generator_lock where id between 0 and " + maxId + " for update";
+        List<Record> records = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                records.add(new Record(
+                        resultSet.getInt(1),
+                        resultSet.getString(2),
+                        resultSet.getBoolean(3)
+                ));
+            }
+        }
+        return records;
+    }
+
+    @Override
+    protected boolean renewBlock(Connection connection, int firstId, int count, String key, int expirySeconds)
+            throws SQLException {
+        String sql = "update id_generator_lock set expiry_time=now()+interval '1 second'*? " +
+                     "where id between ? and ? and lock_key=?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, expirySeconds);
+            statement.setInt(2, firstId);
+            statement.setInt(3, firstId + count - 1);
+            statement.setString(4, key);
+            return statement.executeUpdate() == count;
+        }
+    }
+
+    protected long getDbTime(Connection connection) throws SQLException {
+        String sql = "select cast(extract(epoch from clock_timestamp())*1000 as bigint)";
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            if (resultSet.next()) {
+                return resultSet.getLong(1);
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Inserts the start time unless it exists and returns the stored one, in one statement.
+     */
+    @Override
+    protected long getStartTime(Connection connection) {
+        String sql = "insert into id_generator_config (id,config) " +
+                     "values ('time_offset',cast(cast(extract(epoch from date_trunc('second',now()))*1000 as bigint) as varchar)) " +
+                     "on conflict (id) do update set config=id_generator_config.config returning config";
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            if (resultSet.next()) {
+                return resultSet.getLong(1);
+            }
+            throw new IllegalStateException("start time not stored");
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+    }
+
+}
@@ -3,10 +3,16 @@ package io.github.genie.id.generator.repository.jdbc;
 public class Record {
     private final int id;
     private final String key;
+    private final boolean expired;
 
     public Record(int id, String key) {
+        this(id, key, true);
+    }
+
+    public Record(int id, String key, boolean expired) {
         this.id = id;
         this.key = key;
+        this.expired = expired;
     }
 
     public int getId() {
@@ -16,4 +22,8 @@ public class Record {
     public String getKey() {
         return key;
     }
+
+    public boolean isExpired() {
+        return expired;
+    }
 }
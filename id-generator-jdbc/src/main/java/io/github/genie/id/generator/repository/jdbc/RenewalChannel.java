@@ -0,0 +1,139 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import io.github.genie.id.generator.core.log.Log;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A connection kept open for lease maintenance. Statements prepared through it are cached and closing them or
+ * the connection is ignored, so the dialect code runs unchanged. Any failure drops the connection and the next
+ * call reconnects.
+ */
+class RenewalChannel implements AutoCloseable {
+
+    private static final Log log = Log.get(RenewalChannel.class);
+
+    private final ConnectionProvider connectionProvider;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private Connection connection;
+    private Connection view;
+    private long openedConnections;
+
+    RenewalChannel(ConnectionProvider connectionProvider) {
+        this.connectionProvider = connectionProvider;
+    }
+
+    synchronized void doInConnection(ConnectionConsumer consumer) throws SQLException {
+        try {
+            consumer.doInConnection(connection());
+        } catch (SQLException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    synchronized long getOpenedConnections() {
+        return openedConnections;
+    }
+
+    synchronized int getCachedStatements() {
+        return statements.size();
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            Connection connection = connectionProvider.getConnection();
+            if (!connection.getAutoCommit()) {
+                connection.setAutoCommit(true);
+            }
+            this.connection = connection;
+            this.view = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+            if (openedConnections++ > 0) {
+                log.debug(() -> "renewal connection reopened");
+            }
+        }
+        return view;
+    }
+
+    @Override
+    public synchronized void close() {
+        statements.clear();
+        view = null;
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.debug(() -> "closing renewal connection failed: " + e);
+            }
+            connection = null;
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    return null;
+                case "prepareStatement":
+                    if (args.length == 1) {
+                        String sql = (String) args[0];
+                        PreparedStatement statement = statements.get(sql);
+                        if (statement == null) {
+                            statement = (PreparedStatement) Proxy.newProxyInstance(
+                                    PreparedStatement.class.getClassLoader(),
+                                    new Class<?>[]{PreparedStatement.class},
+                                    new StatementHandler(connection.prepareStatement(sql)));
+                            statements.put(sql, statement);
+                        }
+                        return statement;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return RenewalChannel.invoke(connection, method, args);
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final PreparedStatement statement;
+
+        StatementHandler(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName())) {
+                statement.clearParameters();
+                return null;
+            }
+            return RenewalChannel.invoke(statement, method, args);
+        }
+    }
+
+}
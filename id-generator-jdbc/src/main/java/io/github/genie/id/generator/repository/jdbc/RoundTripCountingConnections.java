@@ -0,0 +1,55 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import io.github.genie.id.generator.core.metrics.LeaseMetrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Wraps connections so that every statement execution, commit and rollback is counted as a database round trip.
+ */
+final class RoundTripCountingConnections {
+
+    private RoundTripCountingConnections() {
+    }
+
+    static ConnectionProvider wrap(ConnectionProvider connectionProvider, LeaseMetrics metrics) {
+        return () -> wrap(connectionProvider.getConnection(), metrics);
+    }
+
+    private static Connection wrap(Connection connection, LeaseMetrics metrics) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if ("commit".equals(name) || "rollback".equals(name)) {
+                        metrics.roundTrip();
+                    }
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement) {
+                        return wrap((Statement) result, method.getReturnType(), metrics);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object wrap(Statement statement, Class<?> type, LeaseMetrics metrics) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                metrics.roundTrip();
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+}
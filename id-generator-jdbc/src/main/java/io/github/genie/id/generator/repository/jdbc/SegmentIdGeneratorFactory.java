@@ -0,0 +1,293 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import io.github.genie.id.generator.core.IdGenerator;
+import io.github.genie.id.generator.core.IdGeneratorFactory;
+import io.github.genie.id.generator.core.log.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues dense ids per key from segments of the {@code id_generator_segment} table. Each segment is leased
+ * with one {@code update ... set max_id=max_id+step}, so ids are unique across processes and increase
+ * within one. A segment is prefetched in the background while the current one is in use.
+ * <p>
+ * The step follows the consumption rate, so every key leases about one segment per segment duration
+ * whatever its throughput. Ids left in a segment when a process stops are never issued.
+ */
+public class SegmentIdGeneratorFactory implements IdGeneratorFactory {
+
+    public static final int DEFAULT_INITIAL_STEP = 1000;
+    public static final int DEFAULT_MAX_STEP = 1 << 20;
+    public static final Duration DEFAULT_SEGMENT_DURATION = Duration.ofMinutes(1);
+    /**
+     * The share of a segment consumed before the next one is prefetched.
+     */
+    public static final double PREFETCH_RATIO = 0.1;
+
+    private static final Log log = Log.get(SegmentIdGeneratorFactory.class);
+
+    private final ConnectionProvider connectionProvider;
+    private final int initialStep;
+    private final int maxStep;
+    private final long segmentNanos;
+    private final Executor prefetchExecutor;
+    private final Map<String, SegmentIdGenerator> generators = new ConcurrentHashMap<>();
+
+    public SegmentIdGeneratorFactory(ConnectionProvider connectionProvider) {
+        this(connectionProvider, DEFAULT_INITIAL_STEP, DEFAULT_MAX_STEP, DEFAULT_SEGMENT_DURATION);
+    }
+
+    public SegmentIdGeneratorFactory(ConnectionProvider connectionProvider,
+                                     int initialStep,
+                                     int maxStep,
+                                     Duration segmentDuration) {
+        this(connectionProvider, initialStep, maxStep, segmentDuration, JdbcConfigurationCenter.newService());
+    }
+
+    /**
+     * @param segmentDuration how long a segment should last at the observed rate
+     */
+    public SegmentIdGeneratorFactory(ConnectionProvider connectionProvider,
+                                     int initialStep,
+                                     int maxStep,
+                                     Duration segmentDuration,
+                                     Executor prefetchExecutor) {
+        if (initialStep <= 0 || maxStep < initialStep) {
+            throw new IllegalArgumentException("steps must satisfy 0 < initialStep <= maxStep");
+        }
+        if (segmentDuration.isNegative() || segmentDuration.isZero()) {
+            throw new IllegalArgumentException("segmentDuration must be positive");
+        }
+        this.connectionProvider = connectionProvider;
+        this.initialStep = initialStep;
+        this.maxStep = maxStep;
+        this.segmentNanos = segmentDuration.toNanos();
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    public static void createTables(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists id_generator_segment (" +
+                              "biz_key varchar(64) primary key," +
+                              "max_id bigint not null)");
+        }
+    }
+
+    @Override
+    public SegmentIdGenerator getIdGenerator(String key) {
+        return generators.computeIfAbsent(key, SegmentIdGenerator::new);
+    }
+
+    /**
+     * Leases the {@code step} ids after the current maximum of {@code key}, creating the key on first use.
+     *
+     * @return the last id of the segment
+     */
+    protected long allocate(String key, int step) {
+        try (Connection connection = connectionProvider.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                Long maxId = increment(connection, key, step);
+                if (maxId == null) {
+                    maxId = insert(connection, key, step) ? step : increment(connection, key, step);
+                }
+                if (maxId == null) {
+                    throw new IllegalStateException("segment of " + key + " not found");
+                }
+                connection.commit();
+                return maxId;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+    }
+
+    /**
+     * Adds {@code step} to the maximum of {@code key}, the row stays locked until the transaction ends so the
+     * maximum read afterwards is the one written.
+     *
+     * @return the new maximum, or {@code null} if the key has no row
+     */
+    protected Long increment(Connection connection, String key, int step) throws SQLException {
+        String update = "update id_generator_segment set max_id=max_id+? where biz_key=?";
+        try (PreparedStatement statement = connection.prepareStatement(update)) {
+            statement.setInt(1, step);
+            statement.setString(2, key);
+            if (statement.executeUpdate() == 0) {
+                return null;
+            }
+        }
+        String select = "select max_id from id_generator_segment where biz_key=?";
+        try (PreparedStatement statement = connection.prepareStatement(select)) {
+            statement.setString(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : null;
+            }
+        }
+    }
+
+    /**
+     * @return whether the row has been inserted, {@code false} if a concurrent transaction inserted it first
+     */
+    protected boolean insert(Connection connection, String key, int step) throws SQLException {
+        String sql = "insert into id_generator_segment (biz_key,max_id) values (?,?)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, key);
+            statement.setLong(2, step);
+            statement.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            // integrity constraint violations, such as a duplicate key, belong to class 23
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                connection.rollback();
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The ids from {@code first} to {@code last} of one key.
+     */
+    static final class Segment extends AtomicLong {
+        final long first;
+        final long last;
+        final long prefetchAt;
+        final int step;
+        final long leasedNanos;
+
+        Segment(long last, int step) {
+            super(last - step + 1);
+            this.first = last - step + 1;
+            this.last = last;
+            this.prefetchAt = first + (long) (step * PREFETCH_RATIO);
+            this.step = step;
+            this.leasedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Issues the ids of one key from the current segment, usually with a single {@code getAndAdd}.
+     */
+    public class SegmentIdGenerator implements IdGenerator {
+        private final String key;
+        private volatile Segment current;
+        private CompletableFuture<Segment> next;
+        private int step = initialStep;
+
+        SegmentIdGenerator(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public long nextId() {
+            while (true) {
+                Segment segment = this.current;
+                if (segment != null) {
+                    long id = segment.getAndIncrement();
+                    if (id <= segment.last) {
+                        if (id == segment.prefetchAt) {
+                            prefetch(segment);
+                        }
+                        return id;
+                    }
+                }
+                advance(segment);
+            }
+        }
+
+        @Override
+        public void fill(long[] dst, int off, int len) {
+            IdGenerator.checkRange(dst.length, off, len);
+            while (len > 0) {
+                Segment segment = this.current;
+                if (segment != null) {
+                    long first = segment.getAndAdd(len);
+                    if (first <= segment.last) {
+                        int count = (int) Math.min(len, segment.last - first + 1);
+                        for (int i = 0; i < count; i++) {
+                            dst[off + i] = first + i;
+                        }
+                        if (first <= segment.prefetchAt && segment.prefetchAt < first + count) {
+                            prefetch(segment);
+                        }
+                        off += count;
+                        len -= count;
+                        continue;
+                    }
+                }
+                advance(segment);
+            }
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the step of the next segment
+         */
+        public synchronized int getStep() {
+            return step;
+        }
+
+        /**
+         * Starts leasing the next segment, sized by the rate {@code segment} has been consumed at so far.
+         */
+        private synchronized void prefetch(Segment segment) {
+            if (next != null || segment != current) {
+                return;
+            }
+            long consumed = segment.prefetchAt - segment.first + 1;
+            long elapsed = Math.max(1, System.nanoTime() - segment.leasedNanos);
+            double perSegment = (double) consumed * segmentNanos / elapsed;
+            int size = (int) Math.max(1, Math.min(maxStep, perSegment));
+            step = size;
+            next = CompletableFuture.supplyAsync(() -> lease(size), prefetchExecutor);
+        }
+
+        /**
+         * Replaces the exhausted {@code segment} by the prefetched one, or leases one now if there is none.
+         */
+        private synchronized void advance(Segment segment) {
+            if (current != segment) {
+                return;
+            }
+            CompletableFuture<Segment> next = this.next;
+            this.next = null;
+            if (next != null) {
+                try {
+                    current = next.join();
+                    return;
+                } catch (CompletionException e) {
+                    log.debug(() -> "prefetch of " + key + " failed: " + e.getCause());
+                }
+            }
+            current = lease(step);
+        }
+
+        private Segment lease(int step) {
+            long last = allocate(key, step);
+            log.trace(() -> "leased ids of " + key + " up to " + last);
+            return new Segment(last, step);
+        }
+    }
+
+}
@@ -0,0 +1,696 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import io.github.genie.id.generator.core.IdGenerator;
+import io.github.genie.id.generator.core.async.AsyncIdGenerator;
+import io.github.genie.id.generator.core.async.Subscriber;
+import io.github.genie.id.generator.core.async.Subscription;
+import io.github.genie.id.generator.core.auto.AutoConfigurableIdGenerator;
+import io.github.genie.id.generator.core.auto.CachedIdGenerator;
+import io.github.genie.id.generator.core.auto.ExpirableNodeId;
+import io.github.genie.id.generator.core.auto.InitialConfiguration;
+import io.github.genie.id.generator.core.auto.NodeCheckpoint;
+import io.github.genie.id.generator.core.metrics.JmxMetricsRegistry;
+import io.github.genie.id.generator.core.support.OverflowPolicy;
+import io.github.genie.id.generator.core.support.UuidV7Generator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class H2ConfigurationCenterTest {
+
+    private static final Duration NO_RENEWAL = Duration.ofHours(1);
+
+    private ConnectionProvider connectionProvider;
+
+    @BeforeEach
+    void createDatabase() throws Exception {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        connectionProvider = () -> DriverManager.getConnection(url);
+        try (Connection connection = connectionProvider.getConnection()) {
+            H2ConfigurationCenter.createTables(connection);
+        }
+    }
+
+    private H2ConfigurationCenter newCenter(int maxId, int expirySeconds) {
+        return new H2ConfigurationCenter(maxId,
+                JdbcConfigurationCenter.randomKey(),
+                connectionProvider,
+                expirySeconds,
+                NO_RENEWAL,
+                JdbcConfigurationCenter.newService(),
+                new InitialConfiguration(12, 6));
+    }
+
+    @Test
+    void acquiresDistinctIds() {
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ids.add(newCenter(7, 20).acquireNodeId().id()));
+        }
+        assertEquals(8, ids.size());
+    }
+
+    @Test
+    void generatesUniqueIdsAcrossCenters() {
+        IdGenerator first = newCenter(7, 20).getIdGenerator("test");
+        IdGenerator second = newCenter(7, 20).getIdGenerator("test");
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(ids.add(first.nextId()));
+            assertTrue(ids.add(second.nextId()));
+        }
+    }
+
+    @Test
+    void renewalExtendsExpiry() throws InterruptedException {
+        H2ConfigurationCenter center = newCenter(7, 20);
+        ExpirableNodeId before = center.acquireNodeId();
+        Thread.sleep(20);
+        center.keepLock();
+        ExpirableNodeId after = center.acquireNodeId();
+        assertEquals(before.id(), after.id());
+        assertTrue(after.expiry() > before.expiry());
+    }
+
+    @Test
+    void renewsEarlierWhenLeaseIsShort() {
+        H2ConfigurationCenter center = new H2ConfigurationCenter(7,
+                JdbcConfigurationCenter.randomKey(),
+                connectionProvider,
+                1,
+                Duration.ofSeconds(3),
+                JdbcConfigurationCenter.newService(),
+                new InitialConfiguration(12, 6));
+        center.keepLock();
+        long delay = center.renewer.nextRenewalDelay();
+        assertTrue(delay >= JdbcConfigurationCenter.MIN_RENEWAL_DELAY_MILLIS && delay <= 500, "delay " + delay);
+        for (int i = 0; i < 8; i++) {
+            long retry = center.renewer.retryDelay();
+            assertTrue(retry >= 0 && retry <= 3000, "retry " + retry);
+        }
+    }
+
+    @Test
+    void publishesMetrics() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        H2ConfigurationCenter center = new H2ConfigurationCenter(7,
+                "metrics",
+                connectionProvider,
+                20,
+                NO_RENEWAL,
+                JdbcConfigurationCenter.newService(),
+                new InitialConfiguration(12, 6).withMetrics(new JmxMetricsRegistry(server)));
+        IdGenerator generator = center.getIdGenerator("orders");
+        for (int i = 0; i < 1000; i++) {
+            generator.nextId();
+        }
+        generator.fill(new long[100], 0, 100);
+        center.keepLock();
+        // ids are published when the generator moves on to a later millisecond
+        Thread.sleep(2);
+        generator.nextId();
+
+        ObjectName generatorName = new ObjectName(JmxMetricsRegistry.DOMAIN + ":type=Generator,key=\"orders\"");
+        assertEquals(1100L, server.getAttribute(generatorName, "IdsIssued"));
+        ObjectName leaseName = new ObjectName(JmxMetricsRegistry.DOMAIN + ":type=Lease,key=\"metrics\"");
+        assertEquals(1L, server.getAttribute(leaseName, "Renewals"));
+        assertTrue((Long) server.getAttribute(leaseName, "DatabaseRoundTrips") > 0);
+        assertTrue((Long) server.getAttribute(leaseName, "LeaseRemainingMillis") > 0);
+        assertTrue((Long) server.getAttribute(leaseName, "RenewalLatencyP99Micros") > 0);
+    }
+
+    @Test
+    void recreatedCenterPublishesUnderTheSameNames() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        for (int i = 0; i < 2; i++) {
+            try (H2ConfigurationCenter center = new H2ConfigurationCenter(7,
+                    "republished",
+                    connectionProvider,
+                    20,
+                    NO_RENEWAL,
+                    JdbcConfigurationCenter.newService(),
+                    new InitialConfiguration(12, 6).withMetrics(new JmxMetricsRegistry(server)))) {
+                center.getIdGenerator("orders").nextId();
+                Set<ObjectName> names = server.queryNames(new ObjectName(JmxMetricsRegistry.DOMAIN + ":*"), null);
+                assertEquals(new HashSet<>(Arrays.asList(
+                        new ObjectName(JmxMetricsRegistry.DOMAIN + ":type=Generator,key=\"orders\""),
+                        new ObjectName(JmxMetricsRegistry.DOMAIN + ":type=Lease,key=\"republished\""))), names);
+            }
+            assertTrue(server.queryNames(new ObjectName(JmxMetricsRegistry.DOMAIN + ":*"), null).isEmpty());
+        }
+    }
+
+    @Test
+    void resumesLeaseFromCheckpoint(@TempDir Path dir) throws Exception {
+        H2ConfigurationCenter crashed = newCenter(7, 20);
+        newCenter(7, 20);
+        int nodeId = crashed.acquireNodeId().id();
+        long highWater = crashed.now() + 200;
+        Path path = dir.resolve("node.checkpoint");
+        try (NodeCheckpoint checkpoint = NodeCheckpoint.open(path)) {
+            checkpoint.write(new NodeCheckpoint.Entry(crashed.key, nodeId, 0, highWater));
+        }
+
+        H2ConfigurationCenter restarted = new H2ConfigurationCenter(7,
+                JdbcConfigurationCenter.randomKey(),
+                connectionProvider,
+                20,
+                NO_RENEWAL,
+                JdbcConfigurationCenter.newService(),
+                new InitialConfiguration(12, 6).withCheckpoint(path));
+        assertEquals(crashed.key, restarted.key);
+        assertEquals(nodeId, restarted.acquireNodeId().id());
+        IdGenerator generator = restarted.getIdGenerator("test");
+        long id = generator.nextId();
+        assertTrue(((AutoConfigurableIdGenerator) generator).getIdGenerator().getTime(id) > highWater);
+        assertThrows(IllegalStateException.class, () -> NodeCheckpoint.open(path));
+    }
+
+    @Test
+    void checkpointCoversIdsBorrowedAfterTheWrite(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("node.checkpoint");
+        H2ConfigurationCenter crashed = new H2ConfigurationCenter(7,
+                JdbcConfigurationCenter.randomKey(),
+                connectionProvider,
+                20,
+                NO_RENEWAL,
+                JdbcConfigurationCenter.newService(),
+                new InitialConfiguration(12, 6).withCheckpoint(path));
+        AutoConfigurableIdGenerator generator = (AutoConfigurableIdGenerator) crashed.getIdGenerator("test");
+        long last = 0;
+        for (int i = 0; i < 100_000; i++) {
+            last = generator.nextId();
+        }
+        long lastTime = generator.getIdGenerator().getTime(last);
+        // a copy of the file stands in for the one left by a crash, nothing was written since startup
+        Path copy = dir.resolve("crashed.checkpoint");
+        Files.copy(path, copy);
+        try (NodeCheckpoint checkpoint = NodeCheckpoint.open(copy)) {
+            long highWater = checkpoint.read().getHighWaterMillis();
+            assertTrue(highWater >= lastTime);
+            // the unbounded policy may borrow up to the end of the lease
+            assertTrue(highWater >= crashed.acquireNodeId().expiry());
+        }
+
+        // sealed generators issue no more ids, a clean close records their latest one
+        crashed.close();
+        try (NodeCheckpoint checkpoint = NodeCheckpoint.open(path)) {
+            long highWater = checkpoint.read().getHighWaterMillis();
+            assertTrue(highWater >= lastTime);
+            assertTrue(highWater <= Math.max(lastTime, System.currentTimeMillis()) + 1_000);
+        }
+    }
+
+    @Test
+    void checkpointOfBoundedBorrowingStaysNearTheClock(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("node.checkpoint");
+        H2ConfigurationCenter center = new H2ConfigurationCenter(7,
+                JdbcConfigurationCenter.randomKey(),
+                connectionProvider,
+                20,
+                NO_RENEWAL,
+                JdbcConfigurationCenter.newService(),
+                new InitialConfiguration(12, 6, false, OverflowPolicy.borrow(50), Duration.ZERO).withCheckpoint(path));
+        center.ready().join();
+        long now = center.now();
+        Path copy = dir.resolve("copy.checkpoint");
+        Files.copy(path, copy);
+        try (NodeCheckpoint checkpoint = NodeCheckpoint.open(copy)) {
+            long highWater = checkpoint.read().getHighWaterMillis();
+            assertTrue(highWater >= now - 1_000 && highWater <= now + 50, "high water " + (highWater - now));
+        }
+        center.close();
+    }
+
+    @Test
+    void closeReleasesNodeId() {
+        H2ConfigurationCenter first = newCenter(0, 20);
+        IdGenerator generator = first.getIdGenerator("test");
+        long last = 0;
+        for (int i = 0; i < 1000; i++) {
+            last = generator.nextId();
+        }
+        first.close();
+        assertTrue(first.isClosed());
+        assertNull(first.acquireNodeId());
+        assertThrows(RuntimeException.class, generator::nextId);
+
+        H2ConfigurationCenter second = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> newCenter(0, 20));
+        assertEquals(0, second.acquireNodeId().id());
+        assertTrue(second.getIdGenerator("test").nextId() > last);
+        second.close();
+    }
+
+    @Test
+    void closeWithoutIssuedIdsReturnsAtOnce() {
+        H2ConfigurationCenter center = newCenter(0, 20);
+        assertTimeoutPreemptively(Duration.ofSeconds(5), center::close);
+        assertNull(center.acquireNodeId());
+    }
+
+    @Test
+    void closeSealsGeneratorsBuiltOutsideTheCenter() {
+        H2ConfigurationCenter center = newCenter(0, 20);
+        AutoConfigurableIdGenerator external = new AutoConfigurableIdGenerator(center);
+        AutoConfigurableIdGenerator unused = new AutoConfigurableIdGenerator(center);
+        long last = 0;
+        try (CachedIdGenerator cached = new CachedIdGenerator(center, 16, 8)) {
+            for (int i = 0; i < 1000; i++) {
+                last = Math.max(last, external.nextId());
+                last = Math.max(last, cached.nextId());
+            }
+            center.close();
+            assertThrows(IllegalStateException.class, external::nextId);
+            assertThrows(RuntimeException.class, unused::nextId);
+            // ids cached before the close were issued under the lease, the generator behind them is sealed
+            assertThrows(RuntimeException.class, () -> {
+                for (int i = 0; i < 32; i++) {
+                    cached.nextId();
+                }
+            });
+        }
+
+        H2ConfigurationCenter second = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> newCenter(0, 20));
+        assertEquals(0, second.acquireNodeId().id());
+        assertTrue(new AutoConfigurableIdGenerator(second).nextId() > last);
+        second.close();
+    }
+
+    @Test
+    void asyncCallsCompleteOnceLeaseIsAcquired() throws Exception {
+        List<Runnable> startup = new ArrayList<>();
+        H2ConfigurationCenter center = new H2ConfigurationCenter(7,
+                JdbcConfigurationCenter.randomKey(),
+                connectionProvider,
+                20,
+                NO_RENEWAL,
+                JdbcConfigurationCenter.newService(),
+                new InitialConfiguration(12, 6),
+                startup::add);
+        AsyncIdGenerator generator = center.getAsyncIdGenerator("test");
+        CompletableFuture<long[]> first = generator.nextIds(3).toCompletableFuture();
+        CompletableFuture<long[]> second = generator.nextIds(5).toCompletableFuture();
+        assertFalse(first.isDone());
+        assertEquals(2, generator.getPendingCount());
+
+        startup.forEach(Runnable::run);
+        long[] ids = first.get(5, TimeUnit.SECONDS);
+        long[] more = second.get(5, TimeUnit.SECONDS);
+        assertEquals(3, ids.length);
+        assertEquals(5, more.length);
+        assertTrue(ids[2] < more[0]);
+        assertTrue(generator.nextIds(2).toCompletableFuture().isDone());
+    }
+
+    @Test
+    void asyncCallsDoNotWaitForTheLeaseAndCompleteOffTheScheduler() throws Exception {
+        List<Runnable> startup = new ArrayList<>();
+        H2ConfigurationCenter center = new H2ConfigurationCenter(7,
+                JdbcConfigurationCenter.randomKey(),
+                connectionProvider,
+                20,
+                NO_RENEWAL,
+                JdbcConfigurationCenter.newService(),
+                new InitialConfiguration(12, 6, false, OverflowPolicy.UNBOUNDED, Duration.ofSeconds(30)),
+                startup::add);
+        AsyncIdGenerator generator = center.getAsyncIdGenerator("test");
+        // the blocking generator would wait up to the lease wait timeout here
+        CompletableFuture<String> thread = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> generator.nextIds(3).toCompletableFuture())
+                .thenApply(ignored -> Thread.currentThread().getName());
+        assertFalse(thread.isDone());
+
+        startup.forEach(Runnable::run);
+        assertEquals("id-generator-async", thread.get(5, TimeUnit.SECONDS));
+        center.close();
+    }
+
+    @Test
+    void publishesRequestedBlocks() throws Exception {
+        AsyncIdGenerator generator = newCenter(7, 20).getAsyncIdGenerator("test");
+        List<long[]> blocks = new ArrayList<>();
+        Subscription[] subscription = new Subscription[1];
+        generator.blocks(10).subscribe(new Subscriber<long[]>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription[0] = s;
+            }
+
+            @Override
+            public void onNext(long[] item) {
+                blocks.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throw new AssertionError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                throw new AssertionError("ids never run out");
+            }
+        });
+        assertTrue(blocks.isEmpty());
+        subscription[0].request(3);
+        assertEquals(3, blocks.size());
+        subscription[0].request(2);
+        assertEquals(5, blocks.size());
+        Set<Long> ids = new HashSet<>();
+        for (long[] block : blocks) {
+            assertEquals(10, block.length);
+            for (long id : block) {
+                assertTrue(ids.add(id));
+            }
+        }
+        subscription[0].cancel();
+        subscription[0].request(1);
+        assertEquals(5, blocks.size());
+    }
+
+    @Test
+    void expiredIdIsTakenOver() throws Exception {
+        H2ConfigurationCenter first = newCenter(0, 1);
+        ExpirableNodeId leased = first.acquireNodeId();
+        Thread.sleep(1100);
+        H2ConfigurationCenter second = newCenter(0, 1);
+        assertEquals(leased.id(), second.acquireNodeId().id());
+        try (Connection connection = connectionProvider.getConnection()) {
+            assertFalse(first.renewTtl(connection, leased.id(), first.key, first.key, 1));
+            assertTrue(second.renewTtl(connection, leased.id(), second.key, second.key, 1));
+        }
+    }
+
+    @Test
+    void countsTimeInConfiguredTicks() {
+        InitialConfiguration config = new InitialConfiguration(18, 6).withTick(Duration.ofMillis(100));
+        H2ConfigurationCenter center = new H2ConfigurationCenter(7,
+                JdbcConfigurationCenter.randomKey(),
+                connectionProvider,
+                20,
+                NO_RENEWAL,
+                JdbcConfigurationCenter.newService(),
+                config);
+        AutoConfigurableIdGenerator generator = (AutoConfigurableIdGenerator) center.getIdGenerator("test");
+        long before = center.now();
+        long[] ids = new long[100_000];
+        generator.fill(ids, 0, ids.length);
+        long after = center.now();
+        long time = generator.getIdGenerator().getTime(ids[0]);
+        assertEquals(0, (time - center.startStamp()) % 100);
+        assertTrue(time > before - 100 && time <= after, time + " not within [" + before + ", " + after + "]");
+        // 2^18 ids fit into a tick, the burst does not wait for the clock
+        assertEquals(time, generator.getIdGenerator().getTime(ids[ids.length - 1]));
+        assertTrue(generator.getLastTime() >= time + 99);
+        // the table counts ticks of 100 ms from now on
+        assertThrows(IllegalStateException.class, () -> newCenter(7, 20).acquireNodeId());
+    }
+
+    @Test
+    void issuesVersion7UuidsOnTheLeasedNodeId() {
+        H2ConfigurationCenter center = newCenter(7, 20);
+        AutoConfigurableIdGenerator ids = (AutoConfigurableIdGenerator) center.getIdGenerator("test");
+        UuidV7Generator generator = new UuidV7Generator(ids, ids.getLayout());
+        long before = System.currentTimeMillis();
+        long[] pairs = new long[2 * 10_000];
+        generator.fill(pairs, 0, 10_000);
+        Set<UUID> uuids = new HashSet<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            UUID uuid = new UUID(pairs[i], pairs[i + 1]);
+            assertEquals(7, uuid.version());
+            assertEquals(2, uuid.variant());
+            assertTrue(uuids.add(uuid), "duplicate " + uuid);
+            if (i > 0) {
+                // ids of one node keep their order
+                assertTrue(Long.compareUnsigned(pairs[i - 2], pairs[i]) < 0
+                           || pairs[i - 2] == pairs[i] && Long.compareUnsigned(pairs[i - 1], pairs[i + 1]) < 0);
+            }
+        }
+        long time = UuidV7Generator.getTime(pairs[0]);
+        assertTrue(Math.abs(time - before) < 1_000, time + " is not close to " + before);
+        ByteBuffer bytes = ByteBuffer.allocate(16 * 3);
+        generator.fill(bytes, 3);
+        bytes.flip();
+        assertEquals(7, new UUID(bytes.getLong(), bytes.getLong()).version());
+        assertEquals(7, generator.nextUuid().version());
+    }
+
+    @Test
+    void insertsLowestUnusedIdOnce() throws Exception {
+        H2ConfigurationCenter center = newCenter(3, 20);
+        try (Connection connection = connectionProvider.getConnection()) {
+            Integer next = center.insertNextRecord(connection, "other", 20);
+            assertNotNull(next);
+            assertNotEquals(center.acquireNodeId().id(), next.intValue());
+            assertFalse(center.insertRecord(connection, next, "another", 20));
+        }
+    }
+
+    @Test
+    void leasesANodeIdPerKey() {
+        H2ConfigurationCenter first = newCenter(7, 20, new InitialConfiguration(12, 6).withLeasePerKey());
+        H2ConfigurationCenter second = newCenter(7, 20, new InitialConfiguration(12, 6).withLeasePerKey());
+        Set<Integer> nodeIds = new HashSet<>();
+        nodeIds.add(first.acquireNodeId().id());
+        nodeIds.add(second.acquireNodeId().id());
+        List<IdGenerator> generators = new ArrayList<>();
+        for (H2ConfigurationCenter center : new H2ConfigurationCenter[]{first, second}) {
+            for (String key : new String[]{"a", "b"}) {
+                AutoConfigurableIdGenerator generator = (AutoConfigurableIdGenerator) center.getIdGenerator(key);
+                assertTrue(nodeIds.add(generator.getIdGenerator().getNodeId()));
+                generators.add(generator);
+            }
+        }
+        assertUnique(generators);
+    }
+
+    @Test
+    void namespacesKeysOnTheProcessNodeId() {
+        InitialConfiguration config = new InitialConfiguration(12, 6).withNamespaceBits(2);
+        H2ConfigurationCenter first = newCenter(7, 20, config);
+        H2ConfigurationCenter second = newCenter(7, 20, config);
+        List<IdGenerator> generators = new ArrayList<>();
+        for (String key : new String[]{"a", "b", "c", "d"}) {
+            generators.add(first.getIdGenerator(key));
+            generators.add(second.getIdGenerator(key));
+        }
+        assertUnique(generators);
+        assertThrows(IllegalStateException.class, () -> first.getIdGenerator("e"));
+    }
+
+    @Test
+    void keyWaitingForANodeIdHoldsUpNeitherOtherKeysNorClose() throws Exception {
+        // the process and key a lease both ids, key b waits for one to expire
+        H2ConfigurationCenter center = newCenter(1, 20, new InitialConfiguration(12, 6).withLeasePerKey());
+        IdGenerator a = center.getIdGenerator("a");
+        CompletableFuture<IdGenerator> b = CompletableFuture.supplyAsync(() -> center.getIdGenerator("b"));
+        Thread.sleep(100);
+        assertFalse(b.isDone());
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            assertSame(a, center.getIdGenerator("a"));
+            a.nextId();
+        });
+        assertTimeoutPreemptively(Duration.ofSeconds(5), center::close);
+        b.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void renewalReacquiresLostKeyLeasesIndependently() throws Exception {
+        H2ConfigurationCenter center = newCenter(3, 20, new InitialConfiguration(12, 6).withLeasePerKey());
+        center.getIdGenerator("a").nextId();
+        center.getIdGenerator("b").nextId();
+        // another process takes over the rows of both keys, one id is left for them
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "update id_generator_lock set lock_key='stolen' where lock_key<>?")) {
+            statement.setString(1, center.key);
+            assertEquals(2, statement.executeUpdate());
+        }
+        long start = System.nanoTime();
+        assertFalse(center.keepLock());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        assertTrue(center.getLeaseRemainingMillis() > 0);
+
+        // one key leased the free id while the other one waits, holding up neither the renewal nor close
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement statement = connection.prepareStatement("select count(*) from id_generator_lock "
+                     + "where lock_key not in (?,'stolen') and expiry_time>current_timestamp")) {
+            statement.setString(1, center.key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next());
+                assertEquals(1, resultSet.getInt(1));
+            }
+        }
+        assertTimeoutPreemptively(Duration.ofSeconds(5), center::close);
+    }
+
+    @Test
+    void growsAndShrinksTheNodeBlock() {
+        InitialConfiguration config = new InitialConfiguration(8, 3).withNodeBlocks(2);
+        H2ConfigurationCenter center = newCenter(7, 20, config);
+        AutoConfigurableIdGenerator before = (AutoConfigurableIdGenerator) center.getIdGenerator("test");
+        ExpirableNodeId single = center.acquireNodeId();
+        assertEquals(0, single.blockBits());
+        // far more ids than the sequence holds per millisecond, the generator borrows ahead
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(ids.add(before.nextId()));
+        }
+        assertTrue(before.getBorrowedCount() > 0);
+        center.keepLock();
+        ExpirableNodeId block = center.acquireNodeId();
+        assertEquals(1, block.blockBits());
+        assertEquals(0, block.id() % 2);
+        assertTrue(block.id() > single.id() || block.id() + 1 < single.id());
+        assertEquals(3, lockedRows(center.key));
+
+        AutoConfigurableIdGenerator after = new AutoConfigurableIdGenerator(center);
+        assertEquals(1, after.getIdGenerator().getBlockBits());
+
+        // quiet renewals shrink the block again, to an id outside the block in use
+        for (int i = 0; i < JdbcConfigurationCenter.BLOCK_SHRINK_QUIET_RENEWALS; i++) {
+            center.keepLock();
+        }
+        ExpirableNodeId shrunk = center.acquireNodeId();
+        assertEquals(0, shrunk.blockBits());
+        assertTrue(shrunk.id() < block.id() || shrunk.id() > block.id() + 1);
+        assertEquals(4, lockedRows(center.key));
+
+        // generators of every block run side by side until the leases of the earlier blocks end
+        AutoConfigurableIdGenerator latest = new AutoConfigurableIdGenerator(center);
+        assertEquals(shrunk.id(), latest.getIdGenerator().getNodeId());
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(ids.add(before.nextId()));
+            assertTrue(ids.add(after.nextId()));
+            assertTrue(ids.add(latest.nextId()));
+        }
+
+        // closing returns the rows of every block to other nodes
+        center.close();
+        assertEquals(0, lockedRows(center.key));
+        H2ConfigurationCenter other = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> newCenter(7, 20, new InitialConfiguration(8, 3)));
+        int taken = other.acquireNodeId().id();
+        assertTrue(taken == single.id() || taken == shrunk.id() || taken >> 1 == block.id() >> 1, "took " + taken);
+        IdGenerator otherIds = other.getIdGenerator("test");
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(ids.add(otherIds.nextId()));
+        }
+    }
+
+    @Test
+    void blockClaimWaitsForAnOwnerRenewingAfterTheSnapshot() throws Exception {
+        H2ConfigurationCenter owner = newCenter(3, 1);
+        assertEquals(0, owner.acquireNodeId().id());
+        AtomicReference<Future<Boolean>> renewal = new AtomicReference<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        H2ConfigurationCenter claimer = new H2ConfigurationCenter(3,
+                JdbcConfigurationCenter.randomKey(),
+                connectionProvider,
+                20,
+                NO_RENEWAL,
+                JdbcConfigurationCenter.newService(),
+                new InitialConfiguration(12, 2).withNodeBlocks(1)) {
+            @Override
+            protected List<Record> getRecords(Connection connection, int maxId) throws SQLException {
+                List<Record> records = super.getRecords(connection, maxId);
+                // the owner renews its row, which looked expired to the snapshot
+                renewal.set(executor.submit(() -> {
+                    try (Connection other = connectionProvider.getConnection()) {
+                        return owner.renewTtl(other, 0, owner.key, owner.key, 20);
+                    }
+                }));
+                try {
+                    renewal.get().get(300, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // held up by the locked rows
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new IllegalStateException(e);
+                }
+                return records;
+            }
+        };
+        assertEquals(1, claimer.acquireNodeId().id());
+        Thread.sleep(1100);
+
+        boolean claimed = claimer.blockLeaser.acquireBlock(claimer.lease, 0);
+        boolean renewed = renewal.get().get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        // exactly one of them holds the row
+        assertTrue(claimed != renewed, "claimed " + claimed + ", renewed " + renewed);
+        assertEquals(claimed ? 0 : 1, lockedRows(owner.key));
+        claimer.close();
+    }
+
+    private int lockedRows(String key) {
+        try (Connection connection = connectionProvider.getConnection();
+             PreparedStatement statement = connection.prepareStatement("select count(*) from id_generator_lock "
+                     + "where lock_key=? and expiry_time>current_timestamp")) {
+            statement.setString(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next());
+                return resultSet.getInt(1);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private H2ConfigurationCenter newCenter(int maxId, int expirySeconds, InitialConfiguration config) {
+        return new H2ConfigurationCenter(maxId,
+                JdbcConfigurationCenter.randomKey(),
+                connectionProvider,
+                expirySeconds,
+                NO_RENEWAL,
+                JdbcConfigurationCenter.newService(),
+                config);
+    }
+
+    private static void assertUnique(List<IdGenerator> generators) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            for (IdGenerator generator : generators) {
+                long id = generator.nextId();
+                assertTrue(ids.add(id), "duplicate id " + id);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,432 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import io.github.genie.id.generator.core.IdGenerator;
+import io.github.genie.id.generator.core.auto.AutoConfigurableIdGenerator;
+import io.github.genie.id.generator.core.auto.InitialConfiguration;
+import io.github.genie.id.generator.core.support.IdLayout;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs simulated nodes against an embedded H2 database while injecting faults into random holders of a lease:
+ * <ul>
+ *     <li>slow database calls, each statement waits {@link #SLOW_CALL_MILLIS}</li>
+ *     <li>failing database calls, so renewals fail and the lease lapses</li>
+ *     <li>a skewed database time, the node reads the clock of the database off by up to {@code maxSkewMillis}</li>
+ *     <li>kills, the node stops renewing and issuing at once without releasing its node id</li>
+ * </ul>
+ * Every id issued is kept, so the run ends by checking that no id was issued twice and that no node id was
+ * used by two holders for overlapping times. There are fewer node ids than nodes plus abandoned leases, so
+ * restarted nodes wait for leases of killed ones to expire and take them over.
+ */
+final class LeaseChaosHarness {
+
+    static final int SEQUENCE_BITS = 12;
+    static final int NODE_ID_BITS = 5;
+    static final long SLOW_CALL_MILLIS = 150;
+    static final Duration FAULT_DURATION = Duration.ofMillis(1500);
+    static final Duration FAULT_INTERVAL = Duration.ofMillis(100);
+    static final int BATCH = 16;
+
+    private final int nodes;
+    private final int maxId;
+    private final Duration duration;
+    private final long maxSkewMillis;
+    private final long seed;
+    private final int expirySeconds = 1;
+    private final Duration renewalPeriod = Duration.ofMillis(200);
+    private final List<Holder> holders = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<Long> acquisitionNanos = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> stallNanos = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger failedStarts = new AtomicInteger();
+    private final Map<String, AtomicInteger> faults = new ConcurrentHashMap<>();
+    private ConnectionProvider database;
+
+    /**
+     * @param nodes how many nodes run at a time, {@code maxId + 1} node ids are shared among them
+     */
+    LeaseChaosHarness(int nodes, int maxId, Duration duration, long maxSkewMillis, long seed) {
+        if (maxId >= 1 << NODE_ID_BITS) {
+            throw new IllegalArgumentException("maxId must be below " + (1 << NODE_ID_BITS));
+        }
+        this.nodes = nodes;
+        this.maxId = maxId;
+        this.duration = duration;
+        this.maxSkewMillis = maxSkewMillis;
+        this.seed = seed;
+    }
+
+    Report run() throws Exception {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        database = () -> DriverManager.getConnection(url);
+        try (Connection connection = database.getConnection()) {
+            H2ConfigurationCenter.createTables(connection);
+        }
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            Thread thread = new Thread(() -> runNode(deadline), "chaos-node-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+        injectFaults(deadline);
+        for (Thread thread : threads) {
+            thread.join(duration.toMillis() + TimeUnit.SECONDS.toMillis(30));
+        }
+        for (Holder holder : holders) {
+            holder.kill();
+        }
+        return verify();
+    }
+
+    private void runNode(long deadline) {
+        while (System.nanoTime() - deadline < 0) {
+            Holder holder = start(deadline);
+            if (holder != null) {
+                issue(holder, deadline);
+            }
+        }
+    }
+
+    /**
+     * Starts a node the way a process does, the acquisition latency runs until it holds a node id.
+     */
+    private Holder start(long deadline) {
+        Holder holder = new Holder();
+        long start = System.nanoTime();
+        try {
+            holder.center = newCenter(holder);
+        } catch (RuntimeException e) {
+            holder.kill();
+            failedStarts.incrementAndGet();
+            LockSupport.parkNanos(renewalPeriod.toNanos());
+            return null;
+        }
+        acquisitionNanos.add(System.nanoTime() - start);
+        holder.generator = holder.center.getIdGenerator("chaos");
+        holders.add(holder);
+        return System.nanoTime() - deadline < 0 ? holder : null;
+    }
+
+    private JdbcConfigurationCenter newCenter(Holder holder) {
+        List<Runnable> startup = new ArrayList<>();
+        ChaosCenter center = new ChaosCenter(maxId, database(holder), expirySeconds, renewalPeriod,
+                holder.renewals, startup::add);
+        center.faults = holder;
+        startup.forEach(Runnable::run);
+        try {
+            return center.ready().join();
+        } catch (RuntimeException e) {
+            holder.renewals.shutdownNow();
+            throw e;
+        }
+    }
+
+    /**
+     * Issues batches until the holder is killed, the time from the first failure to the next batch is a stall.
+     */
+    private void issue(Holder holder, long deadline) {
+        long stalledSince = 0;
+        while (!holder.dead && System.nanoTime() - deadline < 0) {
+            try {
+                long[] ids = holder.generator.nextIds(BATCH);
+                holder.record(ids);
+                if (stalledSince != 0) {
+                    stallNanos.add(System.nanoTime() - stalledSince);
+                    stalledSince = 0;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            } catch (IllegalStateException e) {
+                if (stalledSince == 0) {
+                    stalledSince = System.nanoTime();
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            }
+        }
+    }
+
+    private void injectFaults(long deadline) {
+        Random random = new Random(seed);
+        while (System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(FAULT_INTERVAL.toNanos());
+            List<Holder> live = holders.stream().filter(h -> !h.dead).collect(Collectors.toList());
+            if (live.isEmpty()) {
+                continue;
+            }
+            Holder holder = live.get(random.nextInt(live.size()));
+            long until = System.nanoTime() + FAULT_DURATION.toNanos();
+            switch (random.nextInt(4)) {
+                case 0:
+                    holder.kill();
+                    count("kill");
+                    break;
+                case 1:
+                    holder.slowUntil = until;
+                    count("slow");
+                    break;
+                case 2:
+                    holder.failUntil = until;
+                    count("fail");
+                    break;
+                default:
+                    holder.skewMillis = maxSkewMillis == 0 ? 0 : random.nextLong() % (maxSkewMillis + 1);
+                    count("skew");
+                    break;
+            }
+        }
+    }
+
+    private void count(String fault) {
+        faults.computeIfAbsent(fault, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private Report verify() {
+        Holder any = holders.stream().filter(h -> h.center != null).findFirst()
+                .orElseThrow(() -> new IllegalStateException("no node acquired a node id"));
+        IdLayout layout = new IdLayout(SEQUENCE_BITS, NODE_ID_BITS, any.center.startStamp());
+        long total = holders.stream().mapToLong(h -> h.size).sum();
+        long[] all = new long[(int) total];
+        int offset = 0;
+        for (Holder holder : holders) {
+            System.arraycopy(holder.ids, 0, all, offset, holder.size);
+            offset += holder.size;
+        }
+        Arrays.sort(all);
+        long duplicates = 0;
+        for (int i = 1; i < all.length; i++) {
+            if (all[i] == all[i - 1]) {
+                duplicates++;
+            }
+        }
+        return new Report(total, duplicates, outOfLease(layout), holders.size(), failedStarts.get(),
+                sorted(acquisitionNanos), sorted(stallNanos),
+                faults.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().get())));
+    }
+
+    /**
+     * Counts the ids issued by one holder in a millisecond another holder issued ids with the same node id in.
+     * Both took the node id for theirs at that time, so at least one of them issued outside its lease.
+     */
+    private long outOfLease(IdLayout layout) {
+        Map<Long, Holder> owners = new HashMap<>();
+        Set<Long> shared = new HashSet<>();
+        for (Holder holder : holders) {
+            for (int i = 0; i < holder.size; i++) {
+                long slot = slot(layout, holder.ids[i]);
+                Holder owner = owners.putIfAbsent(slot, holder);
+                if (owner != null && owner != holder) {
+                    shared.add(slot);
+                }
+            }
+        }
+        long outOfLease = 0;
+        for (Holder holder : holders) {
+            for (int i = 0; i < holder.size; i++) {
+                if (shared.contains(slot(layout, holder.ids[i]))) {
+                    outOfLease++;
+                }
+            }
+        }
+        return outOfLease;
+    }
+
+    private static long slot(IdLayout layout, long id) {
+        return layout.compose(layout.time(id), 0, layout.nodeId(id));
+    }
+
+    private static long[] sorted(ConcurrentLinkedQueue<Long> values) {
+        long[] sorted = values.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Connections of a holder run its faults before each call on the connection or its statements.
+     */
+    private ConnectionProvider database(Holder holder) {
+        return () -> {
+            holder.check();
+            return proxy(Connection.class, database.getConnection(), holder);
+        };
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Holder holder) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (!"close".equals(method.getName()) && !"isClosed".equals(method.getName())) {
+                holder.check();
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return result instanceof Statement ? proxyStatement(method, (Statement) result, holder) : result;
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object proxyStatement(Method method, Statement statement, Holder holder) {
+        @SuppressWarnings("unchecked")
+        Class<Statement> type = (Class<Statement>) method.getReturnType();
+        return proxy(type, statement, holder);
+    }
+
+    /**
+     * One life of a node, from its start to its kill.
+     */
+    final class Holder {
+        final ScheduledExecutorService renewals = JdbcConfigurationCenter.newService();
+        volatile JdbcConfigurationCenter center;
+        volatile IdGenerator generator;
+        volatile boolean dead;
+        volatile long slowUntil;
+        volatile long failUntil;
+        volatile long skewMillis;
+        long[] ids = new long[1024];
+        int size;
+
+        void record(long[] batch) {
+            if (size + batch.length > ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            System.arraycopy(batch, 0, ids, size, batch.length);
+            size += batch.length;
+        }
+
+        void check() throws SQLException {
+            if (dead) {
+                throw new SQLException("node killed");
+            }
+            long now = System.nanoTime();
+            if (now - failUntil < 0) {
+                throw new SQLException("injected failure");
+            }
+            if (now - slowUntil < 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(SLOW_CALL_MILLIS));
+            }
+        }
+
+        /**
+         * Abandons the lease: renewals stop, database calls fail and the node issues nothing more.
+         */
+        void kill() {
+            dead = true;
+            renewals.shutdownNow();
+            IdGenerator generator = this.generator;
+            if (generator instanceof AutoConfigurableIdGenerator) {
+                ((AutoConfigurableIdGenerator) generator).seal();
+            }
+        }
+    }
+
+    /**
+     * Reads the database time through the skew of its holder.
+     */
+    static final class ChaosCenter extends H2ConfigurationCenter {
+        volatile Holder faults;
+
+        ChaosCenter(int maxId, ConnectionProvider connectionProvider, int expirySeconds, Duration renewalPeriod,
+                    ScheduledExecutorService renewals, Executor startupExecutor) {
+            super(maxId, randomKey(), connectionProvider, expirySeconds, renewalPeriod, renewals,
+                    new InitialConfiguration(SEQUENCE_BITS, NODE_ID_BITS), startupExecutor);
+        }
+
+        @Override
+        protected long getDbTime(Connection connection) throws SQLException {
+            Holder faults = this.faults;
+            return super.getDbTime(connection) + (faults == null ? 0 : faults.skewMillis);
+        }
+    }
+
+    static final class Report {
+        final long ids;
+        final long duplicates;
+        final long outOfLease;
+        final int holders;
+        final int failedStarts;
+        final long[] acquisitionNanos;
+        final long[] stallNanos;
+        final Map<String, Integer> faults;
+
+        Report(long ids, long duplicates, long outOfLease, int holders, int failedStarts,
+               long[] acquisitionNanos, long[] stallNanos, Map<String, Integer> faults) {
+            this.ids = ids;
+            this.duplicates = duplicates;
+            this.outOfLease = outOfLease;
+            this.holders = holders;
+            this.failedStarts = failedStarts;
+            this.acquisitionNanos = acquisitionNanos;
+            this.stallNanos = stallNanos;
+            this.faults = faults;
+        }
+
+        long acquisitionMillis(double quantile) {
+            return quantile(acquisitionNanos, quantile);
+        }
+
+        long stallMillis(double quantile) {
+            return quantile(stallNanos, quantile);
+        }
+
+        private static long quantile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sorted.length - 1, Math.max(0, Math.ceil(quantile * sorted.length) - 1));
+            return TimeUnit.NANOSECONDS.toMillis(sorted[index]);
+        }
+
+        @Override
+        public String toString() {
+            return ids + " ids from " + holders + " holders (" + failedStarts + " failed starts), "
+                   + duplicates + " duplicates, " + outOfLease + " out of lease; faults " + faults
+                   + "; acquisition p50 " + acquisitionMillis(0.5) + " ms, p99 " + acquisitionMillis(0.99)
+                   + " ms, max " + acquisitionMillis(1) + " ms; " + stallNanos.length + " stalls, p50 "
+                   + stallMillis(0.5) + " ms, max " + stallMillis(1) + " ms";
+        }
+    }
+
+    /**
+     * Runs a longer campaign than the test: {@code nodes maxId seconds maxSkewMillis seed}.
+     */
+    public static void main(String[] args) throws Exception {
+        Function<Integer, String> arg = i -> args.length > i ? args[i] : null;
+        int nodes = arg.apply(0) == null ? 24 : Integer.parseInt(arg.apply(0));
+        int maxId = arg.apply(1) == null ? 27 : Integer.parseInt(arg.apply(1));
+        long seconds = arg.apply(2) == null ? 60 : Long.parseLong(arg.apply(2));
+        long skew = arg.apply(3) == null ? 20 : Long.parseLong(arg.apply(3));
+        long seed = arg.apply(4) == null ? System.nanoTime() : Long.parseLong(arg.apply(4));
+        Report report = new LeaseChaosHarness(nodes, maxId, Duration.ofSeconds(seconds), skew, seed).run();
+        System.out.println("seed " + seed + ": " + report);
+    }
+
+}
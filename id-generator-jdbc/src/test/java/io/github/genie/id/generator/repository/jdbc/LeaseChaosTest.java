@@ -0,0 +1,25 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaseChaosTest {
+
+    @Test
+    void leasesStayExclusiveUnderFaults() throws Exception {
+        LeaseChaosHarness.Report report = new LeaseChaosHarness(24, 27, Duration.ofSeconds(8), 20, 42).run();
+        String summary = report.toString();
+        assertEquals(0, report.duplicates, summary);
+        assertEquals(0, report.outOfLease, summary);
+        assertTrue(report.ids > 200_000, summary);
+        // a start waits at most for a killed lease to expire, one second, plus the faults of the node itself
+        assertTrue(report.acquisitionMillis(0.99) < 5_000, summary);
+        // a stall lasts the fault, then up to a renewal period and a reacquisition
+        assertTrue(report.stallMillis(1) < LeaseChaosHarness.FAULT_DURATION.toMillis() + 5_000, summary);
+    }
+
+}
@@ -0,0 +1,112 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import io.github.genie.id.generator.core.auto.InitialConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Runs the claim statements of the MySQL dialect on H2 in MySQL mode, the center itself is never started.
+ */
+class MysqlSkipLockedConfigurationCenterTest {
+
+    private static final int MAX_ID = 7;
+
+    private ConnectionProvider connectionProvider;
+    private MysqlSkipLockedConfigurationCenter center;
+
+    @BeforeEach
+    void createDatabase() throws Exception {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        connectionProvider = () -> DriverManager.getConnection(url);
+        try (Connection connection = connectionProvider.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table `id_generator_lock` (" +
+                              "`id` int not null primary key," +
+                              "`expiry_time` datetime(3) not null," +
+                              "`lock_key` varchar(64) not null)");
+        }
+        center = new MysqlSkipLockedConfigurationCenter(MAX_ID,
+                JdbcConfigurationCenter.randomKey(),
+                connectionProvider,
+                20,
+                Duration.ofHours(1),
+                JdbcConfigurationCenter.newService(),
+                new InitialConfiguration(12, 3),
+                command -> {
+                });
+    }
+
+    @Test
+    void seedsEverySlotOnce() throws Exception {
+        try (Connection connection = connectionProvider.getConnection()) {
+            center.seedSlots(connection, MAX_ID);
+            center.seedSlots(connection, MAX_ID);
+            assertEquals(MAX_ID + 1, count(connection, "select count(*) from id_generator_lock"));
+        }
+    }
+
+    @Test
+    void claimStartsAtTheOffsetOfTheKeyAndWraps() throws Exception {
+        String key = keyWithOffset(5);
+        try (Connection connection = connectionProvider.getConnection()) {
+            center.seedSlots(connection, MAX_ID);
+            assertEquals(5, claim(connection, key));
+            // the slots from the offset to the end are live, the claim wraps to the start
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("update id_generator_lock set lock_key='other'," +
+                                        "expiry_time=dateadd(SECOND,20,current_timestamp) where id>=5");
+            }
+            assertEquals(0, claim(connection, key));
+        }
+    }
+
+    @Test
+    void concurrentClaimersSkipLockedSlots() throws Exception {
+        String key = keyWithOffset(MAX_ID);
+        try (Connection first = connectionProvider.getConnection();
+             Connection second = connectionProvider.getConnection()) {
+            center.seedSlots(first, MAX_ID);
+            first.setAutoCommit(false);
+            second.setAutoCommit(false);
+            assertEquals(MAX_ID, claim(first, key));
+            // the second claimer skips the slot the first one holds and wraps
+            assertEquals(0, claim(second, key));
+            first.rollback();
+            second.rollback();
+        }
+    }
+
+    private int claim(Connection connection, String key) throws SQLException {
+        Record record = center.getExpiredRecord(connection, MAX_ID, key);
+        assertNotNull(record);
+        return record.getId();
+    }
+
+    private static String keyWithOffset(int offset) {
+        for (int i = 0; ; i++) {
+            String key = "key-" + i;
+            if (Math.floorMod(key.hashCode(), MAX_ID + 1) == offset) {
+                return key;
+            }
+        }
+    }
+
+    private static int count(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RenewalChannelTest {
+
+    private final String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private RenewalChannel newChannel() {
+        return new RenewalChannel(() -> {
+            connections.incrementAndGet();
+            return DriverManager.getConnection(url);
+        });
+    }
+
+    @Test
+    void keepsConnectionAndStatements() throws SQLException {
+        RenewalChannel channel = newChannel();
+        PreparedStatement[] statements = new PreparedStatement[2];
+        for (int i = 0; i < statements.length; i++) {
+            int index = i;
+            channel.doInConnection(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement("select ?")) {
+                    statement.setInt(1, index);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        resultSet.next();
+                        assertEquals(index, resultSet.getInt(1));
+                    }
+                    statements[index] = statement;
+                }
+            });
+        }
+        assertSame(statements[0], statements[1]);
+        assertEquals(1, connections.get());
+        assertEquals(1, channel.getCachedStatements());
+        channel.close();
+    }
+
+    @Test
+    void reconnectsAfterFailure() throws SQLException {
+        RenewalChannel channel = newChannel();
+        assertThrows(SQLException.class, () -> channel.doInConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("select * from missing_table")) {
+                statement.executeQuery();
+            }
+        }));
+        assertEquals(0, channel.getCachedStatements());
+        channel.doInConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("select 1")) {
+                statement.executeQuery().close();
+            }
+        });
+        assertEquals(2, connections.get());
+        assertEquals(2, channel.getOpenedConnections());
+        channel.close();
+    }
+
+}
@@ -0,0 +1,108 @@
+package io.github.genie.id.generator.repository.jdbc;
+
+import io.github.genie.id.generator.core.IdGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentIdGeneratorFactoryTest {
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private ConnectionProvider connectionProvider;
+
+    @BeforeEach
+    void createDatabase() throws Exception {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        connectionProvider = () -> {
+            connections.incrementAndGet();
+            return DriverManager.getConnection(url);
+        };
+        try (Connection connection = connectionProvider.getConnection()) {
+            SegmentIdGeneratorFactory.createTables(connection);
+        }
+    }
+
+    @Test
+    void issuesDenseIncreasingIds() {
+        IdGenerator generator = new SegmentIdGeneratorFactory(connectionProvider, 10, 10, Duration.ofHours(1))
+                .getIdGenerator("orders");
+        for (long expected = 1; expected <= 100; expected++) {
+            assertEquals(expected, generator.nextId());
+        }
+        long[] ids = generator.nextIds(25);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(101 + i, ids[i]);
+        }
+    }
+
+    @Test
+    void keysAreIndependent() {
+        SegmentIdGeneratorFactory factory = new SegmentIdGeneratorFactory(connectionProvider);
+        assertEquals(1, factory.getIdGenerator("a").nextId());
+        assertEquals(1, factory.getIdGenerator("b").nextId());
+        assertEquals(2, factory.getIdGenerator("a").nextId());
+    }
+
+    @Test
+    void factoriesShareKeysWithoutDuplicates() throws Exception {
+        List<IdGenerator> generators = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            generators.add(new SegmentIdGeneratorFactory(connectionProvider, 16, 256, Duration.ofMillis(50))
+                    .getIdGenerator("orders"));
+        }
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                IdGenerator generator = generators.get(t % generators.size());
+                futures.add(executor.submit(() -> {
+                    long previous = 0;
+                    for (int i = 0; i < 20_000; i++) {
+                        long id = generator.nextId();
+                        assertTrue(ids.add(id), "duplicate " + id);
+                        assertTrue(id > previous, id + " after " + previous);
+                        previous = id;
+                    }
+                    return previous;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(160_000, ids.size());
+    }
+
+    @Test
+    void stepFollowsConsumption() {
+        SegmentIdGeneratorFactory factory =
+                new SegmentIdGeneratorFactory(connectionProvider, 10, 100_000, Duration.ofSeconds(10));
+        SegmentIdGeneratorFactory.SegmentIdGenerator generator = factory.getIdGenerator("orders");
+        generator.nextId();
+        int before = connections.get();
+        for (int i = 0; i < 200_000; i++) {
+            generator.nextId();
+        }
+        assertTrue(generator.getStep() > 10_000, "step " + generator.getStep());
+        assertTrue(connections.get() - before < 30, "round trips " + (connections.get() - before));
+    }
+
+}
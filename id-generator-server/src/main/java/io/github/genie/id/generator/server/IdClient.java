@@ -0,0 +1,166 @@
+package io.github.genie.id.generator.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A blocking client of {@link IdServer}. Requests may be pipelined: {@link #send(String, int)} any number of
+ * them, then {@link #receive()} their responses in the same order. Not thread safe.
+ */
+public class IdClient implements AutoCloseable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer in = ByteBuffer.allocate(1 << 16);
+    private int nextRequestId;
+    private String lastKey;
+    private byte[] lastKeyBytes;
+
+    public IdClient(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        in.flip();
+    }
+
+    /**
+     * @return the id of the request, echoed by its response
+     */
+    public int send(String key, int count) throws IOException {
+        if (!key.equals(lastKey)) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > IdProtocol.MAX_KEY_LENGTH) {
+                throw new IllegalArgumentException("keys are limited to " + IdProtocol.MAX_KEY_LENGTH + " bytes");
+            }
+            lastKey = key;
+            lastKeyBytes = bytes;
+        }
+        int requestId = nextRequestId++;
+        out.clear();
+        out.put(IdProtocol.OP_NEXT_IDS)
+                .putInt(requestId)
+                .putShort((short) lastKeyBytes.length)
+                .put(lastKeyBytes)
+                .putInt(count);
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        return requestId;
+    }
+
+    /**
+     * Waits for the response of the oldest request not received yet.
+     */
+    public Response receive() throws IOException {
+        fill(IdProtocol.RESPONSE_HEADER);
+        byte status = in.get();
+        int requestId = in.getInt();
+        switch (status) {
+            case IdProtocol.PACKED: {
+                fill(Integer.BYTES);
+                int count = in.getInt();
+                fill(count * Long.BYTES);
+                long[] ids = new long[count];
+                in.asLongBuffer().get(ids);
+                in.position(in.position() + count * Long.BYTES);
+                return new Response(requestId, ids, null);
+            }
+            case IdProtocol.RANGE: {
+                fill(Integer.BYTES + 2 * Long.BYTES);
+                int count = in.getInt();
+                long first = in.getLong();
+                long stride = in.getLong();
+                long[] ids = new long[count];
+                for (int i = 0; i < count; i++) {
+                    ids[i] = first + i * stride;
+                }
+                return new Response(requestId, ids, null);
+            }
+            case IdProtocol.ERROR: {
+                fill(Short.BYTES);
+                int length = in.getShort() & 0xffff;
+                fill(length);
+                byte[] message = new byte[length];
+                in.get(message);
+                return new Response(requestId, null, new String(message, StandardCharsets.UTF_8));
+            }
+            default:
+                throw new ProtocolException("unknown status " + status);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the server failed to issue the ids
+     */
+    public long[] nextIds(String key, int count) throws IOException {
+        send(key, count);
+        return receive().getIds();
+    }
+
+    /**
+     * Reads until at least {@code bytes} bytes are buffered.
+     */
+    private void fill(int bytes) throws IOException {
+        if (in.remaining() >= bytes) {
+            return;
+        }
+        if (in.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(bytes, in.capacity() * 2));
+            larger.put(in);
+            in = larger;
+        } else {
+            in.compact();
+        }
+        while (in.position() < bytes) {
+            if (channel.read(in) < 0) {
+                throw new EOFException("connection closed by the server");
+            }
+        }
+        in.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static final class Response {
+        private final int requestId;
+        private final long[] ids;
+        private final String error;
+
+        Response(int requestId, long[] ids, String error) {
+            this.requestId = requestId;
+            this.ids = ids;
+            this.error = error;
+        }
+
+        public int getRequestId() {
+            return requestId;
+        }
+
+        /**
+         * @throws IllegalStateException if the server failed to issue the ids
+         */
+        public long[] getIds() {
+            if (error != null) {
+                throw new IllegalStateException(error);
+            }
+            return ids;
+        }
+
+        /**
+         * @return the failure reported by the server, or {@code null}
+         */
+        public String getError() {
+            return error;
+        }
+    }
+
+}
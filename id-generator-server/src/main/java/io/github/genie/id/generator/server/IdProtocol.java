@@ -0,0 +1,69 @@
+package io.github.genie.id.generator.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary protocol of {@link IdServer}, all numbers big-endian.
+ * <pre>
+ * request:  u8 opcode=1 | i32 request id | u16 key length | key (UTF-8) | i32 count
+ * response: u8 status | i32 request id | then by status
+ *           PACKED: i32 count | i64 * count
+ *           RANGE:  i32 count | i64 first | i64 stride     the ids are first + i * stride
+ *           ERROR:  u16 message length | message (UTF-8)
+ * </pre>
+ * Requests may be pipelined, responses come back in request order.
+ */
+final class IdProtocol {
+
+    static final byte OP_NEXT_IDS = 1;
+
+    static final byte PACKED = 0;
+    static final byte RANGE = 1;
+    static final byte ERROR = 2;
+
+    static final int MAX_KEY_LENGTH = 255;
+    static final int MAX_COUNT = 1 << 16;
+
+    static final int REQUEST_HEADER = 1 + Integer.BYTES + Short.BYTES;
+    static final int RESPONSE_HEADER = 1 + Integer.BYTES;
+    static final int RANGE_RESPONSE = RESPONSE_HEADER + Integer.BYTES + 2 * Long.BYTES;
+
+    private IdProtocol() {
+    }
+
+    static int packedResponse(int count) {
+        return RESPONSE_HEADER + Integer.BYTES + count * Long.BYTES;
+    }
+
+    /**
+     * @return the common difference of {@code ids[0..count)}, or 0 if they are no arithmetic sequence
+     */
+    static long stride(long[] ids, int count) {
+        if (count < 2) {
+            return 1;
+        }
+        long stride = ids[1] - ids[0];
+        if (stride <= 0) {
+            return 0;
+        }
+        for (int i = 2; i < count; i++) {
+            if (ids[i] - ids[i - 1] != stride) {
+                return 0;
+            }
+        }
+        return stride;
+    }
+
+    static void putIds(ByteBuffer out, int requestId, long[] ids, int count) {
+        long stride = stride(ids, count);
+        if (stride > 0 && count > 2) {
+            out.put(RANGE).putInt(requestId).putInt(count).putLong(ids[0]).putLong(stride);
+        } else {
+            out.put(PACKED).putInt(requestId).putInt(count);
+            for (int i = 0; i < count; i++) {
+                out.putLong(ids[i]);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,767 @@
+package io.github.genie.id.generator.server;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.github.genie.id.generator.core.IdGenerator;
+import io.github.genie.id.generator.core.IdGeneratorFactory;
+import io.github.genie.id.generator.core.log.Log;
+import io.github.genie.id.generator.core.support.DistributedIdGenerator;
+import io.github.genie.id.generator.repository.jdbc.ConnectionProvider;
+import io.github.genie.id.generator.repository.jdbc.H2ConfigurationCenter;
+import io.github.genie.id.generator.repository.jdbc.MysqlConfigurationCenter;
+import io.github.genie.id.generator.repository.jdbc.PostgresConfigurationCenter;
+import io.github.genie.id.generator.repository.jdbc.SegmentIdGeneratorFactory;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the ids of an {@link IdGeneratorFactory} over TCP, for services that cannot embed a generator.
+ * Connections are spread over one selector thread per worker and speak the pipelined binary protocol of
+ * {@link IdProtocol}. A connection whose first byte is {@code G} is taken for a plain HTTP {@code GET}
+ * instead, which serves {@code /ids/{key}?count=n} and {@code /stats} for debugging.
+ * <p>
+ * Generators are created and ids generated on an executor, as the generators of a configuration center or a
+ * segment factory may block on the database. A connection hands its pipelined requests over in batches, one at
+ * a time, so responses keep their order while the selector goes on serving the other connections. A factory
+ * whose generators never block, as those of a fixed node id, may be served on the selector threads by passing
+ * {@code Runnable::run}.
+ */
+public class IdServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 7070;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * Requests are left unread while a connection has this many response bytes its client has not taken.
+     */
+    private static final int MAX_PENDING_OUTPUT = 1 << 22;
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    private static final Log log = Log.get(IdServer.class);
+
+    private final IdGeneratorFactory factory;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final ServerSocketChannel serverChannel;
+    private final Worker[] workers;
+    private final Thread acceptor;
+    private final Map<String, IdGenerator> generators = new ConcurrentHashMap<>();
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder ids = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile boolean closed;
+
+    public IdServer(IdGeneratorFactory factory, int port) throws IOException {
+        this(factory, new InetSocketAddress(port), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Generates ids on a cached pool of daemon threads, shut down on close.
+     */
+    public IdServer(IdGeneratorFactory factory, InetSocketAddress address, int workers) throws IOException {
+        this(factory, address, workers, Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "id-server-generator");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * @param executor creates generators and generates ids, it is not shut down on close
+     */
+    public IdServer(IdGeneratorFactory factory, InetSocketAddress address, int workers, Executor executor)
+            throws IOException {
+        this(factory, address, workers, executor, false);
+    }
+
+    private IdServer(IdGeneratorFactory factory, InetSocketAddress address, int workers, Executor executor,
+                     boolean owned) throws IOException {
+        this.factory = factory;
+        this.executor = executor;
+        this.ownedExecutor = owned ? (ExecutorService) executor : null;
+        if (workers <= 0) {
+            shutdownExecutor();
+            throw new IllegalArgumentException("workers must be positive");
+        }
+        this.serverChannel = ServerSocketChannel.open();
+        this.workers = new Worker[workers];
+        try {
+            serverChannel.bind(address, 1024);
+            for (int i = 0; i < workers; i++) {
+                this.workers[i] = new Worker(Selector.open(), "id-server-worker-" + i);
+            }
+        } catch (IOException e) {
+            closeWorkers();
+            serverChannel.close();
+            shutdownExecutor();
+            throw e;
+        }
+        for (Worker worker : this.workers) {
+            worker.thread.start();
+        }
+        acceptor = new Thread(this::accept, "id-server-acceptor");
+        acceptor.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new IllegalStateException("server is closed", e);
+        }
+    }
+
+    public long getConnectionCount() {
+        return connections.sum();
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getIdCount() {
+        return ids.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    /**
+     * Stops accepting, then closes every connection, responses not yet sent are dropped.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            log.error("close server channel failed", e);
+        }
+        closeWorkers();
+        join(acceptor);
+        for (Worker worker : workers) {
+            if (worker != null) {
+                join(worker.thread);
+            }
+        }
+        shutdownExecutor();
+    }
+
+    private void shutdownExecutor() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private void closeWorkers() {
+        for (Worker worker : workers) {
+            if (worker != null) {
+                worker.selector.wakeup();
+                if (!worker.thread.isAlive()) {
+                    worker.closeAll();
+                }
+            }
+        }
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void accept() {
+        int next = 0;
+        while (!closed) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                workers[next].register(channel);
+                next = (next + 1) % workers.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (!closed) {
+                    log.error("accept failed", e);
+                }
+            }
+        }
+    }
+
+    private IdGenerator generator(String key) {
+        return generators.computeIfAbsent(key, factory::getIdGenerator);
+    }
+
+    private String stats() {
+        return "connections " + getConnectionCount() + "\n"
+               + "requests " + getRequestCount() + "\n"
+               + "ids " + getIdCount() + "\n"
+               + "errors " + getErrorCount() + "\n";
+    }
+
+    private final class Worker implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+        private final Queue<Connection> handled = new ConcurrentLinkedQueue<>();
+
+        Worker(Selector selector, String name) {
+            this.selector = selector;
+            this.thread = new Thread(this, name);
+        }
+
+        void register(SocketChannel channel) {
+            registrations.add(channel);
+            selector.wakeup();
+        }
+
+        /**
+         * Hands a connection whose requests have been handled back to the selector, at once if the executor ran
+         * them on it.
+         */
+        void handled(Connection connection) {
+            if (Thread.currentThread() == thread) {
+                connection.handledInline = true;
+            } else {
+                handled.add(connection);
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = registrations.poll()) != null) {
+                        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                        key.attach(new Connection(this, channel, key));
+                        connections.increment();
+                    }
+                    Connection connection;
+                    while ((connection = handled.poll()) != null) {
+                        connection.resume();
+                    }
+                    Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                    while (selected.hasNext()) {
+                        SelectionKey key = selected.next();
+                        selected.remove();
+                        connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isWritable()) {
+                                connection.write();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            connection.drop(e);
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (!closed) {
+                    log.error("selector failed", e);
+                }
+            } finally {
+                closeAll();
+            }
+        }
+
+        void closeAll() {
+            if (!selector.isOpen()) {
+                return;
+            }
+            for (SelectionKey key : selector.keys()) {
+                ((Connection) key.attachment()).close();
+            }
+            SocketChannel channel;
+            while ((channel = registrations.poll()) != null) {
+                closeQuietly(channel);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.error("close selector failed", e);
+            }
+        }
+    }
+
+    /**
+     * While its requests are being handled on the executor, a connection neither reads nor handles more, the
+     * handling thread owns {@code in} from its position to {@code framesEnd}, {@code responses} and the
+     * generator cache. The selector takes them back once the connection is handed back by its worker.
+     */
+    private final class Connection {
+        private final Worker worker;
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        private ByteBuffer responses = ByteBuffer.allocate(BUFFER_SIZE);
+        private long[] buffer = new long[64];
+        private byte[] lastKey = new byte[0];
+        private IdGenerator lastGenerator;
+        private Boolean http;
+        private int framesEnd;
+        private boolean handling;
+        private boolean handledInline;
+        private boolean closing;
+        private boolean dropped;
+
+        Connection(Worker worker, SocketChannel channel, SelectionKey key) {
+            this.worker = worker;
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            write();
+        }
+
+        /**
+         * Flushes responses, then hands the requests read meanwhile, or parked while the output was over its
+         * limit, to the executor.
+         */
+        void write() throws IOException {
+            do {
+                out.flip();
+                channel.write(out);
+                out.compact();
+                if (closing && out.position() == 0) {
+                    close();
+                    return;
+                }
+            } while (!handling && !closing && out.position() < MAX_PENDING_OUTPUT && dispatch());
+            int reading = !handling && !closing && out.position() < MAX_PENDING_OUTPUT ? SelectionKey.OP_READ : 0;
+            key.interestOps((out.position() > 0 ? SelectionKey.OP_WRITE : 0) | reading);
+        }
+
+        /**
+         * Takes the responses of the handled requests and goes on with the connection.
+         */
+        void resume() {
+            if (dropped) {
+                return;
+            }
+            try {
+                takeResponses();
+                write();
+            } catch (IOException | RuntimeException e) {
+                drop(e);
+            }
+        }
+
+        void drop(Exception e) {
+            log.debug(() -> "connection dropped: " + e);
+            close();
+        }
+
+        /**
+         * @return whether requests have been handled by the time this returns, as they are by an inline executor
+         */
+        private boolean dispatch() throws ProtocolException {
+            in.flip();
+            if (http == null && in.hasRemaining()) {
+                http = in.get(0) == 'G';
+            }
+            boolean ready = Boolean.TRUE.equals(http)
+                    ? headerEnd() >= 0 || in.limit() == in.capacity()
+                    : findFrames();
+            if (!ready) {
+                in.compact();
+                return false;
+            }
+            handling = true;
+            executor.execute(this::handleRequests);
+            if (!handledInline) {
+                return false;
+            }
+            handledInline = false;
+            takeResponses();
+            return true;
+        }
+
+        private void takeResponses() {
+            in.compact();
+            responses.flip();
+            out = reserve(out, responses.remaining());
+            out.put(responses);
+            responses.clear();
+            handling = false;
+        }
+
+        /**
+         * Finds the complete frames to hand over, as many as the output limit leaves room for.
+         *
+         * @return whether there is one at least
+         */
+        private boolean findFrames() throws ProtocolException {
+            int position = in.position();
+            long output = out.position();
+            while (in.limit() - position >= IdProtocol.REQUEST_HEADER && output < MAX_PENDING_OUTPUT) {
+                byte opcode = in.get(position);
+                if (opcode != IdProtocol.OP_NEXT_IDS) {
+                    throw new ProtocolException("unknown opcode " + opcode);
+                }
+                int keyLength = in.getShort(position + 1 + Integer.BYTES) & 0xffff;
+                if (keyLength > IdProtocol.MAX_KEY_LENGTH) {
+                    throw new ProtocolException("key of " + keyLength + " bytes");
+                }
+                int frame = IdProtocol.REQUEST_HEADER + keyLength + Integer.BYTES;
+                if (in.limit() - position < frame) {
+                    break;
+                }
+                int count = in.getInt(position + IdProtocol.REQUEST_HEADER + keyLength);
+                output += count > 0 && count <= IdProtocol.MAX_COUNT
+                        ? IdProtocol.packedResponse(count)
+                        : IdProtocol.RESPONSE_HEADER + Short.BYTES + MAX_ERROR_LENGTH;
+                position += frame;
+            }
+            framesEnd = position;
+            return position > in.position();
+        }
+
+        /**
+         * Runs on the executor.
+         */
+        private void handleRequests() {
+            try {
+                if (Boolean.TRUE.equals(http)) {
+                    processHttp();
+                } else {
+                    processFrames();
+                }
+            } catch (RuntimeException e) {
+                log.error("handle requests failed", e);
+                closing = true;
+            } finally {
+                worker.handled(this);
+            }
+        }
+
+        private void processFrames() {
+            while (in.position() < framesEnd) {
+                int start = in.position();
+                int keyLength = in.getShort(start + 1 + Integer.BYTES) & 0xffff;
+                int requestId = in.getInt(start + 1);
+                int count = in.getInt(start + IdProtocol.REQUEST_HEADER + keyLength);
+                handle(requestId, start + IdProtocol.REQUEST_HEADER, keyLength, count);
+                in.position(start + IdProtocol.REQUEST_HEADER + keyLength + Integer.BYTES);
+            }
+        }
+
+        private void handle(int requestId, int keyOffset, int keyLength, int count) {
+            requests.increment();
+            if (count <= 0 || count > IdProtocol.MAX_COUNT) {
+                error(requestId, "count must be in [1, " + IdProtocol.MAX_COUNT + "]");
+                return;
+            }
+            if (buffer.length < count) {
+                buffer = new long[Math.max(count, Math.min(buffer.length * 2, IdProtocol.MAX_COUNT))];
+            }
+            try {
+                generator(keyOffset, keyLength).fill(buffer, 0, count);
+            } catch (RuntimeException e) {
+                error(requestId, e.toString());
+                return;
+            }
+            responses = reserve(responses, IdProtocol.packedResponse(count));
+            IdProtocol.putIds(responses, requestId, buffer, count);
+            ids.add(count);
+        }
+
+        /**
+         * Most connections ask for a single key, so the key of the previous request is kept to skip decoding.
+         */
+        private IdGenerator generator(int offset, int length) {
+            byte[] bytes = in.array();
+            int start = in.arrayOffset() + offset;
+            if (lastGenerator != null && lastKey.length == length) {
+                int i = 0;
+                while (i < length && lastKey[i] == bytes[start + i]) {
+                    i++;
+                }
+                if (i == length) {
+                    return lastGenerator;
+                }
+            }
+            IdGenerator generator = IdServer.this.generator(new String(bytes, start, length, StandardCharsets.UTF_8));
+            byte[] key = new byte[length];
+            System.arraycopy(bytes, start, key, 0, length);
+            lastKey = key;
+            lastGenerator = generator;
+            return generator;
+        }
+
+        private void error(int requestId, String message) {
+            errors.increment();
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(bytes.length, MAX_ERROR_LENGTH);
+            responses = reserve(responses, IdProtocol.RESPONSE_HEADER + Short.BYTES + length);
+            responses.put(IdProtocol.ERROR).putInt(requestId).putShort((short) length).put(bytes, 0, length);
+        }
+
+        private void processHttp() {
+            int end = headerEnd();
+            if (end < 0) {
+                if (in.limit() == in.capacity()) {
+                    respond(431, "request header too large\n");
+                }
+                return;
+            }
+            String head = new String(in.array(), in.arrayOffset() + in.position(), end - in.position(),
+                    StandardCharsets.ISO_8859_1);
+            in.position(in.limit());
+            String[] requestLine = head.split("\r\n", 2)[0].split(" ");
+            if (requestLine.length < 2 || !"GET".equals(requestLine[0])) {
+                respond(405, "only GET is supported\n");
+                return;
+            }
+            String target = requestLine[1];
+            int query = target.indexOf('?');
+            String path = query < 0 ? target : target.substring(0, query);
+            Map<String, String> parameters = parameters(query < 0 ? "" : target.substring(query + 1));
+            if ("/stats".equals(path)) {
+                respond(200, stats());
+            } else if (path.startsWith("/ids/") && path.length() > "/ids/".length()) {
+                respondIds(decode(path.substring("/ids/".length())), parameters.getOrDefault("count", "1"));
+            } else {
+                respond(404, "GET /ids/{key}?count=n or /stats\n");
+            }
+        }
+
+        private void respondIds(String key, String countParameter) {
+            requests.increment();
+            int count;
+            try {
+                count = Integer.parseInt(countParameter);
+            } catch (NumberFormatException e) {
+                count = 0;
+            }
+            if (count <= 0 || count > IdProtocol.MAX_COUNT) {
+                errors.increment();
+                respond(400, "count must be in [1, " + IdProtocol.MAX_COUNT + "]\n");
+                return;
+            }
+            long[] ids;
+            try {
+                ids = IdServer.this.generator(key).nextIds(count);
+            } catch (RuntimeException e) {
+                errors.increment();
+                respond(503, e + "\n");
+                return;
+            }
+            StringBuilder body = new StringBuilder(count * 20);
+            for (long id : ids) {
+                body.append(id).append('\n');
+            }
+            IdServer.this.ids.add(count);
+            respond(200, body.toString());
+        }
+
+        private void respond(int status, String body) {
+            byte[] content = body.getBytes(StandardCharsets.UTF_8);
+            byte[] head = ("HTTP/1.1 " + status + " " + reason(status) + "\r\n"
+                           + "Content-Type: text/plain; charset=utf-8\r\n"
+                           + "Content-Length: " + content.length + "\r\n"
+                           + "Connection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            responses = reserve(responses, head.length + content.length);
+            responses.put(head).put(content);
+            closing = true;
+        }
+
+        private int headerEnd() {
+            byte[] bytes = in.array();
+            int offset = in.arrayOffset();
+            for (int i = in.position(); i + 3 < in.limit(); i++) {
+                if (bytes[offset + i] == '\r' && bytes[offset + i + 1] == '\n'
+                    && bytes[offset + i + 2] == '\r' && bytes[offset + i + 3] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private ByteBuffer reserve(ByteBuffer buffer, int bytes) {
+            if (buffer.remaining() >= bytes) {
+                return buffer;
+            }
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            return larger.put(buffer);
+        }
+
+        void close() {
+            if (dropped) {
+                return;
+            }
+            dropped = true;
+            key.cancel();
+            closeQuietly(channel);
+            connections.decrement();
+        }
+    }
+
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                parameters.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+            }
+        }
+        return parameters;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 431:
+                return "Request Header Fields Too Large";
+            default:
+                return "Service Unavailable";
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // the connection is gone either way
+        }
+    }
+
+    /**
+     * Serves the ids of a database, or of a fixed node id without one:
+     * <pre>
+     * --port 7070 --workers n --jdbc-url url [--user u] [--password p] [--segment]
+     * --port 7070 --workers n --node-id n [--start-stamp millis]
+     * </pre>
+     * The tables of the configuration center, or of {@code --segment} mode, must exist.
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = options(args);
+        int port = Integer.parseInt(options.getOrDefault("port", String.valueOf(DEFAULT_PORT)));
+        int workers = Integer.parseInt(options.getOrDefault("workers",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        IdGeneratorFactory factory = factory(options);
+        InetSocketAddress address = new InetSocketAddress(port);
+        // the generator of a fixed node id never blocks, it is served on the selector threads
+        IdServer server = options.containsKey("jdbc-url")
+                ? new IdServer(factory, address, workers)
+                : new IdServer(factory, address, workers, Runnable::run);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (factory instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) factory).close();
+                } catch (Exception e) {
+                    log.error("close factory failed", e);
+                }
+            }
+        }));
+        log.info(() -> "serving ids on " + server.getAddress());
+    }
+
+    private static IdGeneratorFactory factory(Map<String, String> options) {
+        String url = options.get("jdbc-url");
+        if (url == null) {
+            String nodeId = options.get("node-id");
+            if (nodeId == null) {
+                throw new IllegalArgumentException("either --jdbc-url or --node-id is required");
+            }
+            long startStamp = Long.parseLong(options.getOrDefault("start-stamp", "0"));
+            // a node id serves one sequence, keys of their own would issue the same ids
+            DistributedIdGenerator generator = new DistributedIdGenerator(Integer.parseInt(nodeId), startStamp);
+            return key -> generator;
+        }
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(options.get("user"));
+        config.setPassword(options.get("password"));
+        HikariDataSource dataSource = new HikariDataSource(config);
+        ConnectionProvider connectionProvider = dataSource::getConnection;
+        if (options.containsKey("segment")) {
+            return new SegmentIdGeneratorFactory(connectionProvider);
+        }
+        if (url.startsWith("jdbc:h2:")) {
+            return new H2ConfigurationCenter(connectionProvider);
+        }
+        if (url.startsWith("jdbc:mysql:")) {
+            return new MysqlConfigurationCenter(connectionProvider);
+        }
+        if (url.startsWith("jdbc:postgresql:")) {
+            return new PostgresConfigurationCenter(connectionProvider);
+        }
+        throw new IllegalArgumentException("no configuration center for " + url);
+    }
+
+    static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("unexpected argument " + args[i]);
+            }
+            String name = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(name, args[++i]);
+            } else {
+                options.put(name, "true");
+            }
+        }
+        return options;
+    }
+
+}
@@ -0,0 +1,166 @@
+package io.github.genie.id.generator.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives an {@link IdServer} from a number of connections, each keeping {@code pipeline} requests in flight,
+ * and reports the throughput and the latency percentiles of the requests:
+ * <pre>
+ * --host localhost --port 7070 --connections 4 --pipeline 16 --count 1 --seconds 10 --key load
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private final InetSocketAddress address;
+    private final String key;
+    private final int connections;
+    private final int pipeline;
+    private final int count;
+    private final long durationNanos;
+
+    public LoadGenerator(InetSocketAddress address, String key, int connections, int pipeline, int count,
+                         long durationNanos) {
+        if (connections <= 0 || pipeline <= 0 || count <= 0) {
+            throw new IllegalArgumentException("connections, pipeline and count must be positive");
+        }
+        this.address = address;
+        this.key = key;
+        this.connections = connections;
+        this.pipeline = pipeline;
+        this.count = count;
+        this.durationNanos = durationNanos;
+    }
+
+    public Result run() throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < connections; i++) {
+                futures.add(executor.submit(() -> drive(start + durationNanos)));
+            }
+            List<long[]> latencies = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                try {
+                    latencies.add(future.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IllegalStateException("load connection failed", e.getCause());
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            return new Result(merge(latencies), count, elapsed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the latency of every request of one connection in nanoseconds
+     */
+    private long[] drive(long deadline) throws IOException {
+        long[] sent = new long[pipeline];
+        long[] latencies = new long[1 << 16];
+        int completed = 0;
+        try (IdClient client = new IdClient(address)) {
+            for (int i = 0; i < pipeline; i++) {
+                sent[Math.floorMod(client.send(key, count), pipeline)] = System.nanoTime();
+            }
+            int inFlight = pipeline;
+            while (inFlight > 0) {
+                IdClient.Response response = client.receive();
+                long now = System.nanoTime();
+                response.getIds();
+                if (completed == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, completed * 2);
+                }
+                latencies[completed++] = now - sent[Math.floorMod(response.getRequestId(), pipeline)];
+                inFlight--;
+                if (now - deadline < 0) {
+                    sent[Math.floorMod(client.send(key, count), pipeline)] = System.nanoTime();
+                    inFlight++;
+                }
+            }
+        }
+        return Arrays.copyOf(latencies, completed);
+    }
+
+    private static long[] merge(List<long[]> latencies) {
+        long[] merged = new long[latencies.stream().mapToInt(l -> l.length).sum()];
+        int offset = 0;
+        for (long[] l : latencies) {
+            System.arraycopy(l, 0, merged, offset, l.length);
+            offset += l.length;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    public static final class Result {
+        private final long[] sortedLatencies;
+        private final int idsPerRequest;
+        private final long elapsedNanos;
+
+        Result(long[] sortedLatencies, int idsPerRequest, long elapsedNanos) {
+            this.sortedLatencies = sortedLatencies;
+            this.idsPerRequest = idsPerRequest;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRequests() {
+            return sortedLatencies.length;
+        }
+
+        public double getRequestsPerSecond() {
+            return sortedLatencies.length * 1e9 / elapsedNanos;
+        }
+
+        public double getIdsPerSecond() {
+            return getRequestsPerSecond() * idsPerRequest;
+        }
+
+        /**
+         * @return the latency below which the {@code quantile} of the requests completed, 0 if there were none
+         */
+        public long getLatencyMicros(double quantile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(quantile * sortedLatencies.length) - 1);
+            return TimeUnit.NANOSECONDS.toMicros(sortedLatencies[Math.max(0, index)]);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests, %.0f requests/s, %.0f ids/s, p50 %d us, p99 %d us, p99.9 %d us",
+                    getRequests(), getRequestsPerSecond(), getIdsPerSecond(),
+                    getLatencyMicros(0.5), getLatencyMicros(0.99), getLatencyMicros(0.999));
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = IdServer.options(args);
+        InetSocketAddress address = new InetSocketAddress(options.getOrDefault("host", "localhost"),
+                Integer.parseInt(options.getOrDefault("port", String.valueOf(IdServer.DEFAULT_PORT))));
+        LoadGenerator generator = new LoadGenerator(address,
+                options.getOrDefault("key", "load"),
+                Integer.parseInt(options.getOrDefault("connections", "4")),
+                Integer.parseInt(options.getOrDefault("pipeline", "16")),
+                Integer.parseInt(options.getOrDefault("count", "1")),
+                TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("seconds", "10"))));
+        System.out.println(generator.run());
+    }
+
+}
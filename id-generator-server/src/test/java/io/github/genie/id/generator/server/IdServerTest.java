@@ -0,0 +1,208 @@
+package io.github.genie.id.generator.server;
+
+import io.github.genie.id.generator.core.IdGenerator;
+import io.github.genie.id.generator.core.IdGeneratorFactory;
+import io.github.genie.id.generator.core.support.DistributedIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdServerTest {
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private IdServer server;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        IdGeneratorFactory factory = key -> {
+            if (key.startsWith("snowflake")) {
+                return new DistributedIdGenerator(3, 0);
+            }
+            AtomicLong counter = counters.computeIfAbsent(key, k -> new AtomicLong());
+            IdGenerator dense = counter::incrementAndGet;
+            return dense;
+        };
+        server = new IdServer(factory, new InetSocketAddress("localhost", 0), 2);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void answersPipelinedRequestsInOrder() throws Exception {
+        try (IdClient client = new IdClient(server.getAddress())) {
+            for (int i = 0; i < 1000; i++) {
+                client.send(i % 2 == 0 ? "a" : "snowflake", 1 + i % 7);
+            }
+            long previousA = 0;
+            Set<Long> snowflakes = new HashSet<>();
+            for (int i = 0; i < 1000; i++) {
+                IdClient.Response response = client.receive();
+                assertEquals(i, response.getRequestId());
+                long[] ids = response.getIds();
+                assertEquals(1 + i % 7, ids.length);
+                for (long id : ids) {
+                    if (i % 2 == 0) {
+                        assertEquals(previousA + 1, id);
+                        previousA = id;
+                    } else {
+                        assertTrue(snowflakes.add(id), "duplicate " + id);
+                    }
+                }
+            }
+        }
+        assertEquals(1000, server.getRequestCount());
+    }
+
+    @Test
+    void blockingGeneratorsDoNotHoldUpOtherConnections() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IdGeneratorFactory factory = key -> {
+            if ("slow".equals(key)) {
+                creating.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            AtomicLong counter = new AtomicLong();
+            return counter::incrementAndGet;
+        };
+        try (IdServer single = new IdServer(factory, new InetSocketAddress("localhost", 0), 1);
+             IdClient slow = new IdClient(single.getAddress());
+             IdClient fast = new IdClient(single.getAddress())) {
+            slow.send("slow", 1);
+            assertTrue(creating.await(5, TimeUnit.SECONDS));
+            // both connections share the only selector thread
+            assertArrayEquals(new long[]{1, 2},
+                    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> fast.nextIds("fast", 2)));
+            release.countDown();
+            assertArrayEquals(new long[]{1}, slow.receive().getIds());
+        }
+    }
+
+    @Test
+    void servesNonBlockingFactoriesOnTheSelector() throws Exception {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        DistributedIdGenerator shared = new DistributedIdGenerator(3, 0);
+        IdGeneratorFactory factory = key -> {
+            threads.add(Thread.currentThread().getName());
+            return shared;
+        };
+        try (IdServer inline = new IdServer(factory, new InetSocketAddress("localhost", 0), 1, Runnable::run);
+             IdClient client = new IdClient(inline.getAddress())) {
+            for (int i = 0; i < 100; i++) {
+                client.send("key-" + i % 3, 5);
+            }
+            Set<Long> ids = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                IdClient.Response response = client.receive();
+                assertEquals(i, response.getRequestId());
+                for (long id : response.getIds()) {
+                    assertTrue(ids.add(id), "duplicate " + id);
+                }
+            }
+        }
+        assertEquals(Collections.singleton("id-server-worker-0"), threads);
+    }
+
+    @Test
+    void sendsArithmeticIdsAsRange() throws Exception {
+        try (Socket socket = new Socket("localhost", server.getAddress().getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            byte[] key = "dense".getBytes(StandardCharsets.UTF_8);
+            out.writeByte(IdProtocol.OP_NEXT_IDS);
+            out.writeInt(42);
+            out.writeShort(key.length);
+            out.write(key);
+            out.writeInt(IdProtocol.MAX_COUNT);
+            out.flush();
+            assertEquals(IdProtocol.RANGE, in.readByte());
+            assertEquals(42, in.readInt());
+            assertEquals(IdProtocol.MAX_COUNT, in.readInt());
+            assertEquals(1, in.readLong());
+            assertEquals(1, in.readLong());
+        }
+    }
+
+    @Test
+    void reportsErrorsAndKeepsTheConnection() throws Exception {
+        try (IdClient client = new IdClient(server.getAddress())) {
+            client.send("a", 0);
+            IdClient.Response response = client.receive();
+            assertNotNull(response.getError());
+            assertThrows(IllegalStateException.class, response::getIds);
+            assertArrayEquals(new long[]{1, 2}, client.nextIds("a", 2));
+        }
+        assertEquals(1, server.getErrorCount());
+    }
+
+    @Test
+    void servesHttpForDebugging() throws Exception {
+        String ids = get("/ids/a?count=3");
+        assertEquals("1\n2\n3\n", ids);
+        assertTrue(get("/stats").contains("ids 3"));
+        URL missing = new URL("http://localhost:" + server.getAddress().getPort() + "/missing");
+        HttpURLConnection connection = (HttpURLConnection) missing.openConnection();
+        assertEquals(404, connection.getResponseCode());
+        connection.disconnect();
+    }
+
+    @Test
+    void loadGeneratorReportsLatencies() throws Exception {
+        LoadGenerator.Result result = new LoadGenerator(server.getAddress(), "snowflake", 2, 8, 4,
+                TimeUnit.MILLISECONDS.toNanos(200)).run();
+        assertTrue(result.getRequests() > 0);
+        assertEquals(result.getRequests() * 4, server.getIdCount());
+        assertTrue(result.getLatencyMicros(0.99) >= result.getLatencyMicros(0.5));
+    }
+
+    private String get(String path) throws Exception {
+        URL url = new URL("http://localhost:" + server.getAddress().getPort() + path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            assertEquals(200, connection.getResponseCode());
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                body.write(buffer, 0, n);
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+}